@@ -3,25 +3,39 @@ package ru.yandex.gateway.booking;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.yandex.gateway.booking.dto.BookItemRequestDto;
+import ru.yandex.gateway.booking.dto.BookingDecisionDto;
+import ru.yandex.gateway.booking.dto.BookingImportDto;
 import ru.yandex.gateway.booking.dto.BookingState;
 import ru.yandex.gateway.client.BaseClient;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class BookingClient extends BaseClient {
     public static final String API_PREFIX = "/bookings";
 
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    /**
+     * Exports and event streams hold a connection for minutes, so they get their own pool:
+     * however many of them are open, ordinary booking requests still find a free connection.
+     */
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl,
+                         @Value("${shareit-server.max-connections:50}") int maxConnections,
+                         @Value("${shareit-server.stream.max-connections:200}") int maxStreams,
+                         @Value("${shareit-server.connection-request-timeout:PT5S}") Duration connectionRequestTimeout,
+                         RestTemplateBuilder builder) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .requestFactory(() -> pooledRequestFactory(maxConnections, connectionRequestTimeout))
+                        .build(),
+                pooledRequestFactory(maxStreams, connectionRequestTimeout)
         );
     }
 
@@ -34,8 +48,41 @@ public class BookingClient extends BaseClient {
         return get("?state={state}&from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> createBooking(long userId, BookItemRequestDto requestDto) {
-        return post("", userId, requestDto);
+    public ResponseEntity<Object> getBookingsByUser(long userId, BookingState state, String cursor, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "state", state.name(),
+                "cursor", cursor,
+                "size", size
+        );
+        return get("?state={state}&cursor={cursor}&size={size}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> getBookingSummaryByUser(long userId) {
+        return get("/summary", userId);
+    }
+
+    public ResponseEntity<Object> getBookingSummaryByOwner(long userId) {
+        return get("/owner/summary", userId);
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUser(long userId) {
+        return stream("/export", userId, null);
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportBookingsByOwner(long userId) {
+        return stream("/owner/export", userId, null);
+    }
+
+    public ResponseEntity<StreamingResponseBody> streamBookingsByOwner(long userId) {
+        return stream("/owner/stream", userId, null);
+    }
+
+    public ResponseEntity<Object> createBooking(long userId, String idempotencyKey, BookItemRequestDto requestDto) {
+        return post("", userId, idempotencyKey, requestDto);
+    }
+
+    public ResponseEntity<Object> importBookings(long userId, List<BookingImportDto> bookings) {
+        return post("/import", userId, bookings);
     }
 
     public ResponseEntity<Object> getBookingById(long userId, Long bookingId) {
@@ -49,6 +96,10 @@ public class BookingClient extends BaseClient {
         return patch("/" + bookingId + "?approved={approved}", userId, parameters);
     }
 
+    public ResponseEntity<Object> confirmBookings(long userId, List<BookingDecisionDto> decisions) {
+        return patch("/owner/batch", userId, decisions);
+    }
+
     public ResponseEntity<Object> getBookingsByOwner(long userId, BookingState state, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
@@ -57,4 +108,24 @@ public class BookingClient extends BaseClient {
         );
         return get("/owner?state={state}&from={from}&size={size}", userId, parameters);
     }
+
+    public ResponseEntity<Object> getBookingsByOwner(long userId, BookingState state, String cursor, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "state", state.name(),
+                "cursor", cursor,
+                "size", size
+        );
+        return get("/owner?state={state}&cursor={cursor}&size={size}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> getBookingsByOwnerInWindow(long userId, LocalDateTime from, LocalDateTime to,
+                                                             Integer offset, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to,
+                "offset", offset,
+                "size", size
+        );
+        return get("/owner/window?from={from}&to={to}&offset={offset}&size={size}", userId, parameters);
+    }
 }
@@ -2,6 +2,7 @@ package ru.yandex.gateway.booking;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -13,13 +14,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.gateway.booking.dto.BookItemRequestDto;
+import ru.yandex.gateway.booking.dto.BookingDecisionDto;
+import ru.yandex.gateway.booking.dto.BookingImportDto;
 import ru.yandex.gateway.booking.dto.BookingState;
+import ru.yandex.gateway.client.BaseClient;
 
 import javax.validation.Valid;
 import javax.validation.ValidationException;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Controller
 @RequestMapping("/bookings")
@@ -27,6 +36,10 @@ import javax.validation.constraints.PositiveOrZero;
 @Slf4j
 @Validated
 public class BookingController {
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_IMPORT_SIZE = 10_000;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final BookingClient client;
 
     @GetMapping
@@ -34,23 +47,86 @@ public class BookingController {
             @RequestHeader("X-Sharer-User-Id") Long userId,
             @RequestParam(defaultValue = "ALL", name = "state") String stateParam,
             @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(required = false, defaultValue = "10") @Positive Integer size) {
+            @RequestParam(required = false, defaultValue = "10") @Positive Integer size,
+            @RequestParam(required = false) String cursor) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
+
+        if (cursor != null) {
+            log.info("Get booking with state {}, userId={}, cursor={}, size={}", stateParam, userId, cursor, size);
+            return client.getBookingsByUser(userId, state, cursor, size);
+        }
+
         log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
         return client.getBookingsByUser(userId, state, from, size);
     }
 
+    @GetMapping("/summary")
+    public ResponseEntity<Object> getBookingSummaryByUser(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Get booking summary, userId={}", userId);
+        return client.getBookingSummaryByUser(userId);
+    }
+
+    @GetMapping("/owner/summary")
+    public ResponseEntity<Object> getBookingSummaryByOwner(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Get booking summary by owner, userId={}", userId);
+        return client.getBookingSummaryByOwner(userId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUser(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Export bookings, userId={}", userId);
+        return client.exportBookingsByUser(userId);
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByOwner(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Export bookings by owner, userId={}", userId);
+        return client.exportBookingsByOwner(userId);
+    }
+
+    @GetMapping("/owner/window")
+    public ResponseEntity<Object> getBookingsByOwnerInWindow(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer offset,
+            @RequestParam(required = false, defaultValue = "10") @Positive Integer size) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("From позже или равен to");
+        }
+
+        log.info("Get bookings by owner in window from={} to={}, userId={}, offset={}, size={}",
+                from, to, userId, offset, size);
+        return client.getBookingsByOwnerInWindow(userId, from, to, offset, size);
+    }
+
+    @GetMapping("/owner/stream")
+    public ResponseEntity<StreamingResponseBody> streamBookingsByOwner(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Stream bookings by owner, userId={}", userId);
+        return client.streamBookingsByOwner(userId);
+    }
+
     @PostMapping
     public ResponseEntity<Object> createBooking(
             @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY_HEADER, required = false)
+            @Size(min = 1, max = MAX_IDEMPOTENCY_KEY_LENGTH) String idempotencyKey,
             @Valid @RequestBody BookItemRequestDto requestDto) {
         if (!requestDto.dateValid()) {
             throw new ValidationException("Start позже или равен end");
         }
 
-        log.info("Creating booking {}, userId={}", requestDto, userId);
-        return client.createBooking(userId, requestDto);
+        log.info("Creating booking {}, userId={}, idempotencyKey={}", requestDto, userId, idempotencyKey);
+        return client.createBooking(userId, idempotencyKey, requestDto);
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<Object> importBookings(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestBody @NotEmpty @Size(max = MAX_IMPORT_SIZE) List<@Valid BookingImportDto> bookings) {
+        log.info("Import {} bookings, userId={}", bookings.size(), userId);
+        return client.importBookings(userId, bookings);
     }
 
     @GetMapping("/{bookingId}")
@@ -70,14 +146,30 @@ public class BookingController {
         return client.confirmBooking(userId, bookingId, approved);
     }
 
+    @PatchMapping("/owner/batch")
+    public ResponseEntity<Object> confirmBookings(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<@Valid BookingDecisionDto> decisions) {
+        log.info("Confirm {} bookings, userId={}", decisions.size(), userId);
+        return client.confirmBookings(userId, decisions);
+    }
+
     @GetMapping("/owner")
     public ResponseEntity<Object> getBookingsByOwner(
             @RequestHeader("X-Sharer-User-Id") Long userId,
             @RequestParam(defaultValue = "ALL", name = "state") String stateParam,
             @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(required = false, defaultValue = "10") @Positive Integer size) {
+            @RequestParam(required = false, defaultValue = "10") @Positive Integer size,
+            @RequestParam(required = false) String cursor) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
+
+        if (cursor != null) {
+            log.info("Get booking by owner with state {}, userId={}, cursor={}, size={}",
+                    stateParam, userId, cursor, size);
+            return client.getBookingsByOwner(userId, state, cursor, size);
+        }
+
         log.info("Get booking by owner with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
         return client.getBookingsByOwner(userId, state, from, size);
     }
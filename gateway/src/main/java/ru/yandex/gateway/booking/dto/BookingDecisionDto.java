@@ -0,0 +1,19 @@
+package ru.yandex.gateway.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingDecisionDto {
+    @NotNull
+    @Positive
+    private Long bookingId;
+    @NotNull
+    private Boolean approved;
+}
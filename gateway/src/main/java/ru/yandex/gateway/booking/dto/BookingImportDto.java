@@ -0,0 +1,28 @@
+package ru.yandex.gateway.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingImportDto {
+    @NotNull
+    @Positive
+    private Long itemId;
+    @NotNull
+    @Positive
+    private Long bookerId;
+    @NotNull
+    private LocalDateTime start;
+    @NotNull
+    private LocalDateTime end;
+    @Pattern(regexp = "WAITING|APPROVED|REJECTED", message = "Некорректный статус заказа")
+    private String status;
+}
@@ -1,22 +1,62 @@
 package ru.yandex.gateway.client;
 
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
 public class BaseClient {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
     protected final RestTemplate rest;
+    private final ClientHttpRequestFactory streamRequestFactory;
 
     public BaseClient(RestTemplate rest) {
+        this(rest, rest.getRequestFactory());
+    }
+
+    /**
+     * streamRequestFactory opens the long responses of stream(), so they never take connections
+     * from the pool that serves ordinary requests.
+     */
+    public BaseClient(RestTemplate rest, ClientHttpRequestFactory streamRequestFactory) {
         this.rest = rest;
+        this.streamRequestFactory = streamRequestFactory;
+    }
+
+    /**
+     * A pool of at most maxConnections connections to the server. When all of them are busy, a request waits
+     * up to connectionRequestTimeout for a free one and then fails, instead of hanging forever.
+     */
+    public static HttpComponentsClientHttpRequestFactory pooledRequestFactory(int maxConnections,
+                                                                              Duration connectionRequestTimeout) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .build();
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setConnectionRequestTimeout(Math.toIntExact(connectionRequestTimeout.toMillis()));
+        return factory;
     }
 
     protected ResponseEntity<Object> get(String path) {
@@ -44,6 +84,13 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
     }
 
+    /**
+     * Passes the client's Idempotency-Key through, so the server answers a retried request with the original response.
+     */
+    protected <T> ResponseEntity<Object> post(String path, long userId, @Nullable String idempotencyKey, T body) {
+        return makeAndSendRequest(HttpMethod.POST, path, userId, null, body, idempotencyKey);
+    }
+
     protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
         return put(path, userId, null, body);
     }
@@ -86,9 +133,80 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
+    /**
+     * Opens the server response on the request thread, then copies its body to the client from the MVC async
+     * executor, so a long export or an event stream does not hold a Tomcat thread. Every chunk is flushed
+     * as soon as it arrives, so server-sent events reach the client without delay.
+     * Error responses are short and are read in full before returning.
+     * The response holds its connection until the copy ends, so it comes from the stream request factory.
+     */
+    protected ResponseEntity<StreamingResponseBody> stream(String path, Long userId,
+                                                           @Nullable Map<String, Object> parameters) {
+        URI uri = parameters != null
+                ? rest.getUriTemplateHandler().expand(path, parameters)
+                : rest.getUriTemplateHandler().expand(path);
+        ClientHttpResponse shareitServerResponse;
+
+        try {
+            ClientHttpRequest request = streamRequestFactory.createRequest(uri, HttpMethod.GET);
+            request.getHeaders().setAccept(
+                    List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON));
+
+            if (userId != null) {
+                request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId));
+            }
+
+            shareitServerResponse = request.execute();
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error on GET request for \"" + uri + "\": " + e.getMessage(), e);
+        }
+
+        try {
+            ResponseEntity.BodyBuilder responseBuilder =
+                    ResponseEntity.status(shareitServerResponse.getRawStatusCode());
+            MediaType contentType = shareitServerResponse.getHeaders().getContentType();
+
+            if (contentType != null) {
+                responseBuilder.contentType(contentType);
+            }
+
+            if (shareitServerResponse.getRawStatusCode() >= HttpStatus.BAD_REQUEST.value()) {
+                try (ClientHttpResponse error = shareitServerResponse) {
+                    byte[] body = StreamUtils.copyToByteArray(error.getBody());
+                    return responseBuilder.body(out -> out.write(body));
+                }
+            }
+
+            return responseBuilder.body(out -> {
+                try (ClientHttpResponse response = shareitServerResponse) {
+                    InputStream body = response.getBody();
+                    byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+                    int read;
+
+                    while ((read = body.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                        out.flush();
+                    }
+                }
+            });
+        } catch (IOException e) {
+            shareitServerResponse.close();
+            throw new ResourceAccessException("I/O error on GET request for \"" + uri + "\": " + e.getMessage(), e);
+        }
+    }
+
     private <T> ResponseEntity<Object> makeAndSendRequest(
             HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+        return makeAndSendRequest(method, path, userId, parameters, body, null);
+    }
+
+    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method,
+                                                          String path,
+                                                          Long userId,
+                                                          @Nullable Map<String, Object> parameters,
+                                                          @Nullable T body,
+                                                          @Nullable String idempotencyKey) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId, idempotencyKey));
 
         ResponseEntity<Object> shareitServerResponse;
         try {
@@ -103,7 +221,7 @@ public class BaseClient {
         return prepareGatewayResponse(shareitServerResponse);
     }
 
-    private HttpHeaders defaultHeaders(Long userId) {
+    private HttpHeaders defaultHeaders(Long userId, @Nullable String idempotencyKey) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setAccept(List.of(MediaType.APPLICATION_JSON));
@@ -112,6 +230,10 @@ public class BaseClient {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
 
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+
         return headers;
     }
 
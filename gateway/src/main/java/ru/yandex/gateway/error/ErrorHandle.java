@@ -4,6 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.client.ResourceAccessException;
 
 import javax.validation.ValidationException;
 
@@ -20,4 +21,13 @@ public class ErrorHandle {
     public ErrorResponse handleValidException(final ValidationException e) {
         return new ErrorResponse(e.getMessage());
     }
+
+    /**
+     * The server did not answer, or every pooled connection to it stayed busy past the connection request timeout.
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleResourceAccessException(final ResourceAccessException e) {
+        return new ErrorResponse(e.getMessage());
+    }
 }
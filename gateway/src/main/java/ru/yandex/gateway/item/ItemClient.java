@@ -9,7 +9,10 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.yandex.gateway.client.BaseClient;
 import ru.yandex.gateway.item.dto.CommentDto;
 import ru.yandex.gateway.item.dto.ItemDto;
+import ru.yandex.gateway.item.dto.ItemImportDto;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -25,8 +28,12 @@ public class ItemClient extends BaseClient {
         );
     }
 
-    public ResponseEntity<Object> createItem(long userId, ItemDto itemDto) {
-        return post("", userId, itemDto);
+    public ResponseEntity<Object> createItem(long userId, String idempotencyKey, ItemDto itemDto) {
+        return post("", userId, idempotencyKey, itemDto);
+    }
+
+    public ResponseEntity<Object> importItems(long userId, List<ItemImportDto> items) {
+        return post("/import", userId, items);
     }
 
     public ResponseEntity<Object> updateItem(long userId, Long itemId, ItemDto itemDto) {
@@ -54,6 +61,22 @@ public class ItemClient extends BaseClient {
         return get("/search?text={text}&from={from}&size={size}", null, parameters);
     }
 
+    public ResponseEntity<Object> suggestItems(String prefix, Integer limit) {
+        Map<String, Object> parameters = Map.of(
+                "prefix", prefix,
+                "limit", limit
+        );
+        return get("/search/suggest?prefix={prefix}&limit={limit}", null, parameters);
+    }
+
+    public ResponseEntity<Object> getAvailability(Long itemId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to
+        );
+        return get("/" + itemId + "/availability?from={from}&to={to}", null, parameters);
+    }
+
     public ResponseEntity<Object> createComment(long userId, Long itemId, CommentDto commentDto) {
         return post("/" + itemId + "/comment", userId, commentDto);
     }
@@ -2,6 +2,7 @@ package ru.yandex.gateway.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -13,12 +14,20 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import ru.yandex.gateway.client.BaseClient;
 import ru.yandex.gateway.item.dto.CommentDto;
 import ru.yandex.gateway.item.dto.ItemDto;
+import ru.yandex.gateway.item.dto.ItemImportDto;
 
 import javax.validation.Valid;
+import javax.validation.ValidationException;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Controller
 @RequestMapping("/items")
@@ -26,14 +35,28 @@ import javax.validation.constraints.PositiveOrZero;
 @Slf4j
 @Validated
 public class ItemController {
+    private static final int MAX_IMPORT_SIZE = 10_000;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int MAX_SUGGEST_LIMIT = 10;
+
     private final ItemClient client;
 
     @PostMapping
     public ResponseEntity<Object> createItem(
             @RequestHeader("X-Sharer-User-Id") Long ownerId,
+            @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY_HEADER, required = false)
+            @Size(min = 1, max = MAX_IDEMPOTENCY_KEY_LENGTH) String idempotencyKey,
             @Valid @RequestBody ItemDto itemDto) {
-        log.info("Create item {}, userId = {}", itemDto, ownerId);
-        return client.createItem(ownerId, itemDto);
+        log.info("Create item {}, userId = {}, idempotencyKey = {}", itemDto, ownerId, idempotencyKey);
+        return client.createItem(ownerId, idempotencyKey, itemDto);
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<Object> importItems(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestBody @NotEmpty @Size(max = MAX_IMPORT_SIZE) List<@Valid ItemImportDto> items) {
+        log.info("Import {} items, userId={}", items.size(), userId);
+        return client.importItems(userId, items);
     }
 
     @PatchMapping("/{itemId}")
@@ -71,6 +94,27 @@ public class ItemController {
         return client.searchItems(text, from, size);
     }
 
+    @GetMapping("/search/suggest")
+    public ResponseEntity<Object> suggest(
+            @RequestParam String prefix,
+            @RequestParam(required = false, defaultValue = "10") @Positive @Max(MAX_SUGGEST_LIMIT) Integer limit) {
+        log.info("Suggest item names, prefix = {}, limit = {}", prefix, limit);
+        return client.suggestItems(prefix, limit);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<Object> getAvailability(
+            @PathVariable Long itemId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("From позже или равен to");
+        }
+
+        log.info("Get availability of item {}, from = {}, to = {}", itemId, from, to);
+        return client.getAvailability(itemId, from, to);
+    }
+
     @PostMapping("/{itemId}/comment")
     public ResponseEntity<Object> createComment(
             @RequestHeader("X-Sharer-User-Id") Long userId,
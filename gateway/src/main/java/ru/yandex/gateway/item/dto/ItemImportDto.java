@@ -0,0 +1,25 @@
+package ru.yandex.gateway.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemImportDto {
+    @NotNull
+    @Positive
+    private Long ownerId;
+    @NotBlank
+    private String name;
+    @NotBlank
+    private String description;
+    @NotNull
+    private Boolean available;
+    private Long requestId;
+}
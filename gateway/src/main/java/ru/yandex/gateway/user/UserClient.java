@@ -9,6 +9,8 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.yandex.gateway.client.BaseClient;
 import ru.yandex.gateway.user.dto.UserDto;
 
+import java.util.List;
+
 @Service
 public class UserClient extends BaseClient {
     public static final String API_PREFIX = "/users";
@@ -30,6 +32,10 @@ public class UserClient extends BaseClient {
         return post("", userDto);
     }
 
+    public ResponseEntity<Object> importUsers(long userId, List<UserDto> users) {
+        return post("/import", userId, users);
+    }
+
     public ResponseEntity<Object> updateUser(long userId, UserDto userDto) {
         return patch("/" + userId, userDto);
     }
@@ -41,4 +47,8 @@ public class UserClient extends BaseClient {
     public ResponseEntity<Object> getUserById(long userId) {
         return get("/" + userId);
     }
+
+    public ResponseEntity<Object> getStats(long userId) {
+        return get("/" + userId + "/stats");
+    }
 }
@@ -11,11 +11,15 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import ru.yandex.gateway.user.dto.UserDto;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.util.List;
 
 @Controller
 @RequestMapping("/users")
@@ -23,6 +27,8 @@ import javax.validation.constraints.Positive;
 @Slf4j
 @Validated
 public class UserController {
+    private static final int MAX_IMPORT_SIZE = 10_000;
+
     private final UserClient client;
 
     @GetMapping
@@ -37,6 +43,14 @@ public class UserController {
         return client.createUser(userDto);
     }
 
+    @PostMapping("/import")
+    public ResponseEntity<Object> importUsers(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestBody @NotEmpty @Size(max = MAX_IMPORT_SIZE) List<@Valid UserDto> users) {
+        log.info("Import {} users, userId={}", users.size(), userId);
+        return client.importUsers(userId, users);
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<Object> updateUser(
             @PathVariable @Positive Long id,
@@ -56,4 +70,10 @@ public class UserController {
         log.info("Get user {}", id);
         return client.getUserById(id);
     }
+
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<Object> getStats(@PathVariable @Positive Long id) {
+        log.info("Get stats of user {}", id);
+        return client.getStats(id);
+    }
 }
@@ -0,0 +1,133 @@
+package ru.yandex.gateway.booking;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class BookingClientTest {
+    private static final int STREAMS = 8;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicReference<String> windowQuery = new AtomicReference<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private String serverUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/bookings/owner/stream", this::openStream);
+        server.createContext("/bookings/owner/export", this::openStream);
+        server.createContext("/bookings/export", this::openStream);
+        server.createContext("/bookings/1", exchange -> respond(exchange, "{\"id\":1}"));
+        server.createContext("/bookings/owner/window", exchange -> {
+            windowQuery.set(exchange.getRequestURI().getQuery());
+            respond(exchange, "[]");
+        });
+        server.start();
+        serverUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldServeBookingRequestsWhileStreamsHoldConnections() {
+        BookingClient client = new BookingClient(serverUrl, 50, 200, Duration.ofSeconds(1), new RestTemplateBuilder());
+
+        for (int i = 0; i < STREAMS; i++) {
+            assertEquals(HttpStatus.OK, client.streamBookingsByOwner(1L).getStatusCode());
+        }
+
+        ResponseEntity<Object> booking = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> client.getBookingById(1L, 1L));
+
+        assertEquals(HttpStatus.OK, booking.getStatusCode());
+        assertEquals(Map.of("id", 1), booking.getBody());
+    }
+
+    @Test
+    public void shouldServeBookingRequestsWhileExportsHoldConnections() {
+        BookingClient client = new BookingClient(serverUrl, 50, 200, Duration.ofSeconds(1), new RestTemplateBuilder());
+
+        for (int i = 0; i < STREAMS; i++) {
+            assertEquals(HttpStatus.OK, client.exportBookingsByOwner(1L).getStatusCode());
+            assertEquals(HttpStatus.OK, client.exportBookingsByUser(1L).getStatusCode());
+        }
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertEquals(HttpStatus.OK, client.getBookingById(1L, 1L).getStatusCode()));
+    }
+
+    @Test
+    public void shouldFailStreamAfterConnectionRequestTimeoutWhenStreamPoolIsFull() {
+        BookingClient client = new BookingClient(serverUrl, 50, 2, Duration.ofMillis(200), new RestTemplateBuilder());
+        client.streamBookingsByOwner(1L);
+        client.streamBookingsByOwner(1L);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(ResourceAccessException.class, () -> client.streamBookingsByOwner(1L));
+            assertEquals(HttpStatus.OK, client.getBookingById(1L, 1L).getStatusCode());
+        });
+    }
+
+    @Test
+    public void shouldPassWindowBoundsAsFromAndToAndPagingAsOffset() {
+        BookingClient client = new BookingClient(serverUrl, 50, 200, Duration.ofSeconds(1), new RestTemplateBuilder());
+        LocalDateTime from = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+        assertEquals(HttpStatus.OK,
+                client.getBookingsByOwnerInWindow(1L, from, from.plusDays(7), 20, 10).getStatusCode());
+        assertEquals("from=2024-04-01T00:00&to=2024-04-08T00:00&offset=20&size=10", windowQuery.get());
+    }
+
+    private void openStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write("data: {}\n\n".getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.gateway.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class BaseClientTest {
+    private MockRestServiceServer server;
+    private BaseClient client;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate rest = new RestTemplate();
+        rest.setUriTemplateHandler(new DefaultUriBuilderFactory("http://server/bookings"));
+        server = MockRestServiceServer.bindTo(rest).build();
+        client = new BaseClient(rest);
+    }
+
+    @Test
+    public void shouldRelayStatusContentTypeAndBody() throws Exception {
+        String body = "{\"id\":1}\n{\"id\":2}\n";
+        server.expect(requestTo("http://server/bookings/export?state=ALL"))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header("X-Sharer-User-Id", "1"))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_NDJSON));
+
+        ResponseEntity<StreamingResponseBody> response =
+                client.stream("/export?state={state}", 1L, Map.of("state", "ALL"));
+
+        server.verify();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertEquals(body, write(response));
+    }
+
+    @Test
+    public void shouldRelayErrorStatusAndBody() throws Exception {
+        String error = "{\"error\":\"Не найден пользователь с id = 99\"}";
+        server.expect(requestTo("http://server/bookings/owner/export"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(error.getBytes(StandardCharsets.UTF_8)));
+
+        ResponseEntity<StreamingResponseBody> response = client.stream("/owner/export", 99L, null);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertEquals(error, write(response));
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -1,6 +1,13 @@
 package ru.practicum.shareit.booking;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -10,12 +17,28 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookingImportDto;
 import ru.practicum.shareit.booking.dto.BookingInputDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.bulk.ImportGuard;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
+import ru.practicum.shareit.idempotency.model.IdempotentOperation;
+import ru.practicum.shareit.idempotency.service.IdempotentExecutor;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * TODO Sprint add-bookings.
@@ -24,13 +47,26 @@ import java.util.Collection;
 @RequestMapping(path = "/bookings")
 @RequiredArgsConstructor
 public class BookingController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final BookingService service;
+    private final ObjectMapper objectMapper;
+    private final IdempotentExecutor idempotentExecutor;
+    private final ImportGuard importGuard;
 
     @PostMapping
     public BookingOutputDto createBooking(
             @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestHeader(value = IdempotentExecutor.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @RequestBody BookingInputDto bookingInputDto) {
-        return service.create(bookingInputDto, userId);
+        return idempotentExecutor.execute(userId, IdempotentOperation.CREATE_BOOKING, idempotencyKey, bookingInputDto,
+                BookingOutputDto.class, () -> service.create(bookingInputDto, userId));
+    }
+
+    @PostMapping("/import")
+    public List<ImportResultDto> importBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                @RequestBody List<BookingImportDto> bookings) {
+        importGuard.check(userId);
+        return service.importBookings(bookings);
     }
 
     @PatchMapping("/{bookingId}")
@@ -41,6 +77,13 @@ public class BookingController {
         return service.confirmBooking(userId, bookingId, approved);
     }
 
+    @PatchMapping("/owner/batch")
+    public List<BookingDecisionResultDto> confirmBookings(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestBody List<BookingDecisionDto> decisions) {
+        return service.confirmBookings(userId, decisions);
+    }
+
     @GetMapping("/{bookingId}")
     public BookingOutputDto getBookingById(
             @RequestHeader("X-Sharer-User-Id") long userId,
@@ -57,6 +100,15 @@ public class BookingController {
         return service.getBookingsByUser(userId, state, from, size);
     }
 
+    @GetMapping(params = "cursor")
+    public ResponseEntity<Collection<BookingOutputDto>> getBookingsByUserAfterCursor(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestParam(defaultValue = "ALL") BookingState state,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return toResponse(service.getBookingsByUserAfterCursor(userId, state, cursor, size));
+    }
+
     @GetMapping("/owner")
     public Collection<BookingOutputDto> getBookingsByOwner(
             @RequestHeader("X-Sharer-User-Id") long userId,
@@ -65,4 +117,86 @@ public class BookingController {
             @RequestParam(required = false, defaultValue = "10") Integer size) {
         return service.getBookingsByOwner(userId, state, from, size);
     }
+
+    @GetMapping("/summary")
+    public Map<BookingState, Long> getBookingSummaryByUser(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return service.getBookingSummaryByUser(userId);
+    }
+
+    @GetMapping("/owner/summary")
+    public Map<BookingState, Long> getBookingSummaryByOwner(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return service.getBookingSummaryByOwner(userId);
+    }
+
+    @GetMapping("/owner/window")
+    public List<BookingOutputDto> getBookingsByOwnerInWindow(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false, defaultValue = "0") Integer offset,
+            @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return service.getBookingsByOwnerInWindow(userId, from, to, offset, size);
+    }
+
+    @GetMapping(path = "/owner", params = "cursor")
+    public ResponseEntity<Collection<BookingOutputDto>> getBookingsByOwnerAfterCursor(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestParam(defaultValue = "ALL") BookingState state,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return toResponse(service.getBookingsByOwnerAfterCursor(userId, state, cursor, size));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUser(
+            @RequestHeader("X-Sharer-User-Id") long userId) {
+        service.validateUser(userId);
+        return toNdjson(consumer -> service.exportBookingsByUser(userId, consumer));
+    }
+
+    @GetMapping(value = "/owner/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBookingsByOwner(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return service.subscribeByOwner(userId);
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByOwner(
+            @RequestHeader("X-Sharer-User-Id") long userId) {
+        service.validateUser(userId);
+        return toNdjson(consumer -> service.exportBookingsByOwner(userId, consumer));
+    }
+
+    /**
+     * Каждый заказ пишется в ответ отдельной строкой JSON сразу после чтения из базы.
+     */
+    private ResponseEntity<StreamingResponseBody> toNdjson(Consumer<Consumer<BookingOutputDto>> export) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                export.accept(booking -> {
+                    try {
+                        writer.writeValue(generator, booking);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private ResponseEntity<Collection<BookingOutputDto>> toResponse(BookingPageDto page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+
+        return response.body(page.getBookings());
+    }
 }
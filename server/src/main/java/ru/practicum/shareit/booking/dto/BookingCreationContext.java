@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Заказчик и предмет для нового заказа, прочитанные одним запросом.
+ * Если предмет не найден, все поля item* пустые.
+ */
+@Data
+@AllArgsConstructor
+public class BookingCreationContext {
+    private Long bookerId;
+    private String bookerName;
+    private String bookerEmail;
+    private Long itemId;
+    private String itemName;
+    private String itemDescription;
+    private Integer itemRentals;
+    private Boolean itemAvailable;
+    private Long itemOwnerId;
+    private Long itemRequestId;
+}
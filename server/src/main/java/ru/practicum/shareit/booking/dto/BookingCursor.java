@@ -0,0 +1,52 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NonNull;
+
+import javax.validation.ValidationException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция последнего заказа на странице: (start, id) в порядке start DESC, id DESC.
+ * Клиенту отдаётся в виде непрозрачной строки.
+ */
+@Data
+@AllArgsConstructor
+public class BookingCursor {
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime start;
+    private Long id;
+
+    public static BookingCursor of(@NonNull BookingOutputDto booking) {
+        return new BookingCursor(booking.getStart(), booking.getId());
+    }
+
+    /**
+     * Пустой курсор означает первую страницу.
+     */
+    public static BookingCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            return new BookingCursor(
+                    LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Некорректный курсор: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String value = start + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
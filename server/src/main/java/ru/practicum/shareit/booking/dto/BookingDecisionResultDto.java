@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+/**
+ * Итог решения по одному заказу из пакета: новый статус либо причина, по которой заказ не изменён.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingDecisionResultDto {
+    private Long bookingId;
+    private BookingStatus status;
+    private String error;
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка импорта заказов. Без статуса заказ импортируется как WAITING.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingImportDto {
+    private Long itemId;
+    private Long bookerId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private BookingStatus status;
+}
@@ -2,7 +2,11 @@ package ru.practicum.shareit.booking.dto;
 
 import lombok.NonNull;
 import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.dto.UserDto;
 
 @Component
 public class BookingMapper {
@@ -15,6 +19,28 @@ public class BookingMapper {
         );
     }
 
+    public BookingOutputDto toBookingOutputDto(@NonNull Booking booking, @NonNull BookingCreationContext context) {
+        return new BookingOutputDto(
+                booking.getId(),
+                new UserDto(
+                        context.getBookerId(),
+                        context.getBookerName(),
+                        context.getBookerEmail()
+                ),
+                new ItemDto(
+                        context.getItemId(),
+                        context.getItemName(),
+                        context.getItemDescription(),
+                        context.getItemRentals(),
+                        context.getItemAvailable(),
+                        context.getItemRequestId()
+                ),
+                booking.getStart(),
+                booking.getEnd(),
+                booking.getStatus()
+        );
+    }
+
     public Booking toBooking(@NonNull BookingInputDto bookingInputDto) {
         return new Booking(
                 bookingInputDto.getStart(),
@@ -22,6 +48,19 @@ public class BookingMapper {
         );
     }
 
+    public Booking toBooking(@NonNull ArchivedBooking archivedBooking) {
+        return new Booking(
+                archivedBooking.getId(),
+                archivedBooking.getBooker(),
+                archivedBooking.getItem(),
+                archivedBooking.getStart(),
+                archivedBooking.getEnd(),
+                archivedBooking.getStatus(),
+                BookingPhase.PAST,
+                0
+        );
+    }
+
     public BookingWithBookerIdDto toBookingWithBookerIdDto(@NonNull Booking booking) {
         return new BookingWithBookerIdDto(
                 booking.getId(),
@@ -0,0 +1,54 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Data;
+import ru.practicum.shareit.booking.model.BookingState;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Количество заказов по каждому BookingState, собирается одним агрегирующим запросом.
+ */
+@Data
+public class BookingStateCounts {
+    private final long all;
+    private final long past;
+    private final long future;
+    private final long waiting;
+    private final long rejected;
+    private final long current;
+
+    /**
+     * SUM по пустой выборке возвращает null, поэтому счётчики приходят объектами.
+     */
+    public BookingStateCounts(Long all, Long past, Long future, Long waiting, Long rejected, Long current) {
+        this.all = valueOf(all);
+        this.past = valueOf(past);
+        this.future = valueOf(future);
+        this.waiting = valueOf(waiting);
+        this.rejected = valueOf(rejected);
+        this.current = valueOf(current);
+    }
+
+    /**
+     * Заказы из архива уже закончились, поэтому добавляются к ALL и PAST.
+     */
+    public BookingStateCounts withArchived(long archived) {
+        return new BookingStateCounts(all + archived, past + archived, future, waiting, rejected, current);
+    }
+
+    public Map<BookingState, Long> toMap() {
+        Map<BookingState, Long> counts = new EnumMap<>(BookingState.class);
+        counts.put(BookingState.ALL, all);
+        counts.put(BookingState.PAST, past);
+        counts.put(BookingState.FUTURE, future);
+        counts.put(BookingState.WAITING, waiting);
+        counts.put(BookingState.REJECTED, rejected);
+        counts.put(BookingState.CURRENT, current);
+        return counts;
+    }
+
+    private static long valueOf(Long count) {
+        return count == null ? 0 : count;
+    }
+}
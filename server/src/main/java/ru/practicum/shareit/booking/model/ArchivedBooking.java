@@ -0,0 +1,42 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Заказ, закончившийся раньше горизонта архивации. Переносится из bookings с тем же id и только читается.
+ */
+@Entity
+@Table(name = "bookings_archive")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedBooking {
+    @Id
+    private Long id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    private User booker;
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Item item;
+    @Column(name = "start_time", nullable = false)
+    private LocalDateTime start;
+    @Column(name = "end_time", nullable = false)
+    private LocalDateTime end;
+    @Enumerated(EnumType.STRING)
+    private BookingStatus status;
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -14,7 +14,11 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.time.LocalDateTime;
 
 /**
@@ -26,7 +30,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Booking {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
     @ManyToOne(fetch = FetchType.LAZY)
     private User booker;
@@ -38,6 +43,12 @@ public class Booking {
     private LocalDateTime end;
     @Enumerated(EnumType.STRING)
     private BookingStatus status;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "phase", nullable = false)
+    private BookingPhase phase;
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 
     public Booking(LocalDateTime start, LocalDateTime end) {
         this.start = start;
@@ -46,4 +57,13 @@ public class Booking {
 
     public Booking() {
     }
+
+    /**
+     * При каждой записи через JPA фаза пересчитывается по датам, между записями её двигает планировщик.
+     */
+    @PrePersist
+    @PreUpdate
+    void updatePhase() {
+        phase = BookingPhase.at(start, end, LocalDateTime.now());
+    }
 }
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Положение заказа во времени. Хранится в таблице, чтобы фильтры CURRENT, PAST и FUTURE
+ * сужали диапазон индекса, и переключается BookingPhaseScheduler; точный отбор делается по времени.
+ */
+public enum BookingPhase {
+    FUTURE,
+    CURRENT,
+    PAST;
+
+    public static BookingPhase at(LocalDateTime start, LocalDateTime end, LocalDateTime time) {
+        if (time.isBefore(start)) {
+            return FUTURE;
+        }
+
+        return time.isBefore(end) ? CURRENT : PAST;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.storage.BookingArchiveRepository;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.item.service.ItemBookingTracker;
+import ru.practicum.shareit.item.service.ItemCalendarCache;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Переносит заказы, закончившиеся раньше горизонта архивации, из bookings в bookings_archive.
+ * Каждая пачка копируется и удаляется в своей транзакции, поэтому заказ всегда виден ровно в одной таблице.
+ * После коммита перенесённые заказы убираются из кэшей, построенных по bookings: календарей предметов,
+ * индекса пересечений и ближайшего бронирования в строке предмета. Последнее бронирование предмета
+ * остаётся ссылкой на заказ в архиве, он по-прежнему читается по id.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.booking-archive.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingArchiver {
+    private final BookingRepository bookingRepository;
+    private final BookingArchiveRepository archiveRepository;
+    private final ItemCalendarCache calendarCache;
+    private final BookingOverlapIndex overlapIndex;
+    private final ItemBookingTracker bookingTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration horizon;
+    private final int batchSize;
+
+    public BookingArchiver(BookingRepository bookingRepository,
+                           BookingArchiveRepository archiveRepository,
+                           ItemCalendarCache calendarCache,
+                           BookingOverlapIndex overlapIndex,
+                           ItemBookingTracker bookingTracker,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${shareit.booking-archive.horizon:P365D}") Duration horizon,
+                           @Value("${shareit.booking-archive.batch-size:1000}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.archiveRepository = archiveRepository;
+        this.calendarCache = calendarCache;
+        this.overlapIndex = overlapIndex;
+        this.bookingTracker = bookingTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizon = horizon;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking-archive.interval:PT1H}")
+    public void archive() {
+        try {
+            archive(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Ошибка при архивации заказов", e);
+        }
+    }
+
+    /**
+     * Возвращает число перенесённых заказов.
+     */
+    int archive(LocalDateTime now) {
+        LocalDateTime cutoff = now.minus(horizon);
+        int archived = 0;
+        int moved;
+
+        do {
+            moved = transactionTemplate.execute(status -> moveBatch(cutoff, now));
+            archived += moved;
+        } while (moved == batchSize);
+
+        if (archived > 0) {
+            log.info("В архив перенесено {} заказов, закончившихся до {}", archived, cutoff);
+        }
+
+        return archived;
+    }
+
+    private int moveBatch(LocalDateTime cutoff, LocalDateTime now) {
+        List<Booking> bookings = bookingRepository.findAllEndedBefore(
+                cutoff, PageRequest.of(0, batchSize, Sort.by("id")));
+
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        Set<Long> itemIds = new HashSet<>();
+
+        for (Booking booking : bookings) {
+            Long itemId = booking.getItem().getId();
+            ids.add(booking.getId());
+            itemIds.add(itemId);
+            overlapIndex.release(itemId, booking.getId());
+        }
+
+        archiveRepository.copyFromBookings(ids, now);
+        int moved = bookingRepository.deleteAllByIdIn(ids);
+        itemIds.forEach(calendarCache::invalidate);
+        bookingTracker.onArchived(ids);
+        return moved;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.shareit.booking.dto.BookingOutputDto;
+
+/**
+ * Публикуется при создании заказа и при его подтверждении или отклонении владельцем предмета.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BookingChangedEvent {
+    private final Long ownerId;
+    private final BookingOutputDto booking;
+}
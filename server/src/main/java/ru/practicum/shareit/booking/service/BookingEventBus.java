@@ -0,0 +1,195 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассылает владельцам предметов изменения их заказов по SSE. События берутся после коммита транзакции.
+ * У каждого подписчика своя очередь на bufferSize событий, отправляет их общий пул потоков,
+ * поэтому медленный клиент не задерживает ни запрос, изменивший заказ, ни других подписчиков.
+ * Подписчик с переполненной очередью отключается: клиент переподключается и перечитывает
+ * GET /bookings/owner?state=WAITING. У владельца не больше maxPerOwner подписок: новая вытесняет самую старую,
+ * которая чаще всего оказывается оборванным соединением, ещё не замеченным heartbeat.
+ * Очередь занимает память по мере заполнения, а не сразу на bufferSize событий.
+ */
+@Slf4j
+@Component
+public class BookingEventBus {
+    static final String EVENT_NAME = "booking";
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService executor;
+    private final int bufferSize;
+    private final int maxPerOwner;
+    private final Duration timeout;
+
+    @Autowired
+    public BookingEventBus(@Value("${shareit.booking-stream.threads:4}") int threads,
+                           @Value("${shareit.booking-stream.buffer-size:100}") int bufferSize,
+                           @Value("${shareit.booking-stream.max-per-owner:5}") int maxPerOwner,
+                           @Value("${shareit.booking-stream.timeout:PT30M}") Duration timeout) {
+        this(Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("booking-stream-")),
+                bufferSize, maxPerOwner, timeout);
+    }
+
+    public BookingEventBus(ExecutorService executor, int bufferSize, int maxPerOwner, Duration timeout) {
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.maxPerOwner = maxPerOwner;
+        this.timeout = timeout;
+    }
+
+    public SseEmitter subscribe(Long ownerId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(ownerId, emitter);
+        List<Subscriber> evicted = new ArrayList<>();
+        subscribers.compute(ownerId, (id, owners) -> {
+            Set<Subscriber> updated = owners == null ? ConcurrentHashMap.<Subscriber>newKeySet() : owners;
+
+            while (updated.size() >= maxPerOwner) {
+                Subscriber oldest = Collections.min(updated, Comparator.comparingLong(owner -> owner.number));
+                updated.remove(oldest);
+                evicted.add(oldest);
+            }
+
+            updated.add(subscriber);
+            return updated;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        for (Subscriber oldest : evicted) {
+            log.info("Владелец {} превысил число подписок {}, самая старая закрыта", ownerId, maxPerOwner);
+            oldest.close();
+        }
+
+        log.info("Владелец {} подписался на изменения заказов", ownerId);
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onBookingChanged(BookingChangedEvent event) {
+        Set<Subscriber> owners = subscribers.get(event.getOwnerId());
+
+        if (owners == null) {
+            return;
+        }
+
+        for (Subscriber subscriber : owners) {
+            subscriber.offer(SseEmitter.event().name(EVENT_NAME).data(event.getBooking()));
+        }
+    }
+
+    /**
+     * Не даёт прокси закрыть молчащее соединение и отключает клиентов, которые перестали читать поток.
+     */
+    @Scheduled(fixedDelayString = "${shareit.booking-stream.heartbeat:PT15S}")
+    public void heartbeat() {
+        for (Set<Subscriber> owners : subscribers.values()) {
+            for (Subscriber subscriber : owners) {
+                subscriber.offer(SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+
+    int countSubscribers(Long ownerId) {
+        return subscribers.getOrDefault(ownerId, Set.of()).size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.ownerId, (id, owners) -> {
+            owners.remove(subscriber);
+            return owners.isEmpty() ? null : owners;
+        });
+    }
+
+    private final class Subscriber {
+        private final Long ownerId;
+        private final SseEmitter emitter;
+        private final long number = sequence.incrementAndGet();
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new LinkedBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(Long ownerId, SseEmitter emitter) {
+            this.ownerId = ownerId;
+            this.emitter = emitter;
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+
+            if (!queue.offer(event)) {
+                log.warn("Владелец {} не успевает читать изменения заказов, подписка закрыта", ownerId);
+                close();
+                return;
+            }
+
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+
+                while (!closed && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.info("Владелец {} отключился от потока заказов", ownerId);
+                close();
+            } finally {
+                draining.set(false);
+            }
+
+            // событие могло прийти после последнего poll, но до сброса draining
+            if (!closed && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            unsubscribe(this);
+            queue.clear();
+            emitter.complete();
+        }
+    }
+}
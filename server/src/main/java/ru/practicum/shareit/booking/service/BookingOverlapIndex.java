@@ -0,0 +1,434 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.exception.ConflictException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Занятые интервалы [start, end) по каждому предмету: заказы в статусах WAITING и APPROVED.
+ * Дерево предмета загружается из базы при первом обращении и дальше обновляется только через этот класс.
+ * В памяти держится не больше maxItems деревьев: деревья без незакоммиченных заказов, к которым не обращались
+ * дольше idleTimeout или самые давние при переполнении, выбрасываются и при следующем обращении загружаются заново.
+ * <p>
+ * Проверка действует только внутри одного экземпляра сервера: в PostgreSQL bookings разбита на секции,
+ * а ограничение EXCLUDE на секционированной таблице по интервалам не поддерживается. Несколько экземпляров
+ * можно запускать только с маршрутизацией заказов одного предмета на один экземпляр.
+ */
+@Slf4j
+@Component
+public class BookingOverlapIndex {
+    private static final int STRIPES = 64;
+    static final List<BookingStatus> ACTIVE_STATUSES = List.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+
+    private final BookingRepository bookingRepository;
+    private final int maxItems;
+    private final long idleTimeoutNanos;
+    private final Map<Long, IntervalTree> trees = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = createLocks();
+
+    public BookingOverlapIndex(BookingRepository bookingRepository,
+                               @Value("${shareit.booking-overlap.max-items:10000}") int maxItems,
+                               @Value("${shareit.booking-overlap.idle-timeout:PT30M}") Duration idleTimeout) {
+        this.bookingRepository = bookingRepository;
+        this.maxItems = maxItems;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * Занимает интервал под сохранённый, но ещё не закоммиченный заказ.
+     * При откате транзакции интервал освобождается.
+     */
+    public void reserve(Long itemId, Long bookingId, LocalDateTime start, LocalDateTime end) {
+        ReentrantLock lock = lockFor(itemId);
+        lock.lock();
+
+        try {
+            IntervalTree tree = treeFor(itemId);
+            tree.remove(bookingId);
+            tree.removeEndedBefore(LocalDateTime.now());
+
+            if (tree.overlaps(start, end)) {
+                log.error("Интервал {} - {} предмета с id = {} уже занят", start, end, itemId);
+                throw new ConflictException("Предмет уже забронирован на это время");
+            }
+
+            tree.insert(bookingId, start, end);
+
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                // пока заказ не закоммичен, его нет в базе: такое дерево нельзя выбросить и загрузить заново
+                tree.pending++;
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        completeReservation(itemId, tree, bookingId, status == STATUS_COMMITTED);
+                    }
+                });
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Освобождает интервал отклонённого или перенесённого в архив заказа после коммита.
+     */
+    public void release(Long itemId, Long bookingId) {
+        afterTransaction(() -> remove(itemId, bookingId), true);
+    }
+
+    /**
+     * Выбрасывает деревья без незакоммиченных заказов, к которым давно не обращались,
+     * а если деревьев больше maxItems, то и самые давние из остальных.
+     * Занятые другим потоком предметы пропускаются до следующего раза.
+     */
+    @Scheduled(fixedDelayString = "${shareit.booking-overlap.idle-timeout:PT30M}")
+    public void evictIdle() {
+        evict(0);
+    }
+
+    int countItems() {
+        return trees.size();
+    }
+
+    /**
+     * room — сколько деревьев собираются добавить сверх текущих.
+     */
+    private void evict(int room) {
+        long now = System.nanoTime();
+        Map<Long, Long> accessed = new HashMap<>();
+        trees.forEach((itemId, tree) -> accessed.put(itemId, tree.lastAccess));
+        List<Long> itemIds = new ArrayList<>(accessed.keySet());
+        itemIds.sort(Comparator.comparing(accessed::get));
+        int overflow = accessed.size() + room - maxItems;
+
+        for (Long itemId : itemIds) {
+            if (overflow <= 0 && now - accessed.get(itemId) < idleTimeoutNanos) {
+                break;
+            }
+
+            ReentrantLock lock = lockFor(itemId);
+
+            if (!lock.tryLock()) {
+                continue;
+            }
+
+            try {
+                IntervalTree tree = trees.get(itemId);
+
+                if (tree != null && tree.pending == 0) {
+                    trees.remove(itemId);
+                    overflow--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void completeReservation(Long itemId, IntervalTree tree, Long bookingId, boolean committed) {
+        ReentrantLock lock = lockFor(itemId);
+        lock.lock();
+
+        try {
+            tree.pending--;
+
+            if (!committed) {
+                tree.remove(bookingId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Long itemId, Long bookingId) {
+        ReentrantLock lock = lockFor(itemId);
+        lock.lock();
+
+        try {
+            IntervalTree tree = trees.get(itemId);
+
+            if (tree != null) {
+                tree.remove(bookingId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void afterTransaction(Runnable action, boolean onCommit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (onCommit) {
+                action.run();
+            }
+
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if ((status == STATUS_COMMITTED) == onCommit) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private IntervalTree treeFor(Long itemId) {
+        IntervalTree tree = trees.get(itemId);
+
+        if (tree == null) {
+            if (trees.size() >= maxItems) {
+                evict(1);
+            }
+
+            tree = new IntervalTree();
+
+            for (Booking booking : bookingRepository.findAllByItemIdAndStatusInAndEndAfter(
+                    itemId, ACTIVE_STATUSES, LocalDateTime.now())) {
+                tree.insert(booking.getId(), booking.getStart(), booking.getEnd());
+            }
+
+            trees.put(itemId, tree);
+        }
+
+        tree.lastAccess = System.nanoTime();
+        return tree;
+    }
+
+    private ReentrantLock lockFor(Long itemId) {
+        return locks[Math.floorMod(itemId.hashCode(), STRIPES)];
+    }
+
+    private static ReentrantLock[] createLocks() {
+        ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        return locks;
+    }
+
+    /**
+     * AVL-дерево интервалов по (start, bookingId), в каждом узле хранится максимальный end поддерева.
+     * Не потокобезопасно, доступ только под блокировкой предмета.
+     */
+    static class IntervalTree {
+        private final Map<Long, Node> nodes = new HashMap<>();
+        private Node root;
+        private int sizeAfterPrune;
+        private int pending;
+        private long lastAccess = System.nanoTime();
+
+        int size() {
+            return nodes.size();
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            Node node = root;
+
+            while (node != null) {
+                if (node.start.isBefore(end) && node.end.isAfter(start)) {
+                    return true;
+                }
+
+                if (node.left != null && node.left.maxEnd.isAfter(start)) {
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+
+            return false;
+        }
+
+        void insert(Long bookingId, LocalDateTime start, LocalDateTime end) {
+            Node node = new Node(bookingId, start, end);
+            nodes.put(bookingId, node);
+            root = insert(root, node);
+        }
+
+        void remove(Long bookingId) {
+            Node node = nodes.remove(bookingId);
+
+            if (node != null) {
+                root = remove(root, node);
+            }
+        }
+
+        /**
+         * Выбрасывает закончившиеся интервалы, когда дерево выросло вдвое с прошлой чистки.
+         */
+        void removeEndedBefore(LocalDateTime time) {
+            if (nodes.size() < Math.max(16, sizeAfterPrune * 2)) {
+                return;
+            }
+
+            List<Long> ended = new ArrayList<>();
+
+            for (Node node : nodes.values()) {
+                if (!node.end.isAfter(time)) {
+                    ended.add(node.bookingId);
+                }
+            }
+
+            ended.forEach(this::remove);
+            sizeAfterPrune = nodes.size();
+        }
+
+        private Node insert(Node current, Node node) {
+            if (current == null) {
+                return node;
+            }
+
+            if (compare(node, current) < 0) {
+                current.left = insert(current.left, node);
+            } else {
+                current.right = insert(current.right, node);
+            }
+
+            return balance(current);
+        }
+
+        private Node remove(Node current, Node node) {
+            if (current == null) {
+                return null;
+            }
+
+            int compare = compare(node, current);
+
+            if (compare < 0) {
+                current.left = remove(current.left, node);
+            } else if (compare > 0) {
+                current.right = remove(current.right, node);
+            } else {
+                if (current.left == null) {
+                    return current.right;
+                }
+
+                if (current.right == null) {
+                    return current.left;
+                }
+
+                Node successor = current.right;
+
+                while (successor.left != null) {
+                    successor = successor.left;
+                }
+
+                successor.right = removeMin(current.right);
+                successor.left = current.left;
+                return balance(successor);
+            }
+
+            return balance(current);
+        }
+
+        private Node removeMin(Node current) {
+            if (current.left == null) {
+                return current.right;
+            }
+
+            current.left = removeMin(current.left);
+            return balance(current);
+        }
+
+        private Node balance(Node node) {
+            update(node);
+            int factor = height(node.left) - height(node.right);
+
+            if (factor > 1) {
+                if (height(node.left.left) < height(node.left.right)) {
+                    node.left = rotateLeft(node.left);
+                }
+
+                return rotateRight(node);
+            }
+
+            if (factor < -1) {
+                if (height(node.right.right) < height(node.right.left)) {
+                    node.right = rotateRight(node.right);
+                }
+
+                return rotateLeft(node);
+            }
+
+            return node;
+        }
+
+        private Node rotateRight(Node node) {
+            Node left = node.left;
+            node.left = left.right;
+            left.right = node;
+            update(node);
+            update(left);
+            return left;
+        }
+
+        private Node rotateLeft(Node node) {
+            Node right = node.right;
+            node.right = right.left;
+            right.left = node;
+            update(node);
+            update(right);
+            return right;
+        }
+
+        private void update(Node node) {
+            node.height = Math.max(height(node.left), height(node.right)) + 1;
+            node.maxEnd = node.end;
+
+            if (node.left != null && node.left.maxEnd.isAfter(node.maxEnd)) {
+                node.maxEnd = node.left.maxEnd;
+            }
+
+            if (node.right != null && node.right.maxEnd.isAfter(node.maxEnd)) {
+                node.maxEnd = node.right.maxEnd;
+            }
+        }
+
+        private static int compare(Node node, Node other) {
+            int compare = node.start.compareTo(other.start);
+            return compare != 0 ? compare : node.bookingId.compareTo(other.bookingId);
+        }
+
+        private static int height(Node node) {
+            return node == null ? 0 : node.height;
+        }
+    }
+
+    private static class Node {
+        private final Long bookingId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        Node(Long bookingId, LocalDateTime start, LocalDateTime end) {
+            this.bookingId = bookingId;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
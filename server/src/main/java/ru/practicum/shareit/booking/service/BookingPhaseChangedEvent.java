@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.shareit.booking.model.BookingPhase;
+
+import java.util.List;
+
+/**
+ * Публикуется после того, как заказы перешли в фазу CURRENT (начались) или PAST (закончились).
+ */
+@Getter
+@RequiredArgsConstructor
+public class BookingPhaseChangedEvent {
+    private final BookingPhase phase;
+    private final List<Long> bookingIds;
+}
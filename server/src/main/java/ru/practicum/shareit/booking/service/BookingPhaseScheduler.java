@@ -0,0 +1,116 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Переводит заказы в фазы CURRENT и PAST в момент начала и окончания.
+ * Раз в REFILL_INTERVAL ближайшие переходы подгружаются из базы в колесо таймеров,
+ * на каждом тике наступившие переходы применяются пакетным UPDATE и публикуются как BookingPhaseChangedEvent.
+ * Если UPDATE не прошёл, переходы остаются в базе в старой фазе и попадут в колесо при следующей подгрузке.
+ * За одну подгрузку берётся не больше CATCH_UP_LIMIT самых ранних переходов каждого вида: после простоя
+ * накопившиеся переходы догоняются порциями на каждом тике. Выборки по фазам от планировщика не зависят,
+ * колонка phase только сужает их, поэтому отставание влияет лишь на скорость запросов.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.booking-phase.scheduler.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingPhaseScheduler {
+    static final long TICK_MILLIS = 1000;
+    static final Duration HORIZON = Duration.ofSeconds(60);
+    static final Duration REFILL_INTERVAL = Duration.ofSeconds(30);
+    static final int CATCH_UP_LIMIT = 1000;
+    private static final int WHEEL_SIZE = 128;
+    private static final int BATCH_SIZE = 500;
+
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookingTimingWheel wheel;
+    private LocalDateTime nextRefill = LocalDateTime.MIN;
+
+    public BookingPhaseScheduler(BookingRepository bookingRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.wheel = new BookingTimingWheel(WHEEL_SIZE, TICK_MILLIS, toMillis(LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void tick() {
+        try {
+            tick(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Ошибка при смене фаз заказов", e);
+        }
+    }
+
+    synchronized void tick(LocalDateTime now) {
+        if (!now.isBefore(nextRefill)) {
+            // подгрузка упёрлась в лимит: остальные переходы догружаются на следующем тике
+            nextRefill = refill(now) ? now : now.plus(REFILL_INTERVAL);
+        }
+
+        Map<BookingPhase, List<Long>> due = wheel.advance(toMillis(now));
+        // CURRENT применяется первым: заказ, у которого в одном тике наступили и начало, и конец, дойдёт до PAST.
+        apply(due.getOrDefault(BookingPhase.CURRENT, Collections.emptyList()),
+                BookingPhase.FUTURE, BookingPhase.CURRENT);
+        apply(due.getOrDefault(BookingPhase.PAST, Collections.emptyList()),
+                BookingPhase.CURRENT, BookingPhase.PAST);
+    }
+
+    private boolean refill(LocalDateTime now) {
+        LocalDateTime horizon = now.plus(HORIZON);
+        Pageable limit = PageRequest.of(0, CATCH_UP_LIMIT);
+        List<Booking> starting = bookingRepository.findAllStartingBefore(horizon, limit);
+        List<Booking> ending = bookingRepository.findAllEndingBefore(horizon, limit);
+        int scheduled = 0;
+
+        for (Booking booking : starting) {
+            if (wheel.schedule(booking.getId(), BookingPhase.CURRENT, toMillis(booking.getStart()))) {
+                scheduled++;
+            }
+        }
+
+        for (Booking booking : ending) {
+            if (wheel.schedule(booking.getId(), BookingPhase.PAST, toMillis(booking.getEnd()))) {
+                scheduled++;
+            }
+        }
+
+        log.debug("В колесо таймеров добавлено {} переходов, всего ожидает {}", scheduled, wheel.size());
+        return starting.size() == CATCH_UP_LIMIT || ending.size() == CATCH_UP_LIMIT;
+    }
+
+    private void apply(List<Long> ids, BookingPhase from, BookingPhase to) {
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            Integer updated = transactionTemplate.execute(status -> bookingRepository.updatePhase(batch, from, to));
+            log.info("Заказы переведены в фазу {}: {} из {}", to, updated, batch.size());
+            eventPublisher.publishEvent(new BookingPhaseChangedEvent(to, List.copyOf(batch)));
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,19 +1,68 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookingImportDto;
 import ru.practicum.shareit.booking.dto.BookingInputDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
 import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface BookingService {
     BookingOutputDto create(BookingInputDto booking, Long userId);
 
     BookingOutputDto confirmBooking(Long userId, Long bookingId, Boolean approved);
 
+    List<BookingDecisionResultDto> confirmBookings(Long ownerId, List<BookingDecisionDto> decisions);
+
     BookingOutputDto getBookingById(Long userId, Long bookingId);
 
     List<BookingOutputDto> getBookingsByUser(Long userId, BookingState state, Integer from, Integer size);
 
     List<BookingOutputDto> getBookingsByOwner(Long userId, BookingState state, Integer from, Integer size);
+
+    BookingPageDto getBookingsByUserAfterCursor(Long userId, BookingState state, String cursor, Integer size);
+
+    BookingPageDto getBookingsByOwnerAfterCursor(Long userId, BookingState state, String cursor, Integer size);
+
+    Map<BookingState, Long> getBookingSummaryByUser(Long userId);
+
+    Map<BookingState, Long> getBookingSummaryByOwner(Long userId);
+
+    /**
+     * Все заказы на предметы владельца, пересекающие интервал [from, to), в любом статусе.
+     */
+    List<BookingOutputDto> getBookingsByOwnerInWindow(Long ownerId, LocalDateTime from, LocalDateTime to,
+                                                      Integer offset, Integer size);
+
+    /**
+     * Бросает NotFoundException, если пользователя нет. Выгрузка пишет ответ уже после его начала,
+     * поэтому пользователь проверяется отдельно, пока статус ответа ещё можно поменять.
+     */
+    void validateUser(Long userId);
+
+    /**
+     * Передаёт в consumer все заказы пользователя, включая архивные, не загружая их в память целиком.
+     */
+    void exportBookingsByUser(Long userId, Consumer<BookingOutputDto> consumer);
+
+    void exportBookingsByOwner(Long userId, Consumer<BookingOutputDto> consumer);
+
+    /**
+     * Поток SSE с новыми заказами на предметы владельца и сменой их статуса.
+     */
+    SseEmitter subscribeByOwner(Long ownerId);
+
+    /**
+     * Сохраняет корректные строки пачками, для остальных возвращает причину отказа.
+     * Результаты идут в порядке строк запроса.
+     */
+    List<ImportResultDto> importBookings(List<BookingImportDto> bookings);
 }
@@ -2,71 +2,126 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingCreationContext;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookingImportDto;
 import ru.practicum.shareit.booking.dto.BookingInputDto;
 import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingArchiveRepository;
 import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.booking.storage.BookingWindowFinder;
+import ru.practicum.shareit.booking.storage.OffsetPageRequest;
+import ru.practicum.shareit.bulk.BulkInserter;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingTracker;
+import ru.practicum.shareit.item.service.ItemCalendarCache;
 import ru.practicum.shareit.item.storage.ItemRepository;
 import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.OwnerStatsRecorder;
 import ru.practicum.shareit.user.storage.UserRepository;
 
+import javax.persistence.EntityManager;
 import javax.validation.ValidationException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BookingServiceImpl implements BookingService {
+    private static final Sort CURSOR_SORT = Sort.by(Sort.Order.desc("start"), Sort.Order.desc("id"));
+    private static final Comparator<Booking> NEWEST_FIRST =
+            Comparator.comparing(Booking::getStart).thenComparing(Booking::getId).reversed();
+    private static final int EXPORT_FETCH_SIZE = Integer.parseInt(BookingRepository.EXPORT_FETCH_SIZE);
+
     private final BookingMapper bookingMapper;
     private final ItemMapper itemMapper;
     private final UserMapper userMapper;
     private final BookingRepository bookingRepository;
+    private final BookingArchiveRepository archiveRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final BookingOverlapIndex overlapIndex;
+    private final ItemCalendarCache calendarCache;
+    private final ItemBookingTracker bookingTracker;
+    private final EntityManager entityManager;
+    private final BulkInserter bulkInserter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookingEventBus eventBus;
+    private final OwnerStatsRecorder ownerStatsRecorder;
+    private final BookingWindowFinder windowFinder;
 
     @Override
     @Transactional
     public BookingOutputDto create(BookingInputDto bookingInputDto, Long userId) {
-        User booker = userValidation(userId);
-        Booking booking = bookingMapper.toBooking(bookingInputDto);
-        booking.setBooker(booker);
-        Optional<Item> item = itemRepository.findById(bookingInputDto.getItemId());
+        Long itemId = bookingInputDto.getItemId();
+        Optional<BookingCreationContext> contextOptional = bookingRepository.findCreationContext(userId, itemId);
+
+        if (contextOptional.isEmpty()) {
+            log.error("Пользователь не найден id = {}", userId);
+            throw new NotFoundException("Не найден пользователь с id = " + userId);
+        }
 
-        if (item.isEmpty()) {
-            log.error(String.valueOf(bookingInputDto.getItemId()));
-            throw new NotFoundException("Не найден предмет с id = " + bookingInputDto.getItemId());
+        BookingCreationContext context = contextOptional.get();
+
+        if (context.getItemId() == null) {
+            log.error(String.valueOf(itemId));
+            throw new NotFoundException("Не найден предмет с id = " + itemId);
         }
 
-        if (!item.get().getAvailable()) {
-            log.error(String.valueOf(item.get()));
+        if (!context.getItemAvailable()) {
+            log.error(String.valueOf(context));
             throw new ValidationException("Этот предмет уже арендован");
         }
 
-        if (item.get().getOwner().getId().equals(userId)) {
-            log.error("Пользователь c id = {}, владелец предмета с id = {}", userId, item.get().getId());
+        if (context.getItemOwnerId().equals(userId)) {
+            log.error("Пользователь c id = {}, владелец предмета с id = {}", userId, itemId);
             throw new NotFoundException("Не найден пользователь с id = " + userId);
         }
 
-        booking.setItem(item.get());
+        // Заказчик и предмет уже проверены запросом выше, загружать их ради внешних ключей незачем.
+        // INSERT уходит при коммите: id заранее выдаёт последовательность.
+        Booking booking = bookingMapper.toBooking(bookingInputDto);
+        booking.setBooker(userRepository.getReferenceById(userId));
+        booking.setItem(itemRepository.getReferenceById(itemId));
         booking.setStatus(BookingStatus.WAITING);
-        BookingOutputDto bookingOutputDto = bookingMapper.toBookingOutputDto(bookingRepository.saveAndFlush(booking));
-        bookingOutputDto.setBooker(userMapper.toUserDto(booker));
-        bookingOutputDto.setItem(itemMapper.toItemDto(item.get()));
+        booking = bookingRepository.save(booking);
+        overlapIndex.reserve(itemId, booking.getId(), booking.getStart(), booking.getEnd());
+        ownerStatsRecorder.onCreated(context.getItemOwnerId());
+        BookingOutputDto bookingOutputDto = bookingMapper.toBookingOutputDto(booking, context);
+        eventPublisher.publishEvent(new BookingChangedEvent(context.getItemOwnerId(), bookingOutputDto));
         return bookingOutputDto;
     }
 
@@ -94,23 +149,135 @@ public class BookingServiceImpl implements BookingService {
             throw new ValidationException("Бронирование не ожидает подтверждения");
         }
 
+        // DTO собирается до UPDATE: запрос очищает контекст, и ленивые связи заказа станут недоступны
+        BookingOutputDto bookingOutputDto = bookingMapper.toBookingOutputDto(booking);
+        bookingOutputDto.setItem(itemMapper.toItemDto(booking.getItem()));
+        bookingOutputDto.setBooker(userMapper.toUserDto(booking.getBooker()));
+        BookingStatus status = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+
+        if (bookingRepository.updateWaitingStatus(List.of(bookingId), status) == 0) {
+            log.error("Заказ с id = {} уже подтверждён или отклонён другим запросом", bookingId);
+            throw new ConflictException("Заказ уже подтверждён или отклонён другим запросом");
+        }
+
+        booking.setStatus(status);
+        bookingOutputDto.setStatus(status);
+
         if (approved) {
-            booking.setStatus(BookingStatus.APPROVED);
+            ownerStatsRecorder.onDecided(ownerId, List.of(booking), List.of());
+            calendarCache.invalidate(booking.getItem().getId());
+            bookingTracker.onApproved(booking);
         } else {
-            booking.setStatus(BookingStatus.REJECTED);
+            ownerStatsRecorder.onDecided(ownerId, List.of(), List.of(booking));
+            overlapIndex.release(booking.getItem().getId(), booking.getId());
         }
 
-        BookingOutputDto bookingOutputDto = bookingMapper.toBookingOutputDto(bookingRepository.saveAndFlush(booking));
-        bookingOutputDto.setItem(itemMapper.toItemDto(booking.getItem()));
-        bookingOutputDto.setBooker(userMapper.toUserDto(booking.getBooker()));
+        eventPublisher.publishEvent(new BookingChangedEvent(ownerId, bookingOutputDto));
         return bookingOutputDto;
     }
 
+    @Override
+    @Transactional
+    public List<BookingDecisionResultDto> confirmBookings(Long ownerId, List<BookingDecisionDto> decisions) {
+        userValidation(ownerId);
+        Set<Long> ids = new HashSet<>();
+
+        for (BookingDecisionDto decision : decisions) {
+            if (decision.getBookingId() != null) {
+                ids.add(decision.getBookingId());
+            }
+        }
+
+        Map<Long, Booking> bookings = new HashMap<>();
+
+        if (!ids.isEmpty()) {
+            for (Booking booking : bookingRepository.findAllByIdInAndItemOwnerId(ids, ownerId)) {
+                bookings.put(booking.getId(), booking);
+            }
+        }
+
+        List<BookingDecisionResultDto> results = new ArrayList<>();
+        Map<Long, BookingDecisionResultDto> pending = new HashMap<>();
+        List<Booking> approved = new ArrayList<>();
+        List<Booking> rejected = new ArrayList<>();
+        Set<Long> decided = new HashSet<>();
+
+        for (BookingDecisionDto decision : decisions) {
+            Long bookingId = decision.getBookingId();
+            Booking booking = bookings.get(bookingId);
+
+            if (booking == null) {
+                results.add(new BookingDecisionResultDto(bookingId, null, "Заказ не найден"));
+            } else if (!decided.add(bookingId)) {
+                results.add(new BookingDecisionResultDto(bookingId, null, "Повторное решение по заказу"));
+            } else if (decision.getApproved() == null) {
+                results.add(new BookingDecisionResultDto(bookingId, null, "Не указано решение"));
+            } else if (booking.getStatus() != BookingStatus.WAITING) {
+                results.add(new BookingDecisionResultDto(
+                        bookingId, booking.getStatus(), "Бронирование не ожидает подтверждения"));
+            } else if (decision.getApproved()) {
+                approved.add(booking);
+                pending.put(bookingId, new BookingDecisionResultDto(bookingId, BookingStatus.APPROVED, null));
+                results.add(pending.get(bookingId));
+            } else {
+                rejected.add(booking);
+                pending.put(bookingId, new BookingDecisionResultDto(bookingId, BookingStatus.REJECTED, null));
+                results.add(pending.get(bookingId));
+            }
+        }
+
+        // заказы, которые параллельный запрос подтвердил или отклонил уже после чтения, не меняются
+        Set<Long> waiting = pending.isEmpty()
+                ? Set.of()
+                : new HashSet<>(bookingRepository.lockWaitingIds(pending.keySet()));
+
+        for (BookingDecisionResultDto result : pending.values()) {
+            if (!waiting.contains(result.getBookingId())) {
+                log.error("Заказ с id = {} уже подтверждён или отклонён другим запросом", result.getBookingId());
+                result.setStatus(null);
+                result.setError("Бронирование не ожидает подтверждения");
+            }
+        }
+
+        approved.removeIf(booking -> !waiting.contains(booking.getId()));
+        rejected.removeIf(booking -> !waiting.contains(booking.getId()));
+
+        // DTO для событий собираются до UPDATE: запрос очищает контекст
+        List<BookingOutputDto> changed = new ArrayList<>();
+        addChanged(changed, approved, BookingStatus.APPROVED);
+        addChanged(changed, rejected, BookingStatus.REJECTED);
+        updateWaitingStatus(approved, BookingStatus.APPROVED);
+        updateWaitingStatus(rejected, BookingStatus.REJECTED);
+
+        if (!approved.isEmpty() || !rejected.isEmpty()) {
+            ownerStatsRecorder.onDecided(ownerId, approved, rejected);
+        }
+
+        for (Booking booking : approved) {
+            calendarCache.invalidate(booking.getItem().getId());
+            bookingTracker.onApproved(booking);
+        }
+
+        for (Booking booking : rejected) {
+            overlapIndex.release(booking.getItem().getId(), booking.getId());
+        }
+
+        for (BookingOutputDto bookingOutputDto : changed) {
+            eventPublisher.publishEvent(new BookingChangedEvent(ownerId, bookingOutputDto));
+        }
+
+        return results;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public BookingOutputDto getBookingById(Long userId, Long bookingId) {
         Optional<Booking> booking = bookingRepository.findById(bookingId);
 
+        if (booking.isEmpty()) {
+            booking = archiveRepository.findById(bookingId).map(bookingMapper::toBooking);
+        }
+
         if (booking.isEmpty()) {
             log.error("Заказ с id = {} userId = {} не найден", bookingId, userId);
             throw new NotFoundException("Не найден заказ с id = " + bookingId);
@@ -138,19 +305,20 @@ public class BookingServiceImpl implements BookingService {
         userValidation(userId);
         List<Booking> bookings;
         Pageable pageable = PageRequest.of(from / size, size, Sort.by("start").descending());
+        LocalDateTime now = LocalDateTime.now();
 
         switch (state) {
             case PAST:
-                bookings = bookingRepository.findAllByBookerIdAndEndBefore(
-                        userId,
-                        LocalDateTime.now(),
+                bookings = mergeWithArchive(
+                        window -> bookingRepository.findPastByBookerId(userId, now, window),
+                        window -> archiveRepository.findAllByBookerId(userId, window),
                         pageable);
                 break;
             case FUTURE:
-                bookings = bookingRepository.findAllByBookerIdAndStartAfter(
-                        userId,
-                        LocalDateTime.now(),
-                        pageable);
+                bookings = bookingRepository.findFutureByBookerId(userId, now, pageable);
+                break;
+            case CURRENT:
+                bookings = bookingRepository.findCurrentByBookerId(userId, now, pageable);
                 break;
             case WAITING:
                 bookings = bookingRepository.findAllByBookerIdAndStatusIs(
@@ -164,14 +332,11 @@ public class BookingServiceImpl implements BookingService {
                         BookingStatus.REJECTED,
                         pageable);
                 break;
-            case CURRENT:
-                bookings = bookingRepository.findAllByBookerIdCurrentBooking(
-                        userId,
-                        LocalDateTime.now(),
-                        pageable);
-                break;
             default:
-                bookings = bookingRepository.findAllByBookerId(userId, pageable);
+                bookings = mergeWithArchive(
+                        window -> bookingRepository.findAllByBookerId(userId, window),
+                        window -> archiveRepository.findAllByBookerId(userId, window),
+                        pageable);
                 break;
         }
 
@@ -199,19 +364,20 @@ public class BookingServiceImpl implements BookingService {
 
         List<Booking> bookings;
         Pageable pageable = PageRequest.of(from / size, size, Sort.by("start").descending());
+        LocalDateTime now = LocalDateTime.now();
 
         switch (state) {
             case PAST:
-                bookings = bookingRepository.findAllByItemOwnerIdAndEndBefore(
-                        ownerId,
-                        LocalDateTime.now(),
+                bookings = mergeWithArchive(
+                        window -> bookingRepository.findPastByItemOwnerId(ownerId, now, window),
+                        window -> archiveRepository.findAllByItemOwnerId(ownerId, window),
                         pageable);
                 break;
             case FUTURE:
-                bookings = bookingRepository.findAllByItemOwnerIdAndStartAfter(
-                        ownerId,
-                        LocalDateTime.now(),
-                        pageable);
+                bookings = bookingRepository.findFutureByItemOwnerId(ownerId, now, pageable);
+                break;
+            case CURRENT:
+                bookings = bookingRepository.findCurrentByItemOwnerId(ownerId, now, pageable);
                 break;
             case WAITING:
                 bookings = bookingRepository.findAllByItemOwnerIdAndStatusIs(
@@ -225,14 +391,11 @@ public class BookingServiceImpl implements BookingService {
                         BookingStatus.REJECTED,
                         pageable);
                 break;
-            case CURRENT:
-                bookings = bookingRepository.findAllByItemOwnerIdCurrentBooking(
-                        ownerId,
-                        LocalDateTime.now(),
-                        pageable);
-                break;
             default:
-                bookings = bookingRepository.findAllByItemOwnerId(ownerId, pageable);
+                bookings = mergeWithArchive(
+                        window -> bookingRepository.findAllByItemOwnerId(ownerId, window),
+                        window -> archiveRepository.findAllByItemOwnerId(ownerId, window),
+                        pageable);
                 break;
         }
 
@@ -253,6 +416,488 @@ public class BookingServiceImpl implements BookingService {
         return bookingsOutputDto;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public BookingPageDto getBookingsByUserAfterCursor(Long userId, BookingState state, String cursor, Integer size) {
+        userValidation(userId);
+        BookingCursor after = BookingCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size + 1, CURSOR_SORT);
+        List<Booking> bookings = findBookingsByUserAfterCursor(userId, state, after, pageable);
+
+        if (state == BookingState.PAST || state == BookingState.ALL) {
+            bookings = merge(bookings, after == null
+                    ? archiveRepository.findAllByBookerId(userId, pageable)
+                    : archiveRepository.findAllByBookerIdAfterCursor(userId, after.getStart(), after.getId(), pageable),
+                    pageable.getPageSize());
+        }
+
+        if (bookings.isEmpty()) {
+            log.error("Заказы с userId = {}, state = {} и cursor = {} не найдены", userId, state, cursor);
+            throw new NotFoundException("Заказы не найдены");
+        }
+
+        return toBookingPage(bookings, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookingPageDto getBookingsByOwnerAfterCursor(Long ownerId, BookingState state, String cursor, Integer size) {
+        userValidation(ownerId);
+        BookingCursor after = BookingCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size + 1, CURSOR_SORT);
+        List<Booking> bookings = findBookingsByOwnerAfterCursor(ownerId, state, after, pageable);
+
+        if (state == BookingState.PAST || state == BookingState.ALL) {
+            bookings = merge(bookings, after == null
+                    ? archiveRepository.findAllByItemOwnerId(ownerId, pageable)
+                    : archiveRepository.findAllByItemOwnerIdAfterCursor(ownerId, after.getStart(), after.getId(), pageable),
+                    pageable.getPageSize());
+        }
+
+        if (bookings.isEmpty()) {
+            log.error("Заказы с userId = {}, state = {} и cursor = {} не найдены", ownerId, state, cursor);
+            throw new NotFoundException("Заказы не найдены");
+        }
+
+        return toBookingPage(bookings, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<BookingState, Long> getBookingSummaryByUser(Long userId) {
+        userValidation(userId);
+        return bookingRepository.countStatesByBookerId(userId, LocalDateTime.now())
+                .withArchived(archiveRepository.countByBookerId(userId))
+                .toMap();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<BookingState, Long> getBookingSummaryByOwner(Long userId) {
+        userValidation(userId);
+        return bookingRepository.countStatesByItemOwnerId(userId, LocalDateTime.now())
+                .withArchived(archiveRepository.countByItemOwnerId(userId))
+                .toMap();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookingOutputDto> getBookingsByOwnerInWindow(Long ownerId, LocalDateTime from, LocalDateTime to,
+                                                             Integer offset, Integer size) {
+        if (!from.isBefore(to)) {
+            log.error("Окно from = {} не раньше to = {}", from, to);
+            throw new ValidationException("Начало окна должно быть раньше конца");
+        }
+
+        userValidation(ownerId);
+        List<BookingOutputDto> bookingsOutputDto = new ArrayList<>();
+        Pageable pageable = new OffsetPageRequest(offset, size, Sort.unsorted());
+
+        for (Booking booking : windowFinder.findAllByItemOwnerId(ownerId, from, to, pageable)) {
+            BookingOutputDto bookingOutputDto = bookingMapper.toBookingOutputDto(booking);
+            bookingOutputDto.setBooker(userMapper.toUserDto(booking.getBooker()));
+            bookingOutputDto.setItem(itemMapper.toItemDto(booking.getItem()));
+            bookingsOutputDto.add(bookingOutputDto);
+        }
+
+        return bookingsOutputDto;
+    }
+
+    /**
+     * Запрашивается на один заказ больше размера страницы: если он нашёлся, есть и следующая страница.
+     */
+    private BookingPageDto toBookingPage(List<Booking> bookings, Integer size) {
+        List<BookingOutputDto> bookingsOutputDto = new ArrayList<>();
+
+        for (Booking booking : bookings.subList(0, Math.min(size, bookings.size()))) {
+            BookingOutputDto bookingOutputDto = bookingMapper.toBookingOutputDto(booking);
+            bookingOutputDto.setBooker(userMapper.toUserDto(booking.getBooker()));
+            bookingOutputDto.setItem(itemMapper.toItemDto(booking.getItem()));
+            bookingsOutputDto.add(bookingOutputDto);
+        }
+
+        String nextCursor = null;
+
+        if (bookings.size() > size) {
+            nextCursor = BookingCursor.of(bookingsOutputDto.get(size - 1)).encode();
+        }
+
+        return new BookingPageDto(bookingsOutputDto, nextCursor);
+    }
+
+    private List<Booking> findBookingsByUserAfterCursor(
+            Long userId, BookingState state, BookingCursor after, Pageable pageable) {
+        LocalDateTime now = LocalDateTime.now();
+
+        switch (state) {
+            case PAST:
+                return after == null
+                        ? bookingRepository.findPastByBookerId(userId, now, pageable)
+                        : bookingRepository.findPastByBookerIdAfterCursor(
+                                userId, now, after.getStart(), after.getId(), pageable);
+            case FUTURE:
+                return after == null
+                        ? bookingRepository.findFutureByBookerId(userId, now, pageable)
+                        : bookingRepository.findFutureByBookerIdAfterCursor(
+                                userId, now, after.getStart(), after.getId(), pageable);
+            case CURRENT:
+                return after == null
+                        ? bookingRepository.findCurrentByBookerId(userId, now, pageable)
+                        : bookingRepository.findCurrentByBookerIdAfterCursor(
+                                userId, now, after.getStart(), after.getId(), pageable);
+            case WAITING:
+            case REJECTED:
+                BookingStatus status = BookingStatus.valueOf(state.name());
+                return after == null
+                        ? bookingRepository.findAllByBookerIdAndStatusIs(userId, status, pageable)
+                        : bookingRepository.findAllByBookerIdAndStatusIsAfterCursor(
+                                userId, status, after.getStart(), after.getId(), pageable);
+            default:
+                return after == null
+                        ? bookingRepository.findAllByBookerId(userId, pageable)
+                        : bookingRepository.findAllByBookerIdAfterCursor(
+                                userId, after.getStart(), after.getId(), pageable);
+        }
+    }
+
+    private List<Booking> findBookingsByOwnerAfterCursor(
+            Long ownerId, BookingState state, BookingCursor after, Pageable pageable) {
+        LocalDateTime now = LocalDateTime.now();
+
+        switch (state) {
+            case PAST:
+                return after == null
+                        ? bookingRepository.findPastByItemOwnerId(ownerId, now, pageable)
+                        : bookingRepository.findPastByItemOwnerIdAfterCursor(
+                                ownerId, now, after.getStart(), after.getId(), pageable);
+            case FUTURE:
+                return after == null
+                        ? bookingRepository.findFutureByItemOwnerId(ownerId, now, pageable)
+                        : bookingRepository.findFutureByItemOwnerIdAfterCursor(
+                                ownerId, now, after.getStart(), after.getId(), pageable);
+            case CURRENT:
+                return after == null
+                        ? bookingRepository.findCurrentByItemOwnerId(ownerId, now, pageable)
+                        : bookingRepository.findCurrentByItemOwnerIdAfterCursor(
+                                ownerId, now, after.getStart(), after.getId(), pageable);
+            case WAITING:
+            case REJECTED:
+                BookingStatus status = BookingStatus.valueOf(state.name());
+                return after == null
+                        ? bookingRepository.findAllByItemOwnerIdAndStatusIs(ownerId, status, pageable)
+                        : bookingRepository.findAllByItemOwnerIdAndStatusIsAfterCursor(
+                                ownerId, status, after.getStart(), after.getId(), pageable);
+            default:
+                return after == null
+                        ? bookingRepository.findAllByItemOwnerId(ownerId, pageable)
+                        : bookingRepository.findAllByItemOwnerIdAfterCursor(
+                                ownerId, after.getStart(), after.getId(), pageable);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void validateUser(Long userId) {
+        userValidation(userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBookingsByUser(Long userId, Consumer<BookingOutputDto> consumer) {
+        userValidation(userId);
+
+        try (Stream<Booking> bookings = bookingRepository.streamAllByBookerId(userId)) {
+            export(bookings, consumer);
+        }
+
+        try (Stream<ArchivedBooking> bookings = archiveRepository.streamAllByBookerId(userId)) {
+            export(bookings.map(bookingMapper::toBooking), consumer);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBookingsByOwner(Long userId, Consumer<BookingOutputDto> consumer) {
+        userValidation(userId);
+
+        try (Stream<Booking> bookings = bookingRepository.streamAllByItemOwnerId(userId)) {
+            export(bookings, consumer);
+        }
+
+        try (Stream<ArchivedBooking> bookings = archiveRepository.streamAllByItemOwnerId(userId)) {
+            export(bookings.map(bookingMapper::toBooking), consumer);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SseEmitter subscribeByOwner(Long ownerId) {
+        userValidation(ownerId);
+        return eventBus.subscribe(ownerId);
+    }
+
+    @Override
+    @Transactional
+    public List<ImportResultDto> importBookings(List<BookingImportDto> bookings) {
+        Set<Long> bookerIds = new HashSet<>();
+        Set<Long> itemIds = new HashSet<>();
+
+        for (BookingImportDto booking : bookings) {
+            if (booking.getBookerId() != null) {
+                bookerIds.add(booking.getBookerId());
+            }
+
+            if (booking.getItemId() != null) {
+                itemIds.add(booking.getItemId());
+            }
+        }
+
+        Set<Long> bookers = bookerIds.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingIds(bookerIds));
+        Map<Long, Item> items = new HashMap<>();
+
+        for (Item item : itemRepository.findAllById(itemIds)) {
+            items.put(item.getId(), item);
+        }
+
+        Map<Long, BookingOverlapIndex.IntervalTree> occupied = findOccupiedIntervals(bookings, items.keySet());
+        List<ImportResultDto> results = new ArrayList<>();
+        List<Booking> imported = new ArrayList<>();
+        List<ImportResultDto> importedResults = new ArrayList<>();
+
+        for (int row = 0; row < bookings.size(); row++) {
+            BookingImportDto bookingImportDto = bookings.get(row);
+            BookingStatus status = bookingImportDto.getStatus() == null
+                    ? BookingStatus.WAITING
+                    : bookingImportDto.getStatus();
+            String error = validateImport(bookingImportDto, bookers, items);
+
+            if (error == null && BookingOverlapIndex.ACTIVE_STATUSES.contains(status)) {
+                BookingOverlapIndex.IntervalTree tree = occupied.computeIfAbsent(
+                        bookingImportDto.getItemId(), itemId -> new BookingOverlapIndex.IntervalTree());
+
+                if (tree.overlaps(bookingImportDto.getStart(), bookingImportDto.getEnd())) {
+                    error = "Предмет уже забронирован на это время";
+                } else {
+                    // у строк импорта ещё нет id, в дереве их отличают отрицательные ключи
+                    tree.insert(-(row + 1L), bookingImportDto.getStart(), bookingImportDto.getEnd());
+                }
+            }
+
+            ImportResultDto result = new ImportResultDto(row, null, error);
+            results.add(result);
+
+            if (error == null) {
+                Booking booking = new Booking(bookingImportDto.getStart(), bookingImportDto.getEnd());
+                booking.setBooker(userRepository.getReferenceById(bookingImportDto.getBookerId()));
+                booking.setItem(items.get(bookingImportDto.getItemId()));
+                booking.setStatus(status);
+                imported.add(booking);
+                importedResults.add(result);
+            }
+        }
+
+        bulkInserter.persistAll(imported);
+
+        for (int i = 0; i < imported.size(); i++) {
+            importedResults.get(i).setId(imported.get(i).getId());
+        }
+
+        onImported(imported);
+        log.info("Импортировано заказов: {} из {}", imported.size(), bookings.size());
+        return results;
+    }
+
+    /**
+     * Курсор читает заказы по мере отдачи, а контекст персистентности очищается после каждой порции,
+     * чтобы загруженные сущности не копились в памяти до конца выгрузки.
+     */
+    private void export(Stream<Booking> bookings, Consumer<BookingOutputDto> consumer) {
+        Iterator<Booking> iterator = bookings.iterator();
+        int exported = 0;
+
+        while (iterator.hasNext()) {
+            Booking booking = iterator.next();
+            BookingOutputDto bookingOutputDto = bookingMapper.toBookingOutputDto(booking);
+            bookingOutputDto.setBooker(userMapper.toUserDto(booking.getBooker()));
+            bookingOutputDto.setItem(itemMapper.toItemDto(booking.getItem()));
+            consumer.accept(bookingOutputDto);
+
+            if (++exported % EXPORT_FETCH_SIZE == 0) {
+                entityManager.clear();
+            }
+        }
+    }
+
+    /**
+     * Страница заказов из bookings и архива в порядке start DESC, id DESC. Долгий заказ из bookings может начаться
+     * раньше заказа, уже ушедшего в архив, поэтому обе выборки берутся с начала до конца страницы и сливаются.
+     */
+    private List<Booking> mergeWithArchive(Function<Pageable, List<Booking>> hot,
+                                           Function<Pageable, List<ArchivedBooking>> archive,
+                                           Pageable pageable) {
+        Pageable window = new OffsetPageRequest(
+                0, Math.toIntExact(pageable.getOffset() + pageable.getPageSize()), CURSOR_SORT);
+        List<Booking> merged = merge(hot.apply(window), archive.apply(window), window.getPageSize());
+        return merged.subList((int) Math.min(pageable.getOffset(), merged.size()), merged.size());
+    }
+
+    private List<Booking> merge(List<Booking> bookings, List<ArchivedBooking> archivedBookings, int limit) {
+        List<Booking> merged = new ArrayList<>(bookings);
+
+        for (ArchivedBooking archivedBooking : archivedBookings) {
+            merged.add(bookingMapper.toBooking(archivedBooking));
+        }
+
+        merged.sort(NEWEST_FIRST);
+        return merged.subList(0, Math.min(limit, merged.size()));
+    }
+
+    private void addChanged(List<BookingOutputDto> changed, List<Booking> bookings, BookingStatus status) {
+        for (Booking booking : bookings) {
+            BookingOutputDto bookingOutputDto = bookingMapper.toBookingOutputDto(booking);
+            bookingOutputDto.setItem(itemMapper.toItemDto(booking.getItem()));
+            bookingOutputDto.setBooker(userMapper.toUserDto(booking.getBooker()));
+            bookingOutputDto.setStatus(status);
+            changed.add(bookingOutputDto);
+        }
+    }
+
+    /**
+     * Заказы уже заблокированы lockWaitingIds в статусе WAITING, поэтому UPDATE меняет их все.
+     * Несовпадение числа строк значит, что блокировка не сработала, и пакет откатывается.
+     */
+    private void updateWaitingStatus(List<Booking> bookings, BookingStatus status) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>();
+
+        for (Booking booking : bookings) {
+            ids.add(booking.getId());
+        }
+
+        if (bookingRepository.updateWaitingStatus(ids, status) != ids.size()) {
+            log.error("Заказы {} уже не ожидают подтверждения", ids);
+            throw new ConflictException("Заказы изменены другим запросом");
+        }
+    }
+
+    private String validateImport(BookingImportDto booking, Set<Long> bookers, Map<Long, Item> items) {
+        if (booking.getItemId() == null || booking.getBookerId() == null
+                || booking.getStart() == null || booking.getEnd() == null) {
+            return "Не заполнены обязательные поля";
+        }
+
+        if (!booking.getStart().isBefore(booking.getEnd())) {
+            return "Start позже или равен end";
+        }
+
+        if (!bookers.contains(booking.getBookerId())) {
+            return "Не найден пользователь с id = " + booking.getBookerId();
+        }
+
+        Item item = items.get(booking.getItemId());
+
+        if (item == null) {
+            return "Не найден предмет с id = " + booking.getItemId();
+        }
+
+        if (!Boolean.TRUE.equals(item.getAvailable())) {
+            return "Этот предмет уже арендован";
+        }
+
+        if (item.getOwner().getId().equals(booking.getBookerId())) {
+            return "Владелец не может бронировать свой предмет";
+        }
+
+        return null;
+    }
+
+    /**
+     * Занятые интервалы всех предметов импорта в пределах дат импортируемых заказов: импорт может
+     * загружать историю, поэтому кроме bookings проверяется и архив.
+     */
+    private Map<Long, BookingOverlapIndex.IntervalTree> findOccupiedIntervals(List<BookingImportDto> bookings,
+                                                                              Set<Long> itemIds) {
+        Map<Long, BookingOverlapIndex.IntervalTree> trees = new HashMap<>();
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+
+        for (BookingImportDto booking : bookings) {
+            if (booking.getStart() == null || booking.getEnd() == null) {
+                continue;
+            }
+
+            if (from == null || booking.getStart().isBefore(from)) {
+                from = booking.getStart();
+            }
+
+            if (to == null || booking.getEnd().isAfter(to)) {
+                to = booking.getEnd();
+            }
+        }
+
+        if (itemIds.isEmpty() || from == null) {
+            return trees;
+        }
+
+        for (Booking booking : bookingRepository.findAllByItemIdInAndStatusInAndOverlapping(
+                itemIds, BookingOverlapIndex.ACTIVE_STATUSES, from, to)) {
+            trees.computeIfAbsent(booking.getItem().getId(), itemId -> new BookingOverlapIndex.IntervalTree())
+                    .insert(booking.getId(), booking.getStart(), booking.getEnd());
+        }
+
+        for (ArchivedBooking booking : archiveRepository.findAllByItemIdInAndStatusInAndOverlapping(
+                itemIds, BookingOverlapIndex.ACTIVE_STATUSES, from, to)) {
+            trees.computeIfAbsent(booking.getItem().getId(), itemId -> new BookingOverlapIndex.IntervalTree())
+                    .insert(booking.getId(), booking.getStart(), booking.getEnd());
+        }
+
+        return trees;
+    }
+
+    /**
+     * Импортированные заказы обновляют то же, что создание и подтверждение одиночного заказа:
+     * незакончившиеся активные занимают интервал в индексе пересечений, а последнее и ближайшее бронирования
+     * предмета сдвигаются только по самому позднему начавшемуся и самому раннему будущему подтверждённому заказу.
+     */
+    private void onImported(List<Booking> bookings) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Booking> lastBookings = new HashMap<>();
+        Map<Long, Booking> nextBookings = new HashMap<>();
+        // владельцы блокируются по возрастанию id, чтобы параллельные импорты не ждали друг друга по кругу
+        Map<Long, List<Booking>> byOwner = new TreeMap<>();
+
+        for (Booking booking : bookings) {
+            Long itemId = booking.getItem().getId();
+            byOwner.computeIfAbsent(booking.getItem().getOwner().getId(), ownerId -> new ArrayList<>()).add(booking);
+
+            if (BookingOverlapIndex.ACTIVE_STATUSES.contains(booking.getStatus()) && booking.getEnd().isAfter(now)) {
+                overlapIndex.reserve(itemId, booking.getId(), booking.getStart(), booking.getEnd());
+            }
+
+            if (booking.getStatus() != BookingStatus.APPROVED) {
+                continue;
+            }
+
+            if (booking.getStart().isAfter(now)) {
+                nextBookings.merge(itemId, booking, (current, other) ->
+                        other.getStart().isBefore(current.getStart()) ? other : current);
+            } else {
+                lastBookings.merge(itemId, booking, (current, other) ->
+                        other.getStart().isAfter(current.getStart()) ? other : current);
+            }
+        }
+
+        Set<Long> approvedItemIds = new HashSet<>(lastBookings.keySet());
+        approvedItemIds.addAll(nextBookings.keySet());
+        lastBookings.values().forEach(bookingTracker::onApproved);
+        nextBookings.values().forEach(bookingTracker::onApproved);
+        approvedItemIds.forEach(calendarCache::invalidate);
+        byOwner.forEach(ownerStatsRecorder::onImported);
+    }
+
     private User userValidation(Long userId) {
         Optional<User> user = userRepository.findById(userId);
 
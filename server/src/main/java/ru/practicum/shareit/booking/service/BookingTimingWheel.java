@@ -0,0 +1,101 @@
+package ru.practicum.shareit.booking.service;
+
+import ru.practicum.shareit.booking.model.BookingPhase;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Хешированное колесо таймеров для переходов заказов между фазами.
+ * Переход кладётся в ячейку по номеру тика срока, на каждом тике просматривается только текущая ячейка,
+ * а срок записи сверяется явно, поэтому переходы дальше одного оборота колеса тоже допустимы.
+ * Класс не потокобезопасен.
+ */
+class BookingTimingWheel {
+    private final long tickMillis;
+    private final List<List<Entry>> slots;
+    private final Map<BookingPhase, Set<Long>> pending = new EnumMap<>(BookingPhase.class);
+    private long currentTick;
+
+    BookingTimingWheel(int size, long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(size);
+        this.currentTick = startMillis / tickMillis;
+
+        for (int i = 0; i < size; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Планирует переход заказа в фазу target. Повторное планирование того же перехода игнорируется,
+     * просроченный переход срабатывает на ближайшем тике.
+     */
+    boolean schedule(Long bookingId, BookingPhase target, long deadlineMillis) {
+        if (!pending.computeIfAbsent(target, phase -> new HashSet<>()).add(bookingId)) {
+            return false;
+        }
+
+        // Округление вверх: переход никогда не срабатывает раньше срока.
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        slots.get(index(deadlineTick)).add(new Entry(bookingId, target, deadlineTick));
+        return true;
+    }
+
+    /**
+     * Проворачивает колесо до момента nowMillis и возвращает наступившие переходы, сгруппированные по фазе.
+     */
+    Map<BookingPhase, List<Long>> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        Map<BookingPhase, List<Long>> due = new EnumMap<>(BookingPhase.class);
+        long lastTick = Math.min(nowTick, currentTick + slots.size());
+
+        for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+            Iterator<Entry> iterator = slots.get(index(tick)).iterator();
+
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+
+                if (entry.deadlineTick <= nowTick) {
+                    iterator.remove();
+                    pending.get(entry.target).remove(entry.bookingId);
+                    due.computeIfAbsent(entry.target, phase -> new ArrayList<>()).add(entry.bookingId);
+                }
+            }
+        }
+
+        currentTick = Math.max(currentTick, nowTick);
+        return due;
+    }
+
+    int size() {
+        int size = 0;
+
+        for (Set<Long> ids : pending.values()) {
+            size += ids.size();
+        }
+
+        return size;
+    }
+
+    private int index(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.size());
+    }
+
+    private static final class Entry {
+        private final Long bookingId;
+        private final BookingPhase target;
+        private final long deadlineTick;
+
+        private Entry(Long bookingId, BookingPhase target, long deadlineTick) {
+            this.bookingId = bookingId;
+            this.target = target;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
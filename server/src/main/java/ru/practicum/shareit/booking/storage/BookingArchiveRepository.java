@@ -0,0 +1,114 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface BookingArchiveRepository extends JpaRepository<ArchivedBooking, Long> {
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM ArchivedBooking b " +
+            "WHERE b.booker.id = ?1")
+    List<ArchivedBooking> findAllByBookerId(Long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM ArchivedBooking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND (b.start < ?2 OR (b.start = ?2 AND b.id < ?3))")
+    List<ArchivedBooking> findAllByBookerIdAfterCursor(
+            Long userId,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @Query("SELECT b " +
+            "FROM ArchivedBooking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1")
+    List<ArchivedBooking> findAllByItemOwnerId(Long userId, Pageable pageable);
+
+    @Query("SELECT b " +
+            "FROM ArchivedBooking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND (b.start < ?2 OR (b.start = ?2 AND b.id < ?3))")
+    List<ArchivedBooking> findAllByItemOwnerIdAfterCursor(
+            Long userId,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @Query("SELECT COUNT(b) " +
+            "FROM ArchivedBooking b " +
+            "WHERE b.booker.id = ?1")
+    long countByBookerId(Long userId);
+
+    @Query("SELECT COUNT(b) " +
+            "FROM ArchivedBooking b " +
+            "JOIN b.item i " +
+            "WHERE i.owner.id = ?1")
+    long countByItemOwnerId(Long userId);
+
+    @Query("SELECT b " +
+            "FROM ArchivedBooking b " +
+            "WHERE b.item.id = ?1 " +
+            "AND b.booker.id = ?2 " +
+            "AND b.status = ?3")
+    List<ArchivedBooking> findAllByItemIdAndBookerIdAndStatusIs(Long itemId, Long bookerId, BookingStatus status);
+
+    @Query("SELECT b " +
+            "FROM ArchivedBooking b " +
+            "WHERE b.item.id IN ?1 " +
+            "AND b.status IN ?2 " +
+            "AND b.start < ?4 " +
+            "AND b.end > ?3")
+    List<ArchivedBooking> findAllByItemIdInAndStatusInAndOverlapping(
+            Collection<Long> itemIds,
+            Collection<BookingStatus> statuses,
+            LocalDateTime from,
+            LocalDateTime to);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = BookingRepository.EXPORT_FETCH_SIZE))
+    @Query("SELECT b " +
+            "FROM ArchivedBooking b " +
+            "JOIN FETCH b.item " +
+            "JOIN FETCH b.booker k " +
+            "WHERE k.id = ?1 " +
+            "ORDER BY b.start DESC, b.id DESC")
+    Stream<ArchivedBooking> streamAllByBookerId(Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = BookingRepository.EXPORT_FETCH_SIZE))
+    @Query("SELECT b " +
+            "FROM ArchivedBooking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "ORDER BY b.start DESC, b.id DESC")
+    Stream<ArchivedBooking> streamAllByItemOwnerId(Long userId);
+
+    /**
+     * Копирует заказы из bookings, удаление исходных строк остаётся за вызывающим в той же транзакции.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO bookings_archive (id, booker_id, start_time, end_time, item_id, status, archived_at) " +
+            "SELECT id, booker_id, start_time, end_time, item_id, status, ?2 " +
+            "FROM bookings " +
+            "WHERE id IN (?1)", nativeQuery = true)
+    int copyFromBookings(Collection<Long> ids, LocalDateTime archivedAt);
+}
@@ -0,0 +1,146 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Ведёт помесячные секции bookings в PostgreSQL: заранее создаёт секции на monthsAhead месяцев вперёд
+ * и удаляет опустевшие секции, целиком лежащие за горизонтом архивации.
+ * Строки, успевшие попасть в bookings_default, переносятся в новую секцию перед её подключением.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.booking-partitions.enabled", havingValue = "true")
+public class BookingPartitionManager {
+    static final String DEFAULT_PARTITION = "bookings_default";
+    private static final String PREFIX = "bookings_";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final long LOCK_KEY = 7_001L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final Duration retention;
+
+    public BookingPartitionManager(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${shareit.booking-partitions.months-ahead:3}") int monthsAhead,
+                                   @Value("${shareit.booking-archive.horizon:P365D}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retention = retention;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${shareit.booking-partitions.cron:0 0 3 * * *}")
+    public void maintain() {
+        try {
+            maintain(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.error("Ошибка при обслуживании секций bookings", e);
+        }
+    }
+
+    void maintain(LocalDate today) {
+        YearMonth current = YearMonth.from(today);
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            transactionTemplate.executeWithoutResult(status -> createPartition(month));
+        }
+
+        YearMonth oldest = YearMonth.from(today.minusDays(retention.toDays()));
+
+        for (String partition : findPartitions()) {
+            YearMonth month = monthOf(partition);
+
+            if (month != null && month.isBefore(oldest)) {
+                transactionTemplate.executeWithoutResult(status -> dropPartitionIfEmpty(partition));
+            }
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return PREFIX + month.format(SUFFIX);
+    }
+
+    /**
+     * Имя секции не по шаблону bookings_yyyy_MM, например bookings_default, возвращает null.
+     */
+    static YearMonth monthOf(String partition) {
+        if (!partition.startsWith(PREFIX)) {
+            return null;
+        }
+
+        try {
+            return YearMonth.parse(partition.substring(PREFIX.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        lock();
+
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition))) {
+            return;
+        }
+
+        String from = month.atDay(1).atStartOfDay().toString();
+        String to = month.plusMonths(1).atDay(1).atStartOfDay().toString();
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE bookings INCLUDING DEFAULTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " " +
+                "WHERE start_time >= CAST(? AS TIMESTAMP) AND start_time < CAST(? AS TIMESTAMP) RETURNING *) " +
+                "INSERT INTO " + partition + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE bookings ATTACH PARTITION " + partition +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        log.info("Создана секция {}, из {} перенесено {} заказов", partition, DEFAULT_PARTITION, moved);
+    }
+
+    private List<String> findPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname " +
+                "FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'bookings'::regclass", String.class);
+    }
+
+    /**
+     * Заказы из старых секций переносит в архив BookingArchiver, секция удаляется, только когда в ней ничего не осталось.
+     */
+    private void dropPartitionIfEmpty(String partition) {
+        lock();
+
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + ")", Boolean.class))) {
+            return;
+        }
+
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        log.info("Удалена пустая секция {}", partition);
+    }
+
+    /**
+     * Не даёт нескольким экземплярам сервера одновременно менять состав секций.
+     */
+    private void lock() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+    }
+}
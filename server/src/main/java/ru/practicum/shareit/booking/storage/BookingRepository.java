@@ -1,58 +1,475 @@
 package ru.practicum.shareit.booking.storage;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.practicum.shareit.booking.dto.BookingCreationContext;
+import ru.practicum.shareit.booking.dto.BookingStateCounts;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.BookingStatus;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
+    /**
+     * Сколько строк выгрузки драйвер забирает из курсора за раз.
+     */
+    String EXPORT_FETCH_SIZE = "500";
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.item.id = ?1 " +
+            "AND b.booker.id = ?2 " +
+            "AND b.status = ?3 " +
+            "AND b.end < ?4")
     List<Booking> findAllByItemIdAndBookerIdAndStatusIsAndEndBefore(
             Long itemId,
             Long bookerId,
             BookingStatus status,
             LocalDateTime time);
 
-    List<Booking> findByItemIdAndStatusIsAndStartBeforeOrderByStartDesc(Long itemId,
-                                                                        BookingStatus status,
-                                                                        LocalDateTime time);
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.item.id = ?1 " +
+            "AND b.status IN ?2 " +
+            "AND b.end > ?3")
+    List<Booking> findAllByItemIdAndStatusInAndEndAfter(
+            Long itemId,
+            Collection<BookingStatus> statuses,
+            LocalDateTime time);
+
+    /**
+     * Пустой результат означает, что нет заказчика, пустой itemId — что нет предмета.
+     */
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingCreationContext(" +
+            "u.id, u.name, u.email, i.id, i.name, i.description, i.rentals, i.available, i.owner.id, i.request.id) " +
+            "FROM User u " +
+            "LEFT JOIN Item i ON i.id = ?2 " +
+            "WHERE u.id = ?1")
+    Optional<BookingCreationContext> findCreationContext(Long bookerId, Long itemId);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.item.id IN ?1 " +
+            "AND b.status IN ?2 " +
+            "AND b.start < ?4 " +
+            "AND b.end > ?3")
+    List<Booking> findAllByItemIdInAndStatusInAndOverlapping(
+            Collection<Long> itemIds,
+            Collection<BookingStatus> statuses,
+            LocalDateTime from,
+            LocalDateTime to);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.item.id IN ?1 " +
+            "AND b.status = ?2 " +
+            "AND b.start < ?3 " +
+            "AND b.start = (SELECT MAX(l.start) " +
+            "FROM Booking l " +
+            "WHERE l.item.id = b.item.id " +
+            "AND l.status = ?2 " +
+            "AND l.start < ?3) " +
+            "ORDER BY b.id")
+    List<Booking> findLastBookingsByItemIds(Collection<Long> itemIds, BookingStatus status, LocalDateTime time);
 
-    List<Booking> findByItemIdAndStatusIsAndStartAfterOrderByStartAsc(Long itemId,
-                                                                      BookingStatus status,
-                                                                      LocalDateTime time);
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.item.id IN ?1 " +
+            "AND b.status = ?2 " +
+            "AND b.start > ?3 " +
+            "AND b.start = (SELECT MIN(n.start) " +
+            "FROM Booking n " +
+            "WHERE n.item.id = b.item.id " +
+            "AND n.status = ?2 " +
+            "AND n.start > ?3) " +
+            "ORDER BY b.id")
+    List<Booking> findNextBookingsByItemIds(Collection<Long> itemIds, BookingStatus status, LocalDateTime time);
 
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND b.status = ?2")
     List<Booking> findAllByBookerIdAndStatusIs(Long userId, BookingStatus status, Pageable pageable);
 
+    /**
+     * Фазы FUTURE, CURRENT и PAST отбираются по времени time, поэтому не зависят от того, успел ли
+     * BookingPhaseScheduler перевести заказ. Колонка phase сужает диапазон индекса: запаздывать она может
+     * только в сторону более ранней фазы, поэтому заказ с phase = PAST уже закончился, а время проверяется
+     * только у заказов, ещё не переведённых в PAST. Условие на start_time есть в каждой фазе, чтобы PostgreSQL
+     * отсекал секции bookings: FUTURE не читает прошедшие месяцы, CURRENT и PAST — будущие.
+     */
+    @EntityGraph(attributePaths = {"booker", "item"})
     @Query("SELECT b " +
             "FROM Booking b " +
             "WHERE b.booker.id = ?1 " +
-            "AND b.start < ?2 " +
-            "AND b.end > ?2" +
-            "ORDER BY b.start DESC")
-    List<Booking> findAllByBookerIdCurrentBooking(Long userId, LocalDateTime time, Pageable pageable);
+            "AND b.phase = ru.practicum.shareit.booking.model.BookingPhase.FUTURE " +
+            "AND b.start > ?2")
+    List<Booking> findFutureByBookerId(Long userId, LocalDateTime time, Pageable pageable);
 
-    List<Booking> findAllByBookerIdAndEndBefore(Long userId, LocalDateTime time, Pageable pageable);
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) " +
+            "AND b.start <= ?2 " +
+            "AND b.end > ?2")
+    List<Booking> findCurrentByBookerId(Long userId, LocalDateTime time, Pageable pageable);
 
-    List<Booking> findAllByBookerIdAndStartAfter(Long userId, LocalDateTime time, Pageable pageable);
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND b.start < ?2 " +
+            "AND (b.phase = ru.practicum.shareit.booking.model.BookingPhase.PAST " +
+            "OR b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) AND b.end <= ?2)")
+    List<Booking> findPastByBookerId(Long userId, LocalDateTime time, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1")
     List<Booking> findAllByBookerId(Long userId, Pageable pageable);
 
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1")
     List<Booking> findAllByItemOwnerId(Long userId, Pageable pageable);
 
-    List<Booking> findAllByItemOwnerIdAndEndBefore(Long userId, LocalDateTime time, Pageable pageable);
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND b.status = ?2")
+    List<Booking> findAllByItemOwnerIdAndStatusIs(Long userId, BookingStatus status, Pageable pageable);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND b.phase = ru.practicum.shareit.booking.model.BookingPhase.FUTURE " +
+            "AND b.start > ?2")
+    List<Booking> findFutureByItemOwnerId(Long userId, LocalDateTime time, Pageable pageable);
 
-    List<Booking> findAllByItemOwnerIdAndStartAfter(Long userId, LocalDateTime time, Pageable pageable);
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) " +
+            "AND b.start <= ?2 " +
+            "AND b.end > ?2")
+    List<Booking> findCurrentByItemOwnerId(Long userId, LocalDateTime time, Pageable pageable);
 
-    List<Booking> findAllByItemOwnerIdAndStatusIs(Long userId, BookingStatus status, Pageable pageable);
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND b.start < ?2 " +
+            "AND (b.phase = ru.practicum.shareit.booking.model.BookingPhase.PAST " +
+            "OR b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) AND b.end <= ?2)")
+    List<Booking> findPastByItemOwnerId(Long userId, LocalDateTime time, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND (b.start < ?2 OR (b.start = ?2 AND b.id < ?3))")
+    List<Booking> findAllByBookerIdAfterCursor(
+            Long userId,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND b.status = ?2 " +
+            "AND (b.start < ?3 OR (b.start = ?3 AND b.id < ?4))")
+    List<Booking> findAllByBookerIdAndStatusIsAfterCursor(
+            Long userId,
+            BookingStatus status,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND b.phase = ru.practicum.shareit.booking.model.BookingPhase.FUTURE " +
+            "AND b.start > ?2 " +
+            "AND (b.start < ?3 OR (b.start = ?3 AND b.id < ?4))")
+    List<Booking> findFutureByBookerIdAfterCursor(
+            Long userId,
+            LocalDateTime time,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) " +
+            "AND b.start <= ?2 " +
+            "AND b.end > ?2 " +
+            "AND (b.start < ?3 OR (b.start = ?3 AND b.id < ?4))")
+    List<Booking> findCurrentByBookerIdAfterCursor(
+            Long userId,
+            LocalDateTime time,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @EntityGraph(attributePaths = {"booker", "item"})
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1 " +
+            "AND b.start < ?2 " +
+            "AND (b.phase = ru.practicum.shareit.booking.model.BookingPhase.PAST " +
+            "OR b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) AND b.end <= ?2) " +
+            "AND (b.start < ?3 OR (b.start = ?3 AND b.id < ?4))")
+    List<Booking> findPastByBookerIdAfterCursor(
+            Long userId,
+            LocalDateTime time,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND (b.start < ?2 OR (b.start = ?2 AND b.id < ?3))")
+    List<Booking> findAllByItemOwnerIdAfterCursor(
+            Long userId,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
 
     @Query("SELECT b " +
             "FROM Booking b " +
-            "WHERE b.item.owner.id = ?1 " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND b.status = ?2 " +
+            "AND (b.start < ?3 OR (b.start = ?3 AND b.id < ?4))")
+    List<Booking> findAllByItemOwnerIdAndStatusIsAfterCursor(
+            Long userId,
+            BookingStatus status,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND b.phase = ru.practicum.shareit.booking.model.BookingPhase.FUTURE " +
+            "AND b.start > ?2 " +
+            "AND (b.start < ?3 OR (b.start = ?3 AND b.id < ?4))")
+    List<Booking> findFutureByItemOwnerIdAfterCursor(
+            Long userId,
+            LocalDateTime time,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) " +
+            "AND b.start <= ?2 " +
+            "AND b.end > ?2 " +
+            "AND (b.start < ?3 OR (b.start = ?3 AND b.id < ?4))")
+    List<Booking> findCurrentByItemOwnerIdAfterCursor(
+            Long userId,
+            LocalDateTime time,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
             "AND b.start < ?2 " +
-            "AND b.end > ?2" +
-            "ORDER BY b.start DESC")
-    List<Booking> findAllByItemOwnerIdCurrentBooking(Long userId, LocalDateTime time, Pageable pageable);
+            "AND (b.phase = ru.practicum.shareit.booking.model.BookingPhase.PAST " +
+            "OR b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) AND b.end <= ?2) " +
+            "AND (b.start < ?3 OR (b.start = ?3 AND b.id < ?4))")
+    List<Booking> findPastByItemOwnerIdAfterCursor(
+            Long userId,
+            LocalDateTime time,
+            LocalDateTime cursorStart,
+            Long cursorId,
+            Pageable pageable);
+
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingStateCounts(" +
+            "COUNT(b), " +
+            "SUM(CASE WHEN b.end <= ?2 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.start > ?2 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.status = ru.practicum.shareit.booking.model.BookingStatus.WAITING THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.status = ru.practicum.shareit.booking.model.BookingStatus.REJECTED THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.start <= ?2 AND b.end > ?2 THEN 1 ELSE 0 END)) " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = ?1")
+    BookingStateCounts countStatesByBookerId(Long bookerId, LocalDateTime time);
+
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingStateCounts(" +
+            "COUNT(b), " +
+            "SUM(CASE WHEN b.end <= ?2 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.start > ?2 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.status = ru.practicum.shareit.booking.model.BookingStatus.WAITING THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.status = ru.practicum.shareit.booking.model.BookingStatus.REJECTED THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.start <= ?2 AND b.end > ?2 THEN 1 ELSE 0 END)) " +
+            "FROM Booking b " +
+            "JOIN b.item i " +
+            "WHERE i.owner.id = ?1")
+    BookingStateCounts countStatesByItemOwnerId(Long ownerId, LocalDateTime time);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE b.id IN ?1 " +
+            "AND i.owner.id = ?2")
+    List<Booking> findAllByIdInAndItemOwnerId(Collection<Long> ids, Long ownerId);
+
+    /**
+     * Заказы предмета перебираются по индексу (item_id, start_time) до начала позже end.
+     */
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "AND b.start < ?3 " +
+            "AND b.end > ?2 " +
+            "ORDER BY b.start, b.id")
+    List<Booking> findAllByItemOwnerIdAndPeriodOverlapping(Long ownerId, LocalDateTime start, LocalDateTime end,
+                                                           Pageable pageable);
+
+    /**
+     * Только PostgreSQL: пересечение проверяет GiST-индекс bookings_item_id_period_idx,
+     * а условие на start_time отсекает секции, начинающиеся не раньше end.
+     */
+    @Query(value = "SELECT CAST(b.id AS BIGINT) " +
+            "FROM bookings b " +
+            "JOIN items i ON i.id = b.item_id " +
+            "WHERE i.owner_id = ?1 " +
+            "AND b.start_time < ?3 " +
+            "AND tsrange(b.start_time, b.end_time) && tsrange(?2, ?3) " +
+            "ORDER BY b.start_time, b.id", nativeQuery = true)
+    List<Long> findIdsByItemOwnerIdAndPeriodOverlapping(Long ownerId, LocalDateTime start, LocalDateTime end,
+                                                        Pageable pageable);
+
+    /**
+     * Id заказов, которые всё ещё ждут подтверждения. Строки блокируются до конца транзакции в порядке id,
+     * поэтому параллельный запрос не изменит их статус до UPDATE, а встречные пакеты не заблокируют друг друга.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b.id " +
+            "FROM Booking b " +
+            "WHERE b.id IN ?1 " +
+            "AND b.status = ru.practicum.shareit.booking.model.BookingStatus.WAITING " +
+            "ORDER BY b.id")
+    List<Long> lockWaitingIds(Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b " +
+            "SET b.status = ?2, b.version = b.version + 1 " +
+            "WHERE b.id IN ?1 " +
+            "AND b.status = ru.practicum.shareit.booking.model.BookingStatus.WAITING")
+    int updateWaitingStatus(Collection<Long> ids, BookingStatus status);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.phase = ru.practicum.shareit.booking.model.BookingPhase.FUTURE " +
+            "AND b.start < ?1 " +
+            "ORDER BY b.start")
+    List<Booking> findAllStartingBefore(LocalDateTime time, Pageable pageable);
+
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.phase IN (ru.practicum.shareit.booking.model.BookingPhase.FUTURE, " +
+            "ru.practicum.shareit.booking.model.BookingPhase.CURRENT) " +
+            "AND b.end < ?1 " +
+            "ORDER BY b.end")
+    List<Booking> findAllEndingBefore(LocalDateTime time, Pageable pageable);
+
+    /**
+     * Как и @PreUpdate, меняет версию заказа, чтобы параллельное изменение загруженного ранее заказа
+     * не перезаписало фазу.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b " +
+            "SET b.phase = ?3, b.version = b.version + 1 " +
+            "WHERE b.id IN ?1 " +
+            "AND b.phase = ?2")
+    int updatePhase(Collection<Long> ids, BookingPhase from, BookingPhase to);
+
+    /**
+     * Фаза не проверяется: без планировщика фаз закончившийся заказ может остаться в FUTURE или CURRENT.
+     */
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "WHERE b.end < ?1")
+    List<Booking> findAllEndedBefore(LocalDateTime time, Pageable pageable);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Booking b " +
+            "WHERE b.id IN ?1")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item " +
+            "JOIN FETCH b.booker k " +
+            "WHERE k.id = ?1 " +
+            "ORDER BY b.start DESC, b.id DESC")
+    Stream<Booking> streamAllByBookerId(Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("SELECT b " +
+            "FROM Booking b " +
+            "JOIN FETCH b.item i " +
+            "JOIN FETCH b.booker " +
+            "WHERE i.owner.id = ?1 " +
+            "ORDER BY b.start DESC, b.id DESC")
+    Stream<Booking> streamAllByItemOwnerId(Long userId);
 }
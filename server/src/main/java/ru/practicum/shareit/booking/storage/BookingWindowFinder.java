@@ -0,0 +1,52 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ищет страницу заказов на предметы владельца, пересекающих интервал [start, end), по возрастанию начала.
+ * В PostgreSQL пересечение проверяет GiST-индекс по (item_id, tsrange(start_time, end_time)),
+ * остальные базы обходят индекс (item_id, start_time) от первого заказа предмета до начала позже end.
+ * Архивные заказы закончились раньше горизонта архивации и в окна для планирования не попадают.
+ */
+@Component
+public class BookingWindowFinder {
+    static final int LOAD_BATCH_SIZE = 1000;
+    private static final Comparator<Booking> ORDER =
+            Comparator.comparing(Booking::getStart).thenComparing(Booking::getId);
+
+    private final BookingRepository bookingRepository;
+    private final boolean rangeIndex;
+
+    public BookingWindowFinder(BookingRepository bookingRepository,
+                               @Value("${shareit.booking-window.range-index:false}") boolean rangeIndex) {
+        this.bookingRepository = bookingRepository;
+        this.rangeIndex = rangeIndex;
+    }
+
+    public List<Booking> findAllByItemOwnerId(Long ownerId, LocalDateTime start, LocalDateTime end,
+                                              Pageable pageable) {
+        if (!rangeIndex) {
+            return bookingRepository.findAllByItemOwnerIdAndPeriodOverlapping(ownerId, start, end, pageable);
+        }
+
+        // индекс отдаёт только id страницы, заказы со связями догружаются пачками, чтобы не упереться в лимит параметров
+        List<Long> ids = bookingRepository.findIdsByItemOwnerIdAndPeriodOverlapping(ownerId, start, end, pageable);
+        List<Booking> bookings = new ArrayList<>(ids.size());
+
+        for (int i = 0; i < ids.size(); i += LOAD_BATCH_SIZE) {
+            bookings.addAll(bookingRepository.findAllByIdInAndItemOwnerId(
+                    ids.subList(i, Math.min(i + LOAD_BATCH_SIZE, ids.size())), ownerId));
+        }
+
+        bookings.sort(ORDER);
+        return bookings;
+    }
+}
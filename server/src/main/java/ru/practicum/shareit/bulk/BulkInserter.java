@@ -0,0 +1,59 @@
+package ru.practicum.shareit.bulk;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Сохраняет новые сущности пачками по batchSize: INSERT одной пачки уходят одним JDBC-батчем,
+ * после чего контекст очищается, и импорт не держит в памяти все сохранённые объекты.
+ * Группировать вставки Hibernate может только для сущностей с id из последовательности, не IDENTITY.
+ */
+@Component
+public class BulkInserter {
+    private final EntityManager entityManager;
+    private final int batchSize;
+
+    public BulkInserter(EntityManager entityManager, @Value("${shareit.import.batch-size:500}") int batchSize) {
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Вызывается в транзакции. После возврата все сущности контекста отсоединены,
+     * включая загруженные до импорта, id сохранённых объектов заполнены.
+     */
+    public <T> void persistAll(List<T> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        Session session = entityManager.unwrap(Session.class);
+        Integer jdbcBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+
+        try {
+            entityManager.flush();
+
+            for (int i = 0; i < entities.size(); i++) {
+                entityManager.persist(entities.get(i));
+
+                if ((i + 1) % batchSize == 0) {
+                    flushAndClear();
+                }
+            }
+
+            flushAndClear();
+        } finally {
+            session.setJdbcBatchSize(jdbcBatchSize);
+        }
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.shareit.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.ForbiddenException;
+
+import java.util.Set;
+
+/**
+ * Импорт пишет от имени любых пользователей, поэтому доступен только администраторам
+ * из shareit.import.admin-ids. По умолчанию список пуст и импорт закрыт для всех.
+ */
+@Slf4j
+@Component
+public class ImportGuard {
+    private final Set<Long> adminIds;
+
+    public ImportGuard(@Value("${shareit.import.admin-ids:}") Set<Long> adminIds) {
+        this.adminIds = Set.copyOf(adminIds);
+    }
+
+    public void check(long userId) {
+        if (!adminIds.contains(userId)) {
+            log.error("Пользователь с id = {} не может импортировать данные", userId);
+            throw new ForbiddenException("Импорт доступен только администраторам");
+        }
+    }
+}
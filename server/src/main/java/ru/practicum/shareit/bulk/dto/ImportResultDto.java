@@ -0,0 +1,18 @@
+package ru.practicum.shareit.bulk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Итог импорта одной строки: row — её номер в запросе, начиная с нуля,
+ * id — идентификатор созданной записи либо error — причина, по которой строка пропущена.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResultDto {
+    private int row;
+    private Long id;
+    private String error;
+}
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.idempotency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Ключ повторяемого запроса и JSON успешного ответа на него.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+    @EmbeddedId
+    private IdempotencyKeyId id;
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+    @Column(name = "response")
+    private String response;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
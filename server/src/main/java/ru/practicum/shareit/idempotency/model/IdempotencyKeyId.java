@@ -0,0 +1,25 @@
+package ru.practicum.shareit.idempotency.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKeyId implements Serializable {
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation", nullable = false)
+    private IdempotentOperation operation;
+    @Column(name = "idempotency_key", nullable = false)
+    private String key;
+}
@@ -0,0 +1,6 @@
+package ru.practicum.shareit.idempotency.model;
+
+public enum IdempotentOperation {
+    CREATE_BOOKING,
+    CREATE_ITEM
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.idempotency.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.idempotency.storage.IdempotencyKeyRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Удаляет ключи Idempotency-Key старше ttl.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.idempotency.cleanup.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyKeyCleaner {
+    private final IdempotencyKeyRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+
+    public IdempotencyKeyCleaner(IdempotencyKeyRepository repository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${shareit.idempotency.ttl:P1D}") Duration ttl) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.idempotency.cleanup.interval:PT1H}")
+    public void cleanup() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+            Integer deleted = transactionTemplate.execute(status -> repository.deleteAllByCreatedAtBefore(cutoff));
+            log.info("Удалено устаревших ключей {}: {}", IdempotentExecutor.IDEMPOTENCY_KEY_HEADER, deleted);
+        } catch (RuntimeException e) {
+            log.error("Ошибка при удалении устаревших ключей {}", IdempotentExecutor.IDEMPOTENCY_KEY_HEADER, e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.practicum.shareit.idempotency.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.idempotency.model.IdempotencyKey;
+import ru.practicum.shareit.idempotency.model.IdempotencyKeyId;
+import ru.practicum.shareit.idempotency.model.IdempotentOperation;
+import ru.practicum.shareit.idempotency.storage.IdempotencyKeyRepository;
+
+import javax.validation.ValidationException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет запрос с заголовком Idempotency-Key не больше одного раза: повтор с тем же ключом
+ * получает сохранённый ответ первого запроса, транзакция заново не выполняется.
+ * Ключ действует в пределах пользователя и операции и хранится в idempotency_keys не меньше ttl,
+ * последние cacheSize ключей дополнительно держатся в памяти (LRU).
+ * Запоминаются только успешные ответы: после ошибки запрос с тем же ключом выполнится снова.
+ */
+@Slf4j
+@Component
+public class IdempotentExecutor {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Map<IdempotencyKeyId, IdempotencyKey> recent;
+
+    public IdempotentExecutor(IdempotencyKeyRepository repository,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${shareit.idempotency.ttl:P1D}") Duration ttl,
+                              @Value("${shareit.idempotency.cache-size:10000}") int cacheSize) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<IdempotencyKeyId, IdempotencyKey> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Без ключа просто выполняет action. request сравнивается с запросом, впервые пришедшим с этим ключом.
+     */
+    public <T> T execute(Long userId,
+                         IdempotentOperation operation,
+                         @Nullable String key,
+                         Object request,
+                         Class<T> responseType,
+                         Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            log.error("Некорректный {}: {}", IDEMPOTENCY_KEY_HEADER, key);
+            throw new ValidationException("Некорректный " + IDEMPOTENCY_KEY_HEADER);
+        }
+
+        IdempotencyKeyId id = new IdempotencyKeyId(userId, operation, key);
+        String requestHash = hash(request);
+        IdempotencyKey stored = find(id);
+
+        if (stored != null) {
+            return replay(stored, requestHash, responseType);
+        }
+
+        try {
+            return transactionTemplate.execute(status -> executeOnce(id, requestHash, action));
+        } catch (DataIntegrityViolationException e) {
+            // ключ занял параллельный запрос, к этому моменту его транзакция уже закоммичена
+            IdempotencyKey concurrent = repository.findById(id).orElseThrow(() -> e);
+            remember(concurrent);
+            return replay(concurrent, requestHash, responseType);
+        }
+    }
+
+    private <T> T executeOnce(IdempotencyKeyId id, String requestHash, Supplier<T> action) {
+        LocalDateTime now = LocalDateTime.now();
+        repository.claim(id.getUserId(), id.getOperation().name(), id.getKey(), requestHash, now);
+        T response = action.get();
+        String json = write(response);
+        repository.saveResponse(id.getUserId(), id.getOperation(), id.getKey(), json);
+        IdempotencyKey stored = new IdempotencyKey(id, requestHash, json, now);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(stored);
+            }
+        });
+        return response;
+    }
+
+    private IdempotencyKey find(IdempotencyKeyId id) {
+        synchronized (recent) {
+            IdempotencyKey stored = recent.get(id);
+
+            if (stored != null && stored.getCreatedAt().isAfter(LocalDateTime.now().minus(ttl))) {
+                return stored;
+            }
+
+            recent.remove(id);
+        }
+
+        IdempotencyKey stored = repository.findById(id).orElse(null);
+
+        if (stored != null) {
+            remember(stored);
+        }
+
+        return stored;
+    }
+
+    private void remember(IdempotencyKey stored) {
+        synchronized (recent) {
+            recent.put(stored.getId(), stored);
+        }
+    }
+
+    private <T> T replay(IdempotencyKey stored, String requestHash, Class<T> responseType) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            log.error("{} {} уже использован для другого запроса", IDEMPOTENCY_KEY_HEADER, stored.getId());
+            throw new ConflictException(IDEMPOTENCY_KEY_HEADER + " уже использован для другого запроса");
+        }
+
+        log.info("Повтор запроса с {} {}, возвращён сохранённый ответ", IDEMPOTENCY_KEY_HEADER, stored.getId());
+
+        try {
+            return objectMapper.readValue(stored.getResponse(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.shareit.idempotency.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.idempotency.model.IdempotencyKey;
+import ru.practicum.shareit.idempotency.model.IdempotencyKeyId;
+import ru.practicum.shareit.idempotency.model.IdempotentOperation;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, IdempotencyKeyId> {
+    /**
+     * Занимает ключ сразу, до выполнения запроса: параллельный запрос с тем же ключом ждёт
+     * на первичном ключе и после коммита первого получает DataIntegrityViolationException.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (user_id, operation, idempotency_key, request_hash, created_at) " +
+            "VALUES (?1, ?2, ?3, ?4, ?5)", nativeQuery = true)
+    void claim(Long userId, String operation, String key, String requestHash, LocalDateTime createdAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyKey k " +
+            "SET k.response = ?4 " +
+            "WHERE k.id.userId = ?1 " +
+            "AND k.id.operation = ?2 " +
+            "AND k.id.key = ?3")
+    void saveResponse(Long userId, IdempotentOperation operation, String key, String response);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k " +
+            "WHERE k.createdAt < ?1")
+    int deleteAllByCreatedAtBefore(LocalDateTime cutoff);
+}
@@ -1,6 +1,7 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -10,12 +11,20 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.shareit.bulk.ImportGuard;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
+import ru.practicum.shareit.idempotency.model.IdempotentOperation;
+import ru.practicum.shareit.idempotency.service.IdempotentExecutor;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemCommentAndBookingDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportDto;
 import ru.practicum.shareit.item.service.ItemService;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * TODO Sprint add-controllers.
@@ -25,12 +34,23 @@ import java.util.Collection;
 @RequiredArgsConstructor
 public class ItemController {
     private final ItemService itemService;
+    private final IdempotentExecutor idempotentExecutor;
+    private final ImportGuard importGuard;
 
     @PostMapping
     public ItemDto createItem(
             @RequestHeader("X-Sharer-User-Id") long ownerId,
+            @RequestHeader(value = IdempotentExecutor.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @RequestBody ItemDto itemDto) {
-        return itemService.create(itemDto, ownerId);
+        return idempotentExecutor.execute(ownerId, IdempotentOperation.CREATE_ITEM, idempotencyKey, itemDto,
+                ItemDto.class, () -> itemService.create(itemDto, ownerId));
+    }
+
+    @PostMapping("/import")
+    public List<ImportResultDto> importItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                             @RequestBody List<ItemImportDto> items) {
+        importGuard.check(userId);
+        return itemService.importItems(items);
     }
 
     @PatchMapping("/{itemId}")
@@ -64,6 +84,21 @@ public class ItemController {
         return itemService.search(text, from, size);
     }
 
+    @GetMapping("/search/suggest")
+    public Collection<String> suggest(
+            @RequestParam String prefix,
+            @RequestParam(required = false, defaultValue = "10") Integer limit) {
+        return itemService.suggest(prefix, limit);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public Collection<FreeIntervalDto> getAvailability(
+            @PathVariable long itemId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return itemService.getAvailability(itemId, from, to);
+    }
+
     @PostMapping("/{itemId}/comment")
     public CommentDto createComment(
             @RequestHeader("X-Sharer-User-Id") long userId,
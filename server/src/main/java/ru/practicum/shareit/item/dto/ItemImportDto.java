@@ -0,0 +1,19 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Строка импорта предметов: в отличие от ItemDto, владелец указывается в самой строке.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemImportDto {
+    private Long ownerId;
+    private String name;
+    private String description;
+    private Boolean available;
+    private Long requestId;
+}
@@ -0,0 +1,24 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.practicum.shareit.item.model.Item;
+
+/**
+ * Поля предмета, по которым строятся поисковый индекс и подсказки по названию.
+ */
+@Data
+@AllArgsConstructor
+public class ItemSearchEntry {
+    private Long id;
+    private String name;
+    private String description;
+    private Integer rentals;
+    private Boolean available;
+    private Long version;
+
+    public static ItemSearchEntry of(Item item) {
+        return new ItemSearchEntry(item.getId(), item.getName(), item.getDescription(), item.getRentals(),
+                item.getAvailable(), item.getVersion());
+    }
+}
@@ -15,8 +15,11 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.Version;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -29,7 +32,8 @@ import java.util.List;
 @NoArgsConstructor
 public class Item {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", sequenceName = "items_seq", allocationSize = 50)
     private Long id;
     @Column(name = "name", nullable = false)
     private String name;
@@ -51,6 +55,25 @@ public class Item {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "request_id")
     private ItemRequest request;
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+    /**
+     * Последнее и ближайшее подтверждённые бронирования. Пишутся только запросами ItemRepository
+     * из ItemBookingTracker, сохранение предмета их не перезаписывает.
+     */
+    @Column(name = "last_booking_id", insertable = false, updatable = false)
+    private Long lastBookingId;
+    @Column(name = "last_booker_id", insertable = false, updatable = false)
+    private Long lastBookerId;
+    @Column(name = "last_booking_start", insertable = false, updatable = false)
+    private LocalDateTime lastBookingStart;
+    @Column(name = "next_booking_id", insertable = false, updatable = false)
+    private Long nextBookingId;
+    @Column(name = "next_booker_id", insertable = false, updatable = false)
+    private Long nextBookerId;
+    @Column(name = "next_booking_start", insertable = false, updatable = false)
+    private LocalDateTime nextBookingStart;
 
     public Item(Long id, String name, String description, int rentals, Boolean available) {
         this.id = id;
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Поиск средствами любой БД без состояния в памяти сервера: подстрока ищется через LIKE по возрастанию id.
+ * Индексом такой запрос не ускоряется, в PostgreSQL для больших каталогов есть режим full-text.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.item-search.mode", havingValue = "database")
+@RequiredArgsConstructor
+public class DatabaseItemSearchEngine implements ItemSearchEngine {
+    private final ItemRepository itemRepository;
+
+    @Override
+    public List<Item> search(String text, long offset, int size) {
+        return itemRepository
+                .findByAvailableTrueAndNameContainingIgnoreCaseOrAvailableTrueAndDescriptionContainingIgnoreCase(
+                        text, text, PageRequest.of((int) (offset / size), size, Sort.by("id")));
+    }
+
+    /**
+     * LIKE ищет текст целиком вместе со знаками, поэтому ключ отличается от запроса только регистром.
+     */
+    @Override
+    public String cacheKey(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
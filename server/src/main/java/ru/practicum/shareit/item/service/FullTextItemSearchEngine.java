@@ -0,0 +1,54 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Полнотекстовый поиск PostgreSQL без состояния в памяти сервера.
+ * Запрос идёт по столбцу search_vector с GIN-индексом: каждое слово запроса ищется как начало
+ * слова предмета после приведения к основе, результаты упорядочены по ts_rank, совпадения в названии весят больше.
+ * Произвольные подстроки внутри слова, в отличие от индекса в памяти, не находятся.
+ * Столбец и индекс добавляет миграция из db/item-search/full-text/postgresql, другие базы этот режим не поддерживают.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.item-search.mode", havingValue = "full-text")
+@RequiredArgsConstructor
+public class FullTextItemSearchEngine implements ItemSearchEngine {
+    private final ItemRepository itemRepository;
+
+    @Override
+    public List<Item> search(String text, long offset, int size) {
+        String query = toTsQuery(text);
+
+        if (query.isEmpty()) {
+            return List.of();
+        }
+
+        return itemRepository.findAvailableByFullText(query, PageRequest.of((int) (offset / size), size));
+    }
+
+    /**
+     * Ключ кэша — сам запрос к to_tsquery: ё в нём не заменяется на е, и основы для таких слов могут различаться.
+     */
+    @Override
+    public String cacheKey(String text) {
+        return toTsQuery(text);
+    }
+
+    /**
+     * Слова из букв и цифр, соединённые через &amp; с поиском по префиксу. Других символов в результате нет,
+     * поэтому синтаксис to_tsquery из пользовательского текста не сломать.
+     */
+    static String toTsQuery(String text) {
+        return ItemSearchIndex.tokenize(text).stream()
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
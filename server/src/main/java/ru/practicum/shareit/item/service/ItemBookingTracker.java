@@ -0,0 +1,113 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingPhaseChangedEvent;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ведёт последнее и ближайшее подтверждённые бронирования в строке предмета.
+ * Подтверждение заказа сдвигает их условным UPDATE, а когда ближайшее бронирование начинается,
+ * пара пересчитывается по событию BookingPhaseScheduler, поэтому чтение предметов ничего не пишет.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemBookingTracker {
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+
+    public void onApproved(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        Long bookerId = booking.getBooker().getId();
+
+        if (booking.getStart().isAfter(LocalDateTime.now())) {
+            itemRepository.updateNextBookingIfEarlier(itemId, booking.getId(), bookerId, booking.getStart());
+        } else {
+            itemRepository.updateLastBookingIfLater(itemId, booking.getId(), bookerId, booking.getStart());
+        }
+    }
+
+    /**
+     * Пересчитывает бронирования предметов, у которых начался заказ, записанный ближайшим.
+     */
+    @EventListener
+    @Transactional
+    public void onPhaseChanged(BookingPhaseChangedEvent event) {
+        if (event.getPhase() != BookingPhase.CURRENT) {
+            return;
+        }
+
+        refresh(itemRepository.findAllByNextBookingIdIn(event.getBookingIds()));
+    }
+
+    /**
+     * Пересчитывает бронирования предметов, у которых ближайшим всё ещё записан перенесённый в архив заказ.
+     */
+    public void onArchived(Collection<Long> bookingIds) {
+        refresh(itemRepository.findAllByNextBookingIdIn(bookingIds));
+    }
+
+    private void refresh(List<Item> items) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Item> staleItems = new ArrayList<>();
+        List<Long> staleIds = new ArrayList<>();
+
+        for (Item item : items) {
+            if (item.getNextBookingStart() != null && !item.getNextBookingStart().isAfter(now)) {
+                staleItems.add(item);
+                staleIds.add(item.getId());
+            }
+        }
+
+        if (staleItems.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Booking> lastBookings = groupBookingsByItem(
+                bookingRepository.findLastBookingsByItemIds(staleIds, BookingStatus.APPROVED, now));
+        Map<Long, Booking> nextBookings = groupBookingsByItem(
+                bookingRepository.findNextBookingsByItemIds(staleIds, BookingStatus.APPROVED, now));
+
+        for (Item item : staleItems) {
+            Booking last = lastBookings.get(item.getId());
+            Booking next = nextBookings.get(item.getId());
+            Long expectedNextId = item.getNextBookingId();
+            log.debug("Пересчёт бронирований предмета с id = {}", item.getId());
+            itemRepository.replaceBookingsIfNextIs(
+                    item.getId(),
+                    last == null ? null : last.getId(),
+                    last == null ? null : last.getBooker().getId(),
+                    last == null ? null : last.getStart(),
+                    next == null ? null : next.getId(),
+                    next == null ? null : next.getBooker().getId(),
+                    next == null ? null : next.getStart(),
+                    expectedNextId);
+        }
+    }
+
+    private Map<Long, Booking> groupBookingsByItem(List<Booking> bookings) {
+        Map<Long, Booking> bookingsByItem = new HashMap<>();
+
+        for (Booking booking : bookings) {
+            bookingsByItem.putIfAbsent(booking.getItem().getId(), booking);
+        }
+
+        return bookingsByItem;
+    }
+}
@@ -0,0 +1,186 @@
+package ru.practicum.shareit.item.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Календарь занятости предметов: отсортированные непересекающиеся интервалы подтверждённых заказов.
+ * Хранится до следующего изменения заказов предмета, не больше maxItems предметов (LRU).
+ * Загрузка календаря помечается номером в loads; сброс предмета снимает пометку, и календарь,
+ * загруженный до сброса, в кэш уже не попадёт. Сброс других предметов загрузке не мешает.
+ */
+@Component
+public class ItemCalendarCache {
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    private final BookingRepository bookingRepository;
+    private final Map<Long, ItemCalendar> calendars;
+    private final Map<Long, Long> loads = new HashMap<>();
+    private long lastLoad;
+
+    public ItemCalendarCache(BookingRepository bookingRepository,
+                             @Value("${shareit.item-calendar.max-items:10000}") int maxItems) {
+        this.bookingRepository = bookingRepository;
+        this.calendars = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ItemCalendar> eldest) {
+                return size() > maxItems;
+            }
+        };
+    }
+
+    public List<FreeIntervalDto> getFreeIntervals(Long itemId, LocalDateTime from, LocalDateTime to) {
+        ItemCalendar calendar;
+        long load = 0;
+
+        synchronized (this) {
+            calendar = calendars.get(itemId);
+
+            if (calendar == null) {
+                load = ++lastLoad;
+                loads.put(itemId, load);
+            }
+        }
+
+        if (calendar == null) {
+            try {
+                calendar = load(itemId);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    loads.remove(itemId, load);
+                }
+
+                throw e;
+            }
+
+            synchronized (this) {
+                // за время загрузки календарь предмета мог устареть
+                if (loads.remove(itemId, load)) {
+                    calendars.put(itemId, calendar);
+                }
+            }
+        }
+
+        return calendar.freeIntervals(toMicros(from), toMicros(to));
+    }
+
+    /**
+     * Сбрасывает календарь предмета после коммита текущей транзакции.
+     */
+    public void invalidate(Long itemId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(itemId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(itemId);
+            }
+        });
+    }
+
+    private synchronized void evict(Long itemId) {
+        loads.remove(itemId);
+        calendars.remove(itemId);
+    }
+
+    private ItemCalendar load(Long itemId) {
+        List<Booking> bookings = new ArrayList<>(bookingRepository.findAllByItemIdAndStatusInAndEndAfter(
+                itemId, List.of(BookingStatus.APPROVED), LocalDateTime.now()));
+        bookings.sort(Comparator.comparing(Booking::getStart));
+        long[] starts = new long[bookings.size()];
+        long[] ends = new long[bookings.size()];
+        int size = 0;
+
+        for (Booking booking : bookings) {
+            long start = toMicros(booking.getStart());
+            long end = toMicros(booking.getEnd());
+
+            if (size > 0 && start <= ends[size - 1]) {
+                ends[size - 1] = Math.max(ends[size - 1], end);
+            } else {
+                starts[size] = start;
+                ends[size] = end;
+                size++;
+            }
+        }
+
+        return new ItemCalendar(starts, ends, size);
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + time.getNano() / 1000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000,
+                ZoneOffset.UTC);
+    }
+
+    private static class ItemCalendar {
+        private final long[] starts;
+        private final long[] ends;
+        private final int size;
+
+        ItemCalendar(long[] starts, long[] ends, int size) {
+            this.starts = starts;
+            this.ends = ends;
+            this.size = size;
+        }
+
+        List<FreeIntervalDto> freeIntervals(long from, long to) {
+            List<FreeIntervalDto> free = new ArrayList<>();
+            long cursor = from;
+
+            for (int i = firstEndingAfter(from); i < size && starts[i] < to; i++) {
+                if (starts[i] > cursor) {
+                    free.add(new FreeIntervalDto(fromMicros(cursor), fromMicros(starts[i])));
+                }
+
+                cursor = Math.max(cursor, ends[i]);
+            }
+
+            if (cursor < to) {
+                free.add(new FreeIntervalDto(fromMicros(cursor), fromMicros(to)));
+            }
+
+            return free;
+        }
+
+        private int firstEndingAfter(long time) {
+            int low = 0;
+            int high = size;
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+
+                if (ends[middle] <= time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.item.service;
+
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
+
+/**
+ * Структура в памяти, построенная по предметам. Все предметы при запуске и их изменения после коммита
+ * доставляет ItemChangePublisher, поэтому реализации не читают БД и не следят за транзакциями сами.
+ */
+public interface ItemChangeListener {
+    /**
+     * Предмет прочитан при запуске, создан или изменён. Из двух версий одного предмета должна остаться более новая.
+     */
+    void onSaved(ItemSearchEntry item);
+
+    /**
+     * Предмет удалён вместе с владельцем.
+     */
+    void onDeleted(ItemSearchEntry item);
+}
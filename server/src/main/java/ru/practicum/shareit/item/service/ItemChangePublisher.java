@@ -0,0 +1,120 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Доставляет предметы в поисковый индекс и подсказки: при запуске один проход по таблице items на всех,
+ * дальше изменения после коммита транзакции, в которой они сделаны. Кэш результатов поиска сбрасывается
+ * последним, когда индексы уже изменены, иначе он успел бы запомнить страницу по старому индексу.
+ */
+@Slf4j
+@Component
+public class ItemChangePublisher {
+    private final ItemRepository itemRepository;
+    private final List<ItemChangeListener> listeners;
+    private final ItemSearchCache searchCache;
+    private final TransactionTemplate transactionTemplate;
+
+    public ItemChangePublisher(ItemRepository itemRepository,
+                               List<ItemChangeListener> listeners,
+                               ItemSearchCache searchCache,
+                               PlatformTransactionManager transactionManager) {
+        this.itemRepository = itemRepository;
+        this.listeners = listeners;
+        this.searchCache = searchCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Вызывается до запуска веб-сервера, поэтому первые запросы поиска уже видят все предметы.
+     */
+    @PostConstruct
+    public void load() {
+        AtomicInteger count = new AtomicInteger();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ItemSearchEntry> items = itemRepository.streamSearchEntries()) {
+                items.forEach(item -> {
+                    listeners.forEach(listener -> listener.onSaved(item));
+                    count.incrementAndGet();
+                });
+            }
+        });
+
+        log.info("Предметы загружены в поисковые структуры: {}", count.get());
+    }
+
+    /**
+     * Созданные или изменённые предметы; previousTexts — их названия и описания до изменения.
+     * Версия читается после коммита, когда Hibernate уже увеличил её при сбросе изменений.
+     */
+    public void onSaved(Collection<Item> items, Collection<String> previousTexts) {
+        afterCommit(() -> {
+            List<Long> ids = new ArrayList<>();
+            List<String> texts = new ArrayList<>(previousTexts);
+
+            for (Item item : items) {
+                ItemSearchEntry entry = ItemSearchEntry.of(item);
+                listeners.forEach(listener -> listener.onSaved(entry));
+                ids.add(item.getId());
+                texts.add(item.getName());
+                texts.add(item.getDescription());
+            }
+
+            searchCache.invalidate(ids, texts);
+        });
+    }
+
+    /**
+     * Предметы, которые удалит транзакция: их нужно прочитать до удаления.
+     */
+    public void onDeleted(Collection<ItemSearchEntry> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        afterCommit(() -> {
+            List<Long> ids = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+
+            for (ItemSearchEntry item : items) {
+                listeners.forEach(listener -> listener.onDeleted(item));
+                ids.add(item.getId());
+                texts.add(item.getName());
+                texts.add(item.getDescription());
+            }
+
+            searchCache.invalidate(ids, texts);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
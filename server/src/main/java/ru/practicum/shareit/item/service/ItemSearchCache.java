@@ -0,0 +1,279 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Страницы результатов поиска предметов по ключу (запрос в виде, который видит движок поиска, смещение, размер).
+ * Объём ограничен maxSize по оценке занимаемой памяти, при переполнении вытесняются давно не читанные страницы,
+ * страница старше ttl загружается заново. После коммита изменения предмета (его доставляет ItemChangePublisher)
+ * сбрасываются страницы, у запроса которых есть слово, входящее в старое или новое слово предмета либо
+ * начинающееся с тех же трёх букв: так учитываются и поиск по основам в БД, и большинство опечаток нечёткого
+ * поиска. Кроме того, сбрасываются страницы, в которых есть сам изменённый предмет: страница нечёткого поиска
+ * может не иметь со словами предмета ничего общего. Страницы находятся по словам запроса через подстроки и начала
+ * слов предмета и по id предметов, без перебора кэша; если слов больше MAX_INVALIDATION_TERMS,
+ * как при большом импорте, кэш очищается целиком.
+ */
+@Slf4j
+@Component
+public class ItemSearchCache {
+    static final int ENTRY_OVERHEAD_BYTES = 256;
+    static final int ITEM_OVERHEAD_BYTES = 96;
+    static final int COMMON_PREFIX = 3;
+    static final int MAX_INVALIDATION_TERMS = 1000;
+
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> keysByToken = new HashMap<>();
+    private final Map<String, Set<Key>> keysByPrefix = new HashMap<>();
+    private final Map<Long, Set<Key>> keysByItemId = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private long bytes;
+    private long generation;
+
+    public ItemSearchCache(@Value("${shareit.item-search.cache.max-size:4MB}") DataSize maxSize,
+                           @Value("${shareit.item-search.cache.ttl:PT10M}") Duration ttl) {
+        this.maxBytes = maxSize.toBytes();
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Страница из кэша или от loader; query — ключ из ItemSearchEngine.cacheKey, запросы с одинаковым ключом
+     * делят страницы. Запросы без слов не кэшируются: их нельзя сопоставить с изменениями предметов.
+     */
+    public List<ItemDto> get(String query, long offset, int size, Supplier<List<ItemDto>> loader) {
+        List<String> tokens = ItemSearchIndex.tokenize(ItemSearchIndex.normalize(query));
+
+        if (maxBytes <= 0 || tokens.isEmpty()) {
+            return loader.get();
+        }
+
+        Key key = new Key(query, offset, size);
+        long loadedGeneration;
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+
+            if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+                hits.increment();
+                return new ArrayList<>(entry.page);
+            }
+
+            if (entry != null) {
+                remove(key);
+            }
+
+            loadedGeneration = generation;
+        }
+
+        misses.increment();
+        List<ItemDto> page = loader.get();
+        Entry entry = new Entry(tokens, List.copyOf(page), weigh(key, page), System.nanoTime());
+
+        synchronized (this) {
+            // за время загрузки предметы могли измениться
+            if (loadedGeneration == generation && entry.bytes <= maxBytes) {
+                remove(key);
+                put(key, entry);
+                evictOverflow();
+            }
+        }
+
+        return page;
+    }
+
+    /**
+     * Сбрасывает страницы с изменёнными предметами и страницы, на которые могли повлиять их прежние и новые тексты.
+     */
+    public void invalidate(Collection<Long> itemIds, Collection<String> texts) {
+        Set<String> terms = new HashSet<>();
+
+        for (String text : texts) {
+            if (text != null) {
+                terms.addAll(ItemSearchIndex.tokenize(ItemSearchIndex.normalize(text)));
+            }
+        }
+
+        evict(Set.copyOf(itemIds), terms);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.item-search.cache.stats-interval:PT10M}")
+    public void logStats() {
+        synchronized (this) {
+            log.info("Кэш поиска: попаданий {}, промахов {}, вытеснений {}, сбросов {}, страниц {}, байт {}",
+                    hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size(), bytes);
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    long invalidations() {
+        return invalidations.sum();
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private synchronized void evict(Set<Long> itemIds, Set<String> terms) {
+        generation++;
+
+        if (terms.size() > MAX_INVALIDATION_TERMS) {
+            invalidations.add(entries.size());
+            entries.clear();
+            keysByToken.clear();
+            keysByPrefix.clear();
+            keysByItemId.clear();
+            bytes = 0;
+            return;
+        }
+
+        Set<Key> affected = new HashSet<>();
+
+        for (Long itemId : itemIds) {
+            affected.addAll(keysByItemId.getOrDefault(itemId, Set.of()));
+        }
+
+        for (String term : terms) {
+            // слова запроса, входящие в слово предмета
+            for (int start = 0; start < term.length(); start++) {
+                for (int end = start + 1; end <= term.length(); end++) {
+                    affected.addAll(keysByToken.getOrDefault(term.substring(start, end), Set.of()));
+                }
+            }
+
+            // слова запроса от трёх букв с тем же началом; более короткие уже нашлись как подстроки
+            if (term.length() >= COMMON_PREFIX) {
+                affected.addAll(keysByPrefix.getOrDefault(term.substring(0, COMMON_PREFIX), Set.of()));
+            }
+        }
+
+        for (Key key : affected) {
+            remove(key);
+            invalidations.increment();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, Entry> eldest = iterator.next();
+            iterator.remove();
+            unindex(eldest.getKey(), eldest.getValue());
+            evictions.increment();
+        }
+    }
+
+    private void put(Key key, Entry entry) {
+        entries.put(key, entry);
+        bytes += entry.bytes;
+
+        for (String token : entry.tokens) {
+            keysByToken.computeIfAbsent(token, k -> new HashSet<>()).add(key);
+
+            if (token.length() >= COMMON_PREFIX) {
+                keysByPrefix.computeIfAbsent(token.substring(0, COMMON_PREFIX), k -> new HashSet<>()).add(key);
+            }
+        }
+
+        for (ItemDto item : entry.page) {
+            keysByItemId.computeIfAbsent(item.getId(), k -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+
+        if (entry != null) {
+            unindex(key, entry);
+        }
+    }
+
+    private void unindex(Key key, Entry entry) {
+        bytes -= entry.bytes;
+
+        for (String token : entry.tokens) {
+            removeKey(keysByToken, token, key);
+
+            if (token.length() >= COMMON_PREFIX) {
+                removeKey(keysByPrefix, token.substring(0, COMMON_PREFIX), key);
+            }
+        }
+
+        for (ItemDto item : entry.page) {
+            removeKey(keysByItemId, item.getId(), key);
+        }
+    }
+
+    private static <K> void removeKey(Map<K, Set<Key>> index, K indexKey, Key key) {
+        Set<Key> keys = index.get(indexKey);
+
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(indexKey);
+        }
+    }
+
+    private static long weigh(Key key, List<ItemDto> page) {
+        long weight = ENTRY_OVERHEAD_BYTES + 2L * key.text.length();
+
+        for (ItemDto item : page) {
+            weight += ITEM_OVERHEAD_BYTES + 2L * (length(item.getName()) + length(item.getDescription()));
+        }
+
+        return weight;
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class Key {
+        private final String text;
+        private final long offset;
+        private final int size;
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final List<String> tokens;
+        private final List<ItemDto> page;
+        private final long bytes;
+        private final long loadedAt;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.item.service;
+
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+
+/**
+ * Поиск доступных предметов по тексту. Реализация выбирается свойством shareit.item-search.mode:
+ * index — инвертированный индекс в памяти, database — поиск подстроки средствами любой БД,
+ * full-text — полнотекстовый поиск PostgreSQL.
+ */
+public interface ItemSearchEngine {
+    List<Item> search(String text, long offset, int size);
+
+    /**
+     * Ключ кэша страниц: тексты с одинаковым ключом дают одинаковые результаты.
+     * По умолчанию слова запроса в нижнем регистре через пробел, без знаков препинания и повторов.
+     */
+    default String cacheKey(String text) {
+        return String.join(" ", ItemSearchIndex.tokenize(ItemSearchIndex.normalize(text)));
+    }
+}
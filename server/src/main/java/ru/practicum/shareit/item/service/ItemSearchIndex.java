@@ -0,0 +1,455 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Инвертированный индекс для поиска доступных предметов по подстроке названия или описания.
+ * Текст разбивается на слова из букв и цифр в нижнем регистре, на каждое слово хранится отсортированный
+ * массив id предметов. Кандидаты — доступные предметы, у которых каждое слово запроса входит в какое-нибудь
+ * их слово (слова индекса с подстрокой от трёх букв находятся по её триграммам); если запрос не одно слово
+ * целиком, кандидаты дополнительно проверяются по тексту из БД.
+ * Буква ё приравнивается к е. Если ни один доступный предмет не подходит, включается нечёткий поиск:
+ * слова запроса сопоставляются со словами индекса по триграммам, предметы ранжируются по сумме сходства слов.
+ * Индекс строится при запуске и меняется после коммита, из двух версий одного предмета остаётся более новая.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.item-search.mode", havingValue = "index", matchIfMissing = true)
+public class ItemSearchIndex implements ItemSearchEngine, ItemChangeListener {
+    static final int LOAD_BATCH_SIZE = 500;
+
+    private final ItemRepository itemRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final BitSet available = new BitSet();
+    private final TrigramIndex trigrams = new TrigramIndex();
+    private final boolean fuzzy;
+    private final double similarityThreshold;
+    private final Duration fuzzyBudget;
+
+    public ItemSearchIndex(ItemRepository itemRepository,
+                           @Value("${shareit.item-search.fuzzy.enabled:true}") boolean fuzzy,
+                           @Value("${shareit.item-search.fuzzy.threshold:0.3}") double similarityThreshold,
+                           @Value("${shareit.item-search.fuzzy.budget:PT0.1S}") Duration fuzzyBudget) {
+        this.itemRepository = itemRepository;
+        this.fuzzy = fuzzy;
+        this.similarityThreshold = similarityThreshold;
+        this.fuzzyBudget = fuzzyBudget;
+    }
+
+    @Override
+    public void onSaved(ItemSearchEntry item) {
+        index(item.getId(), item.getName(), item.getDescription(), item.getAvailable(), item.getVersion());
+    }
+
+    @Override
+    public void onDeleted(ItemSearchEntry item) {
+        int id = Math.toIntExact(item.getId());
+        lock.writeLock().lock();
+
+        try {
+            Document old = documents.remove(id);
+
+            if (old != null) {
+                removePostings(id, old);
+            }
+
+            available.clear(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Страница доступных предметов, содержащих text в названии или описании, по возрастанию id.
+     * Если ни один предмет не прошёл проверку, страница нечётких совпадений по убыванию сходства.
+     */
+    @Override
+    public List<Item> search(String text, long offset, int size) {
+        String query = normalize(text);
+        List<String> tokens = tokenize(query);
+
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        BitSet candidates = findCandidates(tokens);
+        // одно слово без разделителей входит в текст, только если входит в одно из его слов: проверка не нужна
+        boolean exact = tokens.size() == 1 && tokens.get(0).equals(query);
+        int next = candidates.nextSetBit(0);
+        long skip = offset;
+
+        // пропуск считает только предметы, которые есть в БД и доступны, иначе удалённые или скрытые
+        // после последнего изменения индекса сдвинули бы страницу
+        while (exact && skip > 0 && next >= 0) {
+            List<Long> ids = new ArrayList<>();
+            long batchSize = Math.min(skip, LOAD_BATCH_SIZE);
+
+            for (; next >= 0 && ids.size() < batchSize; next = candidates.nextSetBit(next + 1)) {
+                ids.add((long) next);
+            }
+
+            skip -= itemRepository.countByIdInAndAvailableTrue(ids);
+        }
+
+        boolean found = skip < offset;
+        List<Item> page = new ArrayList<>();
+
+        while (next >= 0 && page.size() < size) {
+            List<Long> ids = new ArrayList<>();
+            int batchSize = exact ? size - page.size() : LOAD_BATCH_SIZE;
+
+            for (; next >= 0 && ids.size() < batchSize; next = candidates.nextSetBit(next + 1)) {
+                ids.add((long) next);
+            }
+
+            List<Item> items = itemRepository.findAllById(ids);
+            items.sort(Comparator.comparing(Item::getId));
+
+            for (Item item : items) {
+                if (!matches(item, query)) {
+                    continue;
+                }
+
+                found = true;
+
+                if (skip > 0) {
+                    skip--;
+                } else if (page.size() < size) {
+                    page.add(item);
+                }
+            }
+        }
+
+        // кандидаты по словам могли не пройти проверку по тексту, тогда совпадений нет вовсе
+        if (!found && fuzzy) {
+            return loadRanked(findSimilar(tokens, offset + size), offset, size);
+        }
+
+        return page;
+    }
+
+    int countDocuments() {
+        lock.readLock().lock();
+
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    static List<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int start = -1;
+
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+
+        return new ArrayList<>(tokens);
+    }
+
+    private BitSet findCandidates(List<String> tokens) {
+        lock.readLock().lock();
+
+        try {
+            BitSet candidates = (BitSet) available.clone();
+
+            for (String token : tokens) {
+                BitSet matching = new BitSet();
+
+                if (token.length() >= 3) {
+                    for (String term : trigrams.findContaining(token)) {
+                        postings.get(term).addTo(matching);
+                    }
+                } else {
+                    // у слова короче трёх букв нет своих триграмм: просматриваются все слова
+                    for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                        if (entry.getKey().contains(token)) {
+                            entry.getValue().addTo(matching);
+                        }
+                    }
+                }
+
+                candidates.and(matching);
+
+                if (candidates.isEmpty()) {
+                    break;
+                }
+            }
+
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Первые limit id доступных предметов по убыванию суммы сходства слов запроса с их словами,
+     * при равенстве по возрастанию id. Для каждого слова запроса у предмета учитывается самое похожее его слово.
+     * Бюджет времени проверяется и при подборе похожих слов, и при обходе их списков предметов.
+     */
+    private List<Integer> findSimilar(List<String> tokens, long limit) {
+        long deadline = System.nanoTime() + fuzzyBudget.toNanos();
+        Map<Integer, Double> scores = new HashMap<>();
+        int visited = 0;
+        lock.readLock().lock();
+
+        try {
+            for (String token : tokens) {
+                Map<Integer, Double> best = new HashMap<>();
+                boolean expired = false;
+
+                terms:
+                for (Map.Entry<String, Double> term : trigrams.findSimilar(token, similarityThreshold, deadline)
+                        .entrySet()) {
+                    double similarity = term.getValue();
+                    Postings termPostings = postings.get(term.getKey());
+
+                    for (int i = 0; i < termPostings.size(); i++) {
+                        int id = termPostings.get(i);
+
+                        if (available.get(id)) {
+                            best.merge(id, similarity, Math::max);
+                        }
+
+                        if ((++visited & TrigramIndex.DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) {
+                            expired = true;
+                            break terms;
+                        }
+                    }
+                }
+
+                best.forEach((id, similarity) -> scores.merge(id, similarity, Double::sum));
+
+                if (expired || System.nanoTime() - deadline > 0) {
+                    log.debug("Нечёткий поиск прерван по времени на слове {}", token);
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return top(scores, limit);
+    }
+
+    /**
+     * Лучшие limit id без сортировки всех оценок: в куче остаются limit лучших, в корне худший из них.
+     */
+    private static List<Integer> top(Map<Integer, Double> scores, long limit) {
+        Comparator<Integer> order = Comparator.<Integer>comparingDouble(scores::get).reversed()
+                .thenComparing(id -> id);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(order.reversed());
+
+        for (Integer id : scores.keySet()) {
+            if (heap.size() < limit) {
+                heap.add(id);
+            } else if (order.compare(id, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(id);
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>(heap);
+        ranked.sort(order);
+        return ranked;
+    }
+
+    private List<Item> loadRanked(List<Integer> ranked, long offset, int size) {
+        if (offset >= ranked.size()) {
+            return List.of();
+        }
+
+        List<Long> ids = new ArrayList<>();
+
+        for (int id : ranked.subList((int) offset, (int) Math.min(offset + size, ranked.size()))) {
+            ids.add((long) id);
+        }
+
+        Map<Long, Item> items = new HashMap<>();
+
+        for (Item item : itemRepository.findAllById(ids)) {
+            items.put(item.getId(), item);
+        }
+
+        List<Item> page = new ArrayList<>();
+
+        for (Long id : ids) {
+            Item item = items.get(id);
+
+            if (item != null && Boolean.TRUE.equals(item.getAvailable())) {
+                page.add(item);
+            }
+        }
+
+        return page;
+    }
+
+    private static boolean matches(Item item, String query) {
+        return Boolean.TRUE.equals(item.getAvailable())
+                && (normalize(item.getName()).contains(query)
+                || normalize(item.getDescription()).contains(query));
+    }
+
+    private void index(Long itemId, String name, String description, Boolean itemAvailable, long version) {
+        int id = Math.toIntExact(itemId);
+        Set<String> terms = new LinkedHashSet<>(tokenize(normalize(name)));
+        terms.addAll(tokenize(normalize(description)));
+        lock.writeLock().lock();
+
+        try {
+            Document old = documents.get(id);
+
+            if (old != null) {
+                if (old.version > version) {
+                    return;
+                }
+
+                removePostings(id, old);
+            }
+
+            Postings[] documentPostings = new Postings[terms.size()];
+            int i = 0;
+
+            for (String term : terms) {
+                Postings termPostings = postings.computeIfAbsent(term, key -> {
+                    trigrams.add(key);
+                    return new Postings(key);
+                });
+                termPostings.add(id);
+                documentPostings[i++] = termPostings;
+            }
+
+            documents.put(id, new Document(documentPostings, version));
+            available.set(id, Boolean.TRUE.equals(itemAvailable));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removePostings(int id, Document document) {
+        for (Postings termPostings : document.postings) {
+            if (termPostings.remove(id) && termPostings.isEmpty()) {
+                postings.remove(termPostings.term);
+                trigrams.remove(termPostings.term);
+            }
+        }
+    }
+
+    /**
+     * Списки слов предмета: по ним id убирается из индекса при следующем изменении предмета.
+     */
+    private static final class Document {
+        private final Postings[] postings;
+        private final long version;
+
+        private Document(Postings[] postings, long version) {
+            this.postings = postings;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Отсортированный по возрастанию массив id без повторов. Новые предметы получают большие id,
+     * поэтому обычно id просто дописывается в конец.
+     */
+    static final class Postings {
+        private final String term;
+        private int[] ids = new int[2];
+        private int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int id) {
+            int index = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+
+            if (index >= 0 && index < size) {
+                return;
+            }
+
+            if (index < 0) {
+                index = -index - 1;
+            }
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+
+            if (index < 0) {
+                return false;
+            }
+
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return ids[index];
+        }
+
+        void addTo(BitSet set) {
+            forEach(set::set);
+        }
+
+        void forEach(IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(ids[i]);
+            }
+        }
+    }
+}
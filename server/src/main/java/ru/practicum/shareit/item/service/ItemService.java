@@ -1,9 +1,13 @@
 package ru.practicum.shareit.item.service;
 
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemCommentAndBookingDto;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 
@@ -18,7 +22,13 @@ public interface ItemService {
 
     List<ItemDto> search(String text, Integer from, Integer size);
 
+    List<String> suggest(String prefix, Integer limit);
+
     CommentDto createComment(Long userId, Long itemId, CommentDto comment);
 
     List<CommentDto> getCommentsByItem(Long itemId);
+
+    List<FreeIntervalDto> getAvailability(Long itemId, LocalDateTime from, LocalDateTime to);
+
+    List<ImportResultDto> importItems(List<ItemImportDto> items);
 }
@@ -6,15 +6,21 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.dto.BookingMapper;
+import ru.practicum.shareit.booking.dto.BookingWithBookerIdDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingArchiveRepository;
 import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.bulk.BulkInserter;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
 import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CommentMapper;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemCommentAndBookingDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportDto;
 import ru.practicum.shareit.item.dto.ItemMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
@@ -29,8 +35,12 @@ import javax.validation.ValidationException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -38,12 +48,19 @@ import java.util.Optional;
 public class ItemServiceImpl implements ItemService {
     private final ItemMapper itemMapper;
     private final CommentMapper commentMapper;
-    private final BookingMapper bookingMapper;
     private final ItemRepository itemRepository;
     private final CommentRepository commentRepository;
     private final BookingRepository bookingRepository;
+    private final BookingArchiveRepository archiveRepository;
+    private final BookingMapper bookingMapper;
     private final UserRepository userRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemCalendarCache calendarCache;
+    private final BulkInserter bulkInserter;
+    private final ItemSearchEngine searchEngine;
+    private final ItemSearchCache searchCache;
+    private final ItemSuggestIndex suggestIndex;
+    private final ItemChangePublisher itemChanges;
 
     @Override
     @Transactional
@@ -70,7 +87,9 @@ public class ItemServiceImpl implements ItemService {
             item.setRequest(requestOptional.get());
         }
 
-        ItemDto newItemDto = itemMapper.toItemDto(itemRepository.save(item));
+        Item savedItem = itemRepository.save(item);
+        itemChanges.onSaved(List.of(savedItem), List.of());
+        ItemDto newItemDto = itemMapper.toItemDto(savedItem);
         newItemDto.setRequestId(requestId);
 
         return newItemDto;
@@ -100,34 +119,31 @@ public class ItemServiceImpl implements ItemService {
             throw new ConflictException("Пользователь не владелец предмета");
         }
 
-        Item item;
-
-        if (itemDto.getAvailable() != null && itemDto.getDescription() != null && itemDto.getName() != null) {
-            item = itemMapper.toItem(itemDto);
-            item.setOwner(owner);
-            return itemMapper.toItemDto(itemRepository.save(item));
-        } else if (itemDto.getAvailable() != null) {
-            itemDto.setName(itemInStorage.get().getName());
-            itemDto.setDescription(itemInStorage.get().getDescription());
-            item = itemMapper.toItem(itemDto);
-            item.setOwner(owner);
-            return itemMapper.toItemDto(itemRepository.save(item));
-        } else if (itemDto.getName() != null) {
-            itemDto.setDescription(itemInStorage.get().getDescription());
-            itemDto.setAvailable(itemInStorage.get().getAvailable());
-            item = itemMapper.toItem(itemDto);
-            item.setOwner(owner);
-            return itemMapper.toItemDto(itemRepository.save(item));
-        } else if (itemDto.getDescription() != null) {
-            itemDto.setName(itemInStorage.get().getName());
-            itemDto.setAvailable(itemInStorage.get().getAvailable());
-            item = itemMapper.toItem(itemDto);
-            item.setOwner(owner);
-            return itemMapper.toItemDto(itemRepository.save(item));
-        } else {
-            log.error(String.valueOf(itemDto));
-            throw new NotFoundException("Предмет не найден");
+        if (itemDto.getAvailable() == null || itemDto.getDescription() == null || itemDto.getName() == null) {
+            if (itemDto.getAvailable() != null) {
+                itemDto.setName(itemInStorage.get().getName());
+                itemDto.setDescription(itemInStorage.get().getDescription());
+            } else if (itemDto.getName() != null) {
+                itemDto.setDescription(itemInStorage.get().getDescription());
+                itemDto.setAvailable(itemInStorage.get().getAvailable());
+            } else if (itemDto.getDescription() != null) {
+                itemDto.setName(itemInStorage.get().getName());
+                itemDto.setAvailable(itemInStorage.get().getAvailable());
+            } else {
+                log.error(String.valueOf(itemDto));
+                throw new NotFoundException("Предмет не найден");
+            }
         }
+
+        Item item = itemMapper.toItem(itemDto);
+        item.setOwner(owner);
+        // версия прочитанного предмета: параллельное изменение закончится конфликтом, а не перезаписью
+        item.setVersion(itemInStorage.get().getVersion());
+        // старый текст читается до save: слияние перезапишет поля прочитанного предмета
+        List<String> previousTexts = List.of(itemInStorage.get().getName(), itemInStorage.get().getDescription());
+        Item savedItem = itemRepository.save(item);
+        itemChanges.onSaved(List.of(savedItem), previousTexts);
+        return itemMapper.toItemDto(savedItem);
     }
 
     @Override
@@ -140,31 +156,11 @@ public class ItemServiceImpl implements ItemService {
             throw new NotFoundException("Не найден предмет с id = " + id);
         }
 
-        ItemCommentAndBookingDto itemDto = itemMapper.toItemWithCommentDto(itemOptional.get());
-
-        if (itemOptional.get().getOwner().getId().equals(userId)) {
-            Optional<Booking> lastBooking = bookingRepository.findByItemIdAndStatusIsAndStartBeforeOrderByStartDesc(
-                    itemDto.getId(),
-                    BookingStatus.APPROVED,
-                    LocalDateTime.now()
-            ).stream().findFirst();
-            Optional<Booking> nextBooking = bookingRepository.findByItemIdAndStatusIsAndStartAfterOrderByStartAsc(
-                    itemDto.getId(),
-                    BookingStatus.APPROVED,
-                    LocalDateTime.now()
-            ).stream().findFirst();
+        Item item = itemOptional.get();
+        ItemCommentAndBookingDto itemDto = itemMapper.toItemWithCommentDto(item);
 
-            if (lastBooking.isEmpty()) {
-                itemDto.setLastBooking(null);
-            } else {
-                itemDto.setLastBooking(bookingMapper.toBookingWithBookerIdDto(lastBooking.get()));
-            }
-
-            if (nextBooking.isEmpty()) {
-                itemDto.setNextBooking(null);
-            } else {
-                itemDto.setNextBooking(bookingMapper.toBookingWithBookerIdDto(nextBooking.get()));
-            }
+        if (item.getOwner().getId().equals(userId)) {
+            setBookings(itemDto, item);
         }
 
         List<CommentDto> comments = commentMapper.listCommentDto(commentRepository.findByItemId(itemDto.getId()));
@@ -175,11 +171,31 @@ public class ItemServiceImpl implements ItemService {
     @Override
     @Transactional(readOnly = true)
     public List<ItemCommentAndBookingDto> getItemsByOwner(Long ownerId, Integer from, Integer size) {
-        List<Long> itemsId = itemRepository.findItemIdByOwner(ownerId, PageRequest.of(from / size, size));
+        List<Item> items = itemRepository.findByOwnerIdOrderById(ownerId, PageRequest.of(from / size, size));
         List<ItemCommentAndBookingDto> itemsDto = new ArrayList<>();
 
-        for (Long id : itemsId) {
-            itemsDto.add(getItemById(ownerId, id));
+        if (items.isEmpty()) {
+            return itemsDto;
+        }
+
+        List<Long> itemsId = new ArrayList<>();
+
+        for (Item item : items) {
+            itemsId.add(item.getId());
+        }
+
+        Map<Long, List<Comment>> comments = new HashMap<>();
+
+        for (Comment comment : commentRepository.findAllByItemIdIn(itemsId)) {
+            comments.computeIfAbsent(comment.getItem().getId(), id -> new ArrayList<>()).add(comment);
+        }
+
+        for (Item item : items) {
+            ItemCommentAndBookingDto itemDto = itemMapper.toItemWithCommentDto(item);
+            setBookings(itemDto, item);
+            itemDto.setComments(commentMapper.listCommentDto(
+                    comments.getOrDefault(item.getId(), new ArrayList<>())));
+            itemsDto.add(itemDto);
         }
 
         return itemsDto;
@@ -192,13 +208,19 @@ public class ItemServiceImpl implements ItemService {
             return new ArrayList<>();
         }
 
-        return itemMapper.listItemDto(
-                itemRepository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableTrue(
-                        text,
-                        text,
-                        PageRequest.of(from / size, size)
-                )
-        );
+        // смещение округляется до начала страницы, как у PageRequest
+        long offset = (long) (from / size) * size;
+        return searchCache.get(searchEngine.cacheKey(text), offset, size,
+                () -> itemMapper.listItemDto(searchEngine.search(text, offset, size)));
+    }
+
+    @Override
+    public List<String> suggest(String prefix, Integer limit) {
+        if (prefix.isBlank()) {
+            return new ArrayList<>();
+        }
+
+        return suggestIndex.suggest(prefix, limit);
     }
 
     @Override
@@ -211,6 +233,13 @@ public class ItemServiceImpl implements ItemService {
                 BookingStatus.APPROVED,
                 LocalDateTime.now()).stream().findFirst();
 
+        if (booking.isEmpty()) {
+            booking = archiveRepository.findAllByItemIdAndBookerIdAndStatusIs(
+                    itemId,
+                    bookerId,
+                    BookingStatus.APPROVED).stream().findFirst().map(bookingMapper::toBooking);
+        }
+
         if (booking.isEmpty()) {
             log.error("Не найден заказ с itemId = {}, bookerId = {}", itemId, bookerId);
             throw new ValidationException("Отзыв нельзя оставить без заказа");
@@ -229,4 +258,112 @@ public class ItemServiceImpl implements ItemService {
     public List<CommentDto> getCommentsByItem(Long itemId) {
         return commentMapper.listCommentDto(commentRepository.findByItemId(itemId));
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FreeIntervalDto> getAvailability(Long itemId, LocalDateTime from, LocalDateTime to) {
+        if (!itemRepository.existsById(itemId)) {
+            log.error("Предмет с id = {} не найден", itemId);
+            throw new NotFoundException("Не найден предмет с id = " + itemId);
+        }
+
+        if (!from.isBefore(to)) {
+            log.error("Период с {} по {} задан неверно", from, to);
+            throw new ValidationException("Начало периода должно быть раньше конца");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+
+        if (!now.isBefore(to)) {
+            return new ArrayList<>();
+        }
+
+        return calendarCache.getFreeIntervals(itemId, from.isBefore(now) ? now : from, to);
+    }
+
+    @Override
+    @Transactional
+    public List<ImportResultDto> importItems(List<ItemImportDto> items) {
+        Set<Long> ownerIds = new HashSet<>();
+        Set<Long> requestIds = new HashSet<>();
+
+        for (ItemImportDto item : items) {
+            if (item.getOwnerId() != null) {
+                ownerIds.add(item.getOwnerId());
+            }
+
+            if (item.getRequestId() != null) {
+                requestIds.add(item.getRequestId());
+            }
+        }
+
+        Set<Long> owners = ownerIds.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingIds(ownerIds));
+        Map<Long, ItemRequest> requests = new HashMap<>();
+
+        for (ItemRequest request : itemRequestRepository.findAllById(requestIds)) {
+            requests.put(request.getId(), request);
+        }
+
+        List<ImportResultDto> results = new ArrayList<>();
+        List<Item> imported = new ArrayList<>();
+        List<ImportResultDto> importedResults = new ArrayList<>();
+
+        for (int row = 0; row < items.size(); row++) {
+            ItemImportDto itemImportDto = items.get(row);
+            String error = validateImport(itemImportDto, owners, requests);
+            ImportResultDto result = new ImportResultDto(row, null, error);
+            results.add(result);
+
+            if (error == null) {
+                Item item = new Item(
+                        null,
+                        itemImportDto.getName(),
+                        itemImportDto.getDescription(),
+                        0,
+                        itemImportDto.getAvailable(),
+                        itemImportDto.getRequestId() == null ? null : requests.get(itemImportDto.getRequestId()));
+                item.setOwner(userRepository.getReferenceById(itemImportDto.getOwnerId()));
+                imported.add(item);
+                importedResults.add(result);
+            }
+        }
+
+        bulkInserter.persistAll(imported);
+
+        for (int i = 0; i < imported.size(); i++) {
+            importedResults.get(i).setId(imported.get(i).getId());
+        }
+
+        itemChanges.onSaved(imported, List.of());
+
+        log.info("Импортировано предметов: {} из {}", imported.size(), items.size());
+        return results;
+    }
+
+    private String validateImport(ItemImportDto item, Set<Long> owners, Map<Long, ItemRequest> requests) {
+        if (item.getOwnerId() == null || item.getName() == null || item.getName().isBlank()
+                || item.getDescription() == null || item.getDescription().isBlank() || item.getAvailable() == null) {
+            return "Не заполнены обязательные поля";
+        }
+
+        if (!owners.contains(item.getOwnerId())) {
+            return "Не найден владелец с id = " + item.getOwnerId();
+        }
+
+        if (item.getRequestId() != null && !requests.containsKey(item.getRequestId())) {
+            return "Не найден запрос с id = " + item.getRequestId();
+        }
+
+        return null;
+    }
+
+    private void setBookings(ItemCommentAndBookingDto itemDto, Item item) {
+        if (item.getLastBookingId() != null) {
+            itemDto.setLastBooking(new BookingWithBookerIdDto(item.getLastBookingId(), item.getLastBookerId()));
+        }
+
+        if (item.getNextBookingId() != null) {
+            itemDto.setNextBooking(new BookingWithBookerIdDto(item.getNextBookingId(), item.getNextBookerId()));
+        }
+    }
 }
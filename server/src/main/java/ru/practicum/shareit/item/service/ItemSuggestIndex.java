@@ -0,0 +1,303 @@
+package ru.practicum.shareit.item.service;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Подсказки по началу названия доступных предметов. Названия в нижнем регистре (ё как е) хранятся
+ * в сжатом префиксном дереве: у каждого узла метка из нескольких символов и заранее посчитанные MAX_LIMIT
+ * самых популярных названий поддерева, поэтому ответ стоит один спуск на длину префикса.
+ * Популярность названия — сумма rentals его доступных предметов. Изменения предметов применяются после коммита
+ * и пересчитывают только узлы на пути к названию, из двух версий одного предмета остаётся более новая.
+ */
+@Component
+public class ItemSuggestIndex implements ItemChangeListener {
+    public static final int MAX_LIMIT = 10;
+    private static final Comparator<Name> ORDER = Comparator.comparingLong((Name name) -> name.rentals).reversed()
+            .thenComparing(name -> name.key);
+    private static final Name[] NO_NAMES = new Name[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    @Override
+    public void onSaved(ItemSearchEntry item) {
+        index(item.getId(), item.getName(), item.getRentals(), item.getAvailable(), item.getVersion());
+    }
+
+    @Override
+    public void onDeleted(ItemSearchEntry item) {
+        lock.writeLock().lock();
+
+        try {
+            Entry old = entries.remove(item.getId());
+
+            if (old != null && old.available) {
+                remove(root, old.key, 0, old.rentals);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * До limit (не больше MAX_LIMIT) названий, начинающихся с prefix, по убыванию популярности, затем по алфавиту.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String key = ItemSearchIndex.normalize(prefix);
+        lock.readLock().lock();
+
+        try {
+            Node node = root;
+            int position = 0;
+
+            while (position < key.length()) {
+                node = node.child(key.charAt(position));
+
+                if (node == null) {
+                    return List.of();
+                }
+
+                int length = Math.min(node.label.length(), key.length() - position);
+
+                if (!node.label.regionMatches(0, key, position, length)) {
+                    return List.of();
+                }
+
+                position += length;
+            }
+
+            List<String> names = new ArrayList<>();
+
+            for (int i = 0; i < node.top.length && i < Math.min(limit, MAX_LIMIT); i++) {
+                names.add(node.top[i].display);
+            }
+
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Long itemId, String name, Integer rentals, Boolean available, long version) {
+        lock.writeLock().lock();
+
+        try {
+            Entry old = entries.get(itemId);
+
+            if (old != null) {
+                if (old.version > version) {
+                    return;
+                }
+
+                if (old.available) {
+                    remove(root, old.key, 0, old.rentals);
+                }
+            }
+
+            Entry entry = new Entry(ItemSearchIndex.normalize(name), name, rentals == null ? 0 : rentals,
+                    Boolean.TRUE.equals(available), version);
+            entries.put(itemId, entry);
+
+            if (entry.available) {
+                insert(root, entry.key, 0, entry.display, entry.rentals);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void insert(Node node, String key, int position, String display, int rentals) {
+        if (position == key.length()) {
+            if (node.name == null) {
+                node.name = new Name(key, display);
+            }
+
+            node.name.items++;
+            node.name.rentals += rentals;
+            node.recount();
+            return;
+        }
+
+        Node child = node.child(key.charAt(position));
+
+        if (child == null) {
+            child = new Node(key.substring(position));
+            node.add(child);
+        } else {
+            int common = commonPrefix(child.label, key, position);
+
+            if (common < child.label.length()) {
+                // метка расходится с ключом посередине: общее начало становится отдельным узлом
+                Node middle = new Node(child.label.substring(0, common));
+                node.replace(child, middle);
+                child.label = child.label.substring(common);
+                middle.add(child);
+                middle.recount();
+                child = middle;
+            }
+        }
+
+        insert(child, key, position + child.label.length(), display, rentals);
+        node.recount();
+    }
+
+    private static void remove(Node node, String key, int position, int rentals) {
+        if (position == key.length()) {
+            node.name.items--;
+            node.name.rentals -= rentals;
+
+            if (node.name.items == 0) {
+                node.name = null;
+            }
+
+            node.recount();
+            return;
+        }
+
+        Node child = node.child(key.charAt(position));
+        remove(child, key, position + child.label.length(), rentals);
+
+        if (child.name == null && child.children.length == 0) {
+            node.remove(child);
+        } else if (child.name == null && child.children.length == 1) {
+            // узел без названия с одним потомком сливается с ним, чтобы дерево оставалось сжатым
+            Node grandchild = child.children[0];
+            grandchild.label = child.label + grandchild.label;
+            node.replace(child, grandchild);
+        }
+
+        node.recount();
+    }
+
+    private static int commonPrefix(String label, String key, int position) {
+        int common = 0;
+
+        while (common < label.length() && position + common < key.length()
+                && label.charAt(common) == key.charAt(position + common)) {
+            common++;
+        }
+
+        return common;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String display;
+        private final int rentals;
+        private final boolean available;
+        private final long version;
+
+        private Entry(String key, String display, int rentals, boolean available, long version) {
+            this.key = key;
+            this.display = display;
+            this.rentals = rentals;
+            this.available = available;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Название, общее для доступных предметов с одинаковым ключом; показывается написание первого из них.
+     */
+    private static final class Name {
+        private final String key;
+        private final String display;
+        private int items;
+        private long rentals;
+
+        private Name(String key, String display) {
+            this.key = key;
+            this.display = display;
+        }
+    }
+
+    /**
+     * Узел дерева: потомки упорядочены по первому символу метки.
+     */
+    private static final class Node {
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private Name name;
+        private Name[] top = NO_NAMES;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            int index = indexOf(first);
+            return index < 0 ? null : children[index];
+        }
+
+        void add(Node child) {
+            int index = -indexOf(child.label.charAt(0)) - 1;
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        void replace(Node child, Node replacement) {
+            children[indexOf(child.label.charAt(0))] = replacement;
+        }
+
+        void remove(Node child) {
+            int index = indexOf(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+            children = shrunk;
+        }
+
+        /**
+         * Лучшие названия поддерева собираются из собственного названия и лучших названий потомков.
+         */
+        void recount() {
+            List<Name> names = new ArrayList<>();
+
+            if (name != null) {
+                names.add(name);
+            }
+
+            for (Node child : children) {
+                names.addAll(Arrays.asList(child.top));
+            }
+
+            names.sort(ORDER);
+            top = names.subList(0, Math.min(MAX_LIMIT, names.size())).toArray(NO_NAMES);
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char current = children[middle].label.charAt(0);
+
+                if (current < first) {
+                    low = middle + 1;
+                } else if (current > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+
+            return -low - 1;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.shareit.item.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Триграммы слов поискового индекса для нечёткого поиска. Слово дополняется двумя пробелами в начале и одним
+ * в конце, как в pg_trgm, сходство двух слов — доля общих триграмм среди всех триграмм обоих слов.
+ * Не потокобезопасен: доступ защищает блокировка ItemSearchIndex.
+ */
+class TrigramIndex {
+    static final int DEADLINE_CHECK_MASK = 1023;
+
+    private final Map<String, Set<String>> terms = new HashMap<>();
+    private final Map<String, Integer> trigramCounts = new HashMap<>();
+
+    void add(String term) {
+        Set<String> trigrams = trigrams(term);
+
+        if (trigramCounts.putIfAbsent(term, trigrams.size()) != null) {
+            return;
+        }
+
+        for (String trigram : trigrams) {
+            terms.computeIfAbsent(trigram, key -> new HashSet<>()).add(term);
+        }
+    }
+
+    void remove(String term) {
+        if (trigramCounts.remove(term) == null) {
+            return;
+        }
+
+        for (String trigram : trigrams(term)) {
+            Set<String> trigramTerms = terms.get(trigram);
+            trigramTerms.remove(term);
+
+            if (trigramTerms.isEmpty()) {
+                terms.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Слова, содержащие token длиной не меньше трёх символов. У такого слова есть все триграммы token,
+     * поэтому достаточно проверить слова самой редкой из них.
+     */
+    Set<String> findContaining(String token) {
+        List<Set<String>> candidates = new ArrayList<>();
+
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            Set<String> trigramTerms = terms.get(token.substring(i, i + 3));
+
+            if (trigramTerms == null) {
+                return Set.of();
+            }
+
+            candidates.add(trigramTerms);
+        }
+
+        Set<String> containing = new HashSet<>();
+
+        for (String term : candidates.stream().min(Comparator.comparingInt(Set::size)).orElseThrow()) {
+            if (term.contains(token)) {
+                containing.add(term);
+            }
+        }
+
+        return containing;
+    }
+
+    /**
+     * Слова со сходством с token не ниже threshold. После deadline (System.nanoTime) подсчёт общих триграмм
+     * прекращается, и сходство считается по уже просмотренным словам.
+     */
+    Map<String, Double> findSimilar(String token, double threshold, long deadline) {
+        Set<String> tokenTrigrams = trigrams(token);
+        Map<String, Integer> common = new HashMap<>();
+        int visited = 0;
+
+        scan:
+        for (String trigram : tokenTrigrams) {
+            for (String term : terms.getOrDefault(trigram, Set.of())) {
+                common.merge(term, 1, Integer::sum);
+
+                if ((++visited & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) {
+                    break scan;
+                }
+            }
+        }
+
+        Map<String, Double> similar = new HashMap<>();
+
+        for (Map.Entry<String, Integer> entry : common.entrySet()) {
+            int shared = entry.getValue();
+            double similarity = (double) shared / (tokenTrigrams.size() + trigramCounts.get(entry.getKey()) - shared);
+
+            if (similarity >= threshold) {
+                similar.put(entry.getKey(), similarity);
+            }
+        }
+
+        return similar;
+    }
+
+    int size() {
+        return trigramCounts.size();
+    }
+
+    static Set<String> trigrams(String term) {
+        String padded = "  " + term + " ";
+        Set<String> trigrams = new LinkedHashSet<>();
+
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+
+        return trigrams;
+    }
+}
@@ -1,10 +1,20 @@
 package ru.practicum.shareit.item.storage;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    @Query("SELECT c FROM Comment c WHERE c.item.id = ?1")
     List<Comment> findByItemId(Long itemId);
-}
\ No newline at end of file
+
+    @Query("SELECT c " +
+            "FROM Comment c " +
+            "JOIN FETCH c.user " +
+            "WHERE c.item.id IN ?1 " +
+            "ORDER BY c.id")
+    List<Comment> findAllByItemIdIn(Collection<Long> itemIds);
+}
@@ -2,10 +2,20 @@ package ru.practicum.shareit.item.storage;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
 import ru.practicum.shareit.item.model.Item;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
     void deleteById(Long id);
@@ -13,9 +23,70 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     @Query("SELECT i.id FROM Item i WHERE i.owner.id = ?1 ORDER BY i.id")
     List<Long> findItemIdByOwner(Long ownerId, Pageable pageable);
 
-    List<Item> findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableTrue(
-            String name,
-            String description,
-            Pageable pageable
-    );
+    @Query("SELECT i FROM Item i WHERE i.owner.id = ?1 ORDER BY i.id")
+    List<Item> findByOwnerIdOrderById(Long ownerId, Pageable pageable);
+
+    List<Item> findAllByNextBookingIdIn(Collection<Long> bookingIds);
+
+    @Query("SELECT COUNT(i) FROM Item i WHERE i.owner.id = ?1")
+    long countByOwnerId(Long ownerId);
+
+    /**
+     * Резервный поиск по подстроке для баз без полнотекстового индекса, порядок задаёт pageable.
+     */
+    List<Item> findByAvailableTrueAndNameContainingIgnoreCaseOrAvailableTrueAndDescriptionContainingIgnoreCase(
+            String name, String description, Pageable pageable);
+
+    /**
+     * Поиск по сгенерированному столбцу search_vector (PostgreSQL, GIN-индекс), query — выражение to_tsquery.
+     */
+    @Query(value = "SELECT i.* " +
+            "FROM items i " +
+            "WHERE i.available " +
+            "AND i.search_vector @@ to_tsquery('russian', ?1) " +
+            "ORDER BY ts_rank(i.search_vector, to_tsquery('russian', ?1)) DESC, i.id", nativeQuery = true)
+    List<Item> findAvailableByFullText(String query, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = BookingRepository.EXPORT_FETCH_SIZE))
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemSearchEntry(" +
+            "i.id, i.name, i.description, i.rentals, i.available, i.version) " +
+            "FROM Item i")
+    Stream<ItemSearchEntry> streamSearchEntries();
+
+    long countByIdInAndAvailableTrue(Collection<Long> ids);
+
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemSearchEntry(" +
+            "i.id, i.name, i.description, i.rentals, i.available, i.version) " +
+            "FROM Item i " +
+            "WHERE i.owner.id = ?1")
+    List<ItemSearchEntry> findSearchEntriesByOwnerId(Long ownerId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i " +
+            "SET i.lastBookingId = ?2, i.lastBookerId = ?3, i.lastBookingStart = ?4 " +
+            "WHERE i.id = ?1 " +
+            "AND (i.lastBookingStart IS NULL OR i.lastBookingStart < ?4)")
+    int updateLastBookingIfLater(Long itemId, Long bookingId, Long bookerId, LocalDateTime start);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i " +
+            "SET i.nextBookingId = ?2, i.nextBookerId = ?3, i.nextBookingStart = ?4 " +
+            "WHERE i.id = ?1 " +
+            "AND (i.nextBookingStart IS NULL OR i.nextBookingStart > ?4)")
+    int updateNextBookingIfEarlier(Long itemId, Long bookingId, Long bookerId, LocalDateTime start);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i " +
+            "SET i.lastBookingId = ?2, i.lastBookerId = ?3, i.lastBookingStart = ?4, " +
+            "i.nextBookingId = ?5, i.nextBookerId = ?6, i.nextBookingStart = ?7 " +
+            "WHERE i.id = ?1 " +
+            "AND i.nextBookingId = ?8")
+    int replaceBookingsIfNextIs(Long itemId,
+                                Long lastBookingId,
+                                Long lastBookerId,
+                                LocalDateTime lastBookingStart,
+                                Long nextBookingId,
+                                Long nextBookerId,
+                                LocalDateTime nextBookingStart,
+                                Long expectedNextBookingId);
 }
@@ -2,11 +2,13 @@ package ru.practicum.shareit.request.storage;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.request.model.ItemRequest;
 
 import java.util.List;
 
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
+    @Query("SELECT r FROM ItemRequest r WHERE r.user.id = ?1")
     List<ItemRequest> findByUserId(Long userId);
 
     List<ItemRequest> findAllByUserIdNot(Long userId, Pageable pageable);
@@ -7,12 +7,17 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.shareit.bulk.ImportGuard;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
+import ru.practicum.shareit.user.dto.OwnerStatsDto;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * TODO Sprint add-controllers.
@@ -22,6 +27,7 @@ import java.util.Collection;
 @RequestMapping(path = "/users")
 public class UserController {
     private final UserService userService;
+    private final ImportGuard importGuard;
 
     @GetMapping
     public Collection<UserDto> getAllUsers() {
@@ -33,6 +39,13 @@ public class UserController {
         return userService.create(userDto);
     }
 
+    @PostMapping("/import")
+    public List<ImportResultDto> importUsers(@RequestHeader("X-Sharer-User-Id") long userId,
+                                             @RequestBody List<UserDto> users) {
+        importGuard.check(userId);
+        return userService.importUsers(users);
+    }
+
     @PatchMapping("/{id}")
     public UserDto updateUser(
             @PathVariable long id,
@@ -49,4 +62,9 @@ public class UserController {
     public UserDto getUserById(@PathVariable long id) {
         return userService.getUserById(id);
     }
+
+    @GetMapping("/{id}/stats")
+    public OwnerStatsDto getStats(@PathVariable long id) {
+        return userService.getStats(id);
+    }
 }
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OwnerStatsDto {
+    private Long ownerId;
+    private long items;
+    private long bookings;
+    private long waiting;
+    private long approved;
+    private long rejected;
+    /**
+     * Доля подтверждённых среди рассмотренных заказов, null, пока владелец ничего не рассматривал.
+     */
+    private Double approvalRate;
+    /**
+     * null, если у владельца нет предметов.
+     */
+    private Double bookingsPerItem;
+    /**
+     * Сумма по дням окна числа предметов, занятых подтверждёнными заказами.
+     */
+    private long bookedDaysLast30;
+    private long bookedDaysLast90;
+}
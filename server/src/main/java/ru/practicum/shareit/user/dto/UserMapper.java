@@ -2,6 +2,7 @@ package ru.practicum.shareit.user.dto;
 
 import lombok.NonNull;
 import org.springframework.stereotype.Component;
+import ru.practicum.shareit.user.model.OwnerStats;
 import ru.practicum.shareit.user.model.User;
 
 import java.util.ArrayList;
@@ -25,6 +26,25 @@ public class UserMapper {
         );
     }
 
+    public OwnerStatsDto toOwnerStatsDto(@NonNull OwnerStats stats,
+                                         long items,
+                                         long bookedDaysLast30,
+                                         long bookedDaysLast90) {
+        long decided = stats.getApproved() + stats.getRejected();
+        return new OwnerStatsDto(
+                stats.getOwnerId(),
+                items,
+                stats.getBookings(),
+                stats.getWaiting(),
+                stats.getApproved(),
+                stats.getRejected(),
+                decided == 0 ? null : (double) stats.getApproved() / decided,
+                items == 0 ? null : (double) stats.getBookings() / items,
+                bookedDaysLast30,
+                bookedDaysLast90
+        );
+    }
+
     public List<UserDto> listUserDto(@NonNull List<User> users) {
         List<UserDto> usersDto = new ArrayList<>();
 
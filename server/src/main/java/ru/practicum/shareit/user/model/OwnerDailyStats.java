@@ -0,0 +1,25 @@
+package ru.practicum.shareit.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * Сколько предметов владельца занято подтверждёнными заказами в этот день.
+ */
+@Entity
+@Table(name = "owner_daily_stats")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OwnerDailyStats {
+    @EmbeddedId
+    private OwnerDailyStatsId id;
+    @Column(name = "booked_items", nullable = false)
+    private int bookedItems;
+}
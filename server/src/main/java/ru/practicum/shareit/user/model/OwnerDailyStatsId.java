@@ -0,0 +1,21 @@
+package ru.practicum.shareit.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerDailyStatsId implements Serializable {
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate date;
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Счётчики заказов на предметы владельца, включая архивные.
+ */
+@Entity
+@Table(name = "owner_stats")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OwnerStats {
+    @Id
+    @Column(name = "owner_id")
+    private Long ownerId;
+    @Column(name = "bookings", nullable = false)
+    private long bookings;
+    @Column(name = "waiting", nullable = false)
+    private long waiting;
+    @Column(name = "approved", nullable = false)
+    private long approved;
+    @Column(name = "rejected", nullable = false)
+    private long rejected;
+}
@@ -0,0 +1,74 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.user.storage.OwnerDailyStatsRepository;
+import ru.practicum.shareit.user.storage.OwnerStatsRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Добавляет наступившие дни идущих подтверждённых заказов: OwnerStatsRecorder записывает дни заказа
+ * только по accrued_through владельца. Каждый день пишется в своей транзакции: сначала блокируются строки
+ * owner_stats, потом считаются заказы, поэтому одновременно подтверждённый заказ попадает в день ровно один раз —
+ * или из этого запроса, или из OwnerStatsRecorder, который увидит уже сдвинутый accrued_through.
+ * Если задание долго не работало, дни раньше начала самого длинного окна статистики пропускаются.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.owner-stats.accrual.enabled", havingValue = "true", matchIfMissing = true)
+public class OwnerDailyStatsAccrual {
+    private final OwnerStatsRepository statsRepository;
+    private final OwnerDailyStatsRepository dailyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OwnerDailyStatsAccrual(OwnerStatsRepository statsRepository, OwnerDailyStatsRepository dailyRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.dailyRepository = dailyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.owner-stats.accrual.interval:PT1H}")
+    public void accrue() {
+        try {
+            accrue(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.error("Ошибка при добавлении занятых дней владельцев", e);
+        }
+    }
+
+    /**
+     * Возвращает число добавленных дней.
+     */
+    int accrue(LocalDate today) {
+        LocalDate accruedThrough = statsRepository.findMinAccruedThrough();
+
+        if (accruedThrough == null) {
+            return 0;
+        }
+
+        LocalDate horizon = today.minusDays(OwnerStatsRecorder.MAX_WINDOW_DAYS - 1);
+        LocalDate day = accruedThrough.isBefore(horizon) ? horizon : accruedThrough.plusDays(1);
+        int accrued = 0;
+
+        for (; !day.isAfter(today); day = day.plusDays(1)) {
+            LocalDate accruedDay = day;
+            Integer owners = transactionTemplate.execute(status -> {
+                statsRepository.lockAllByAccruedThroughBefore(accruedDay);
+                int booked = dailyRepository.insertBookedDay(
+                        accruedDay, accruedDay.atStartOfDay(), accruedDay.plusDays(1).atStartOfDay());
+                statsRepository.accrueThrough(accruedDay);
+                return booked;
+            });
+            log.info("Добавлен день {} в статистику владельцев с заказами: {}", accruedDay, owners);
+            accrued++;
+        }
+
+        return accrued;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.user.storage.OwnerDailyStatsRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Удаляет занятые дни владельцев раньше начала самого длинного окна статистики: их уже никто не читает.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.owner-stats.cleanup.enabled", havingValue = "true", matchIfMissing = true)
+public class OwnerDailyStatsCleaner {
+    private final OwnerDailyStatsRepository repository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OwnerDailyStatsCleaner(OwnerDailyStatsRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.owner-stats.cleanup.interval:PT6H}")
+    public void cleanup() {
+        try {
+            cleanup(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.error("Ошибка при удалении устаревшей статистики владельцев", e);
+        }
+    }
+
+    /**
+     * Возвращает число удалённых дней.
+     */
+    int cleanup(LocalDate today) {
+        LocalDate horizon = today.minusDays(OwnerStatsRecorder.MAX_WINDOW_DAYS - 1);
+        Integer deleted = transactionTemplate.execute(status -> repository.deleteAllByDateBefore(horizon));
+        log.info("Удалено дней статистики владельцев раньше {}: {}", horizon, deleted);
+        return deleted;
+    }
+}
@@ -0,0 +1,129 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.user.model.OwnerDailyStats;
+import ru.practicum.shareit.user.model.OwnerDailyStatsId;
+import ru.practicum.shareit.user.model.OwnerStats;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.OwnerDailyStatsRepository;
+import ru.practicum.shareit.user.storage.OwnerStatsRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Обновляет статистику владельца в той же транзакции, что меняет его заказы.
+ * Первым идёт UPDATE строки owner_stats: он блокирует её до коммита, и занятые дни владельца
+ * дальше меняет только эта транзакция. Дни раньше начала самого длинного окна статистики не записываются,
+ * дни позже accrued_through владельца тоже: их по одному добавляет OwnerDailyStatsAccrual, когда они наступают.
+ */
+@Component
+@RequiredArgsConstructor
+public class OwnerStatsRecorder {
+    public static final int MAX_WINDOW_DAYS = 90;
+
+    private final OwnerStatsRepository statsRepository;
+    private final OwnerDailyStatsRepository dailyRepository;
+    private final EntityManager entityManager;
+
+    public void onUserCreated(Long userId) {
+        entityManager.persist(new OwnerStats(userId, 0, 0, 0, 0));
+    }
+
+    public void onCreated(Long ownerId) {
+        increment(ownerId, 1, 1, 0, 0);
+    }
+
+    public void onDecided(Long ownerId, List<Booking> approved, List<Booking> rejected) {
+        increment(ownerId, 0, -(approved.size() + rejected.size()), approved.size(), rejected.size());
+        addBookedDays(ownerId, approved);
+    }
+
+    /**
+     * Импортированные заказы сразу учитываются в своём итоговом статусе.
+     */
+    public void onImported(Long ownerId, List<Booking> bookings) {
+        Map<BookingStatus, Long> counts = new HashMap<>();
+        List<Booking> approved = new ArrayList<>();
+
+        for (Booking booking : bookings) {
+            counts.merge(booking.getStatus(), 1L, Long::sum);
+
+            if (booking.getStatus() == BookingStatus.APPROVED) {
+                approved.add(booking);
+            }
+        }
+
+        increment(ownerId,
+                bookings.size(),
+                counts.getOrDefault(BookingStatus.WAITING, 0L),
+                counts.getOrDefault(BookingStatus.APPROVED, 0L),
+                counts.getOrDefault(BookingStatus.REJECTED, 0L));
+        addBookedDays(ownerId, approved);
+    }
+
+    /**
+     * Строку owner_stats создают UserService и импорт пользователей. Если её нет (пользователь сохранён в обход них),
+     * строку создаёт транзакция, первой заблокировавшая пользователя; остальные ждут её коммита
+     * и повторным UPDATE уже находят строку, поэтому одновременные заказы не упираются в первичный ключ.
+     */
+    private void increment(Long ownerId, long bookings, long waiting, long approved, long rejected) {
+        if (statsRepository.increment(ownerId, bookings, waiting, approved, rejected) > 0) {
+            return;
+        }
+
+        entityManager.find(User.class, ownerId, LockModeType.PESSIMISTIC_WRITE);
+
+        if (statsRepository.increment(ownerId, bookings, waiting, approved, rejected) == 0) {
+            entityManager.persist(new OwnerStats(ownerId, bookings, waiting, approved, rejected));
+        }
+    }
+
+    private void addBookedDays(Long ownerId, List<Booking> approved) {
+        if (approved.isEmpty()) {
+            return;
+        }
+
+        LocalDate horizon = LocalDate.now().minusDays(MAX_WINDOW_DAYS - 1);
+        LocalDate accruedThrough = statsRepository.findAccruedThrough(ownerId);
+        TreeMap<LocalDate, Integer> days = new TreeMap<>();
+
+        for (Booking booking : approved) {
+            LocalDate first = booking.getStart().toLocalDate();
+            LocalDate last = booking.getEnd().minusNanos(1).toLocalDate();
+
+            if (last.isAfter(accruedThrough)) {
+                last = accruedThrough;
+            }
+
+            for (LocalDate day = first.isBefore(horizon) ? horizon : first; !day.isAfter(last); day = day.plusDays(1)) {
+                days.merge(day, 1, Integer::sum);
+            }
+        }
+
+        if (days.isEmpty()) {
+            return;
+        }
+
+        for (OwnerDailyStats stats : dailyRepository.findAllByOwnerIdAndDateBetween(
+                ownerId, days.firstKey(), days.lastKey())) {
+            Integer booked = days.remove(stats.getId().getDate());
+
+            if (booked != null) {
+                stats.setBookedItems(stats.getBookedItems() + booked);
+            }
+        }
+
+        days.forEach((day, booked) ->
+                entityManager.persist(new OwnerDailyStats(new OwnerDailyStatsId(ownerId, day), booked)));
+    }
+}
@@ -1,5 +1,7 @@
 package ru.practicum.shareit.user.service;
 
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
+import ru.practicum.shareit.user.dto.OwnerStatsDto;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.util.List;
@@ -14,4 +16,8 @@ public interface UserService {
     void delete(Long id);
 
     UserDto getUserById(Long id);
+
+    List<ImportResultDto> importUsers(List<UserDto> users);
+
+    OwnerStatsDto getStats(Long userId);
 }
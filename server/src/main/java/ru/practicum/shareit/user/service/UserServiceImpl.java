@@ -4,15 +4,28 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.bulk.BulkInserter;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.service.ItemChangePublisher;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.dto.OwnerStatsDto;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.user.model.OwnerDailyStats;
+import ru.practicum.shareit.user.model.OwnerStats;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.OwnerDailyStatsRepository;
+import ru.practicum.shareit.user.storage.OwnerStatsRepository;
 import ru.practicum.shareit.user.storage.UserRepository;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -20,6 +33,12 @@ import java.util.Optional;
 public class UserServiceImpl implements UserService {
     private final UserMapper mapper;
     private final UserRepository repository;
+    private final BulkInserter bulkInserter;
+    private final ItemRepository itemRepository;
+    private final OwnerStatsRepository statsRepository;
+    private final OwnerDailyStatsRepository dailyStatsRepository;
+    private final OwnerStatsRecorder ownerStatsRecorder;
+    private final ItemChangePublisher itemChanges;
 
     @Override
     @Transactional(readOnly = true)
@@ -37,7 +56,9 @@ public class UserServiceImpl implements UserService {
             throw new ConflictException("Пользователь уже существует");
         }
 
-        return mapper.toUserDto(repository.save(user));
+        User savedUser = repository.save(user);
+        ownerStatsRecorder.onUserCreated(savedUser.getId());
+        return mapper.toUserDto(savedUser);
     }
 
     @Override
@@ -66,6 +87,8 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void delete(Long id) {
+        // предметы удаляются каскадом в БД, поэтому для поиска и подсказок они читаются заранее
+        itemChanges.onDeleted(itemRepository.findSearchEntriesByOwnerId(id));
         repository.deleteById(id);
     }
 
@@ -81,4 +104,84 @@ public class UserServiceImpl implements UserService {
 
         return mapper.toUserDto(user.get());
     }
+
+    @Override
+    @Transactional
+    public List<ImportResultDto> importUsers(List<UserDto> users) {
+        Set<String> emails = new HashSet<>();
+
+        for (UserDto user : users) {
+            if (user.getEmail() != null) {
+                emails.add(user.getEmail());
+            }
+        }
+
+        Set<String> takenEmails = emails.isEmpty() ? new HashSet<>() : new HashSet<>(repository.findExistingEmails(emails));
+        List<ImportResultDto> results = new ArrayList<>();
+        List<User> imported = new ArrayList<>();
+        List<ImportResultDto> importedResults = new ArrayList<>();
+
+        for (int row = 0; row < users.size(); row++) {
+            UserDto userDto = users.get(row);
+            String error = null;
+
+            if (userDto.getName() == null || userDto.getName().isBlank()
+                    || userDto.getEmail() == null || userDto.getEmail().isBlank()) {
+                error = "Не заполнены обязательные поля";
+            } else if (!takenEmails.add(userDto.getEmail())) {
+                // повтор email внутри запроса отклоняется так же, как уже занятый
+                error = "Пользователь уже существует";
+            }
+
+            ImportResultDto result = new ImportResultDto(row, null, error);
+            results.add(result);
+
+            if (error == null) {
+                imported.add(new User(null, userDto.getName(), userDto.getEmail()));
+                importedResults.add(result);
+            }
+        }
+
+        bulkInserter.persistAll(imported);
+        List<OwnerStats> stats = new ArrayList<>();
+
+        for (int i = 0; i < imported.size(); i++) {
+            importedResults.get(i).setId(imported.get(i).getId());
+            stats.add(new OwnerStats(imported.get(i).getId(), 0, 0, 0, 0));
+        }
+
+        bulkInserter.persistAll(stats);
+
+        log.info("Импортировано пользователей: {} из {}", imported.size(), users.size());
+        return results;
+    }
+
+    /**
+     * Читает готовые счётчики и не больше MAX_WINDOW_DAYS строк занятых дней, сами заказы не перебираются.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public OwnerStatsDto getStats(Long userId) {
+        if (!repository.existsById(userId)) {
+            log.error("Пользователь не найден id = {}", userId);
+            throw new NotFoundException("Пользователь не найден");
+        }
+
+        OwnerStats stats = statsRepository.findById(userId).orElse(new OwnerStats(userId, 0, 0, 0, 0));
+        LocalDate today = LocalDate.now();
+        LocalDate from30 = today.minusDays(29);
+        long bookedDaysLast30 = 0;
+        long bookedDaysLast90 = 0;
+
+        for (OwnerDailyStats day : dailyStatsRepository.findAllByOwnerIdAndDateBetween(
+                userId, today.minusDays(OwnerStatsRecorder.MAX_WINDOW_DAYS - 1), today)) {
+            bookedDaysLast90 += day.getBookedItems();
+
+            if (!day.getId().getDate().isBefore(from30)) {
+                bookedDaysLast30 += day.getBookedItems();
+            }
+        }
+
+        return mapper.toOwnerStatsDto(stats, itemRepository.countByOwnerId(userId), bookedDaysLast30, bookedDaysLast90);
+    }
 }
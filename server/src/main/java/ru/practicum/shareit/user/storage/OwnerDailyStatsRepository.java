@@ -0,0 +1,41 @@
+package ru.practicum.shareit.user.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.user.model.OwnerDailyStats;
+import ru.practicum.shareit.user.model.OwnerDailyStatsId;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OwnerDailyStatsRepository extends JpaRepository<OwnerDailyStats, OwnerDailyStatsId> {
+    @Query("SELECT d " +
+            "FROM OwnerDailyStats d " +
+            "WHERE d.id.ownerId = ?1 " +
+            "AND d.id.date BETWEEN ?2 AND ?3")
+    List<OwnerDailyStats> findAllByOwnerIdAndDateBetween(Long ownerId, LocalDate from, LocalDate to);
+
+    /**
+     * Записывает день для владельцев, у которых он ещё не записан: сколько их предметов заняли подтверждённые заказы,
+     * пересекающие [dayStart, nextDayStart).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO owner_daily_stats (owner_id, stat_date, booked_items) " +
+            "SELECT i.owner_id, CAST(?1 AS DATE), COUNT(*) " +
+            "FROM bookings b " +
+            "JOIN items i ON i.id = b.item_id " +
+            "JOIN owner_stats s ON s.owner_id = i.owner_id " +
+            "WHERE s.accrued_through < ?1 " +
+            "AND b.status = 'APPROVED' " +
+            "AND b.start_time < ?3 " +
+            "AND b.end_time > ?2 " +
+            "GROUP BY i.owner_id", nativeQuery = true)
+    int insertBookedDay(LocalDate day, LocalDateTime dayStart, LocalDateTime nextDayStart);
+
+    @Modifying
+    @Query("DELETE FROM OwnerDailyStats d " +
+            "WHERE d.id.date < ?1")
+    int deleteAllByDateBefore(LocalDate date);
+}
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.user.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.user.model.OwnerStats;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface OwnerStatsRepository extends JpaRepository<OwnerStats, Long> {
+    /**
+     * Блокирует строку владельца до конца транзакции, поэтому его статистику одновременно меняет только один запрос.
+     */
+    @Modifying
+    @Query("UPDATE OwnerStats s " +
+            "SET s.bookings = s.bookings + ?2, " +
+            "s.waiting = s.waiting + ?3, " +
+            "s.approved = s.approved + ?4, " +
+            "s.rejected = s.rejected + ?5 " +
+            "WHERE s.ownerId = ?1")
+    int increment(Long ownerId, long bookings, long waiting, long approved, long rejected);
+
+    /**
+     * День, по который включительно записаны занятые дни владельца. Новую строку БД заполняет текущей датой.
+     */
+    @Query(value = "SELECT accrued_through FROM owner_stats WHERE owner_id = ?1", nativeQuery = true)
+    LocalDate findAccruedThrough(Long ownerId);
+
+    @Query(value = "SELECT MIN(accrued_through) FROM owner_stats", nativeQuery = true)
+    LocalDate findMinAccruedThrough();
+
+    /**
+     * Блокирует строки владельцев, у которых день ещё не записан, как их блокирует и increment.
+     */
+    @Query(value = "SELECT owner_id FROM owner_stats WHERE accrued_through < ?1 FOR UPDATE", nativeQuery = true)
+    List<Long> lockAllByAccruedThroughBefore(LocalDate day);
+
+    @Modifying
+    @Query(value = "UPDATE owner_stats SET accrued_through = ?1 WHERE accrued_through < ?1", nativeQuery = true)
+    int accrueThrough(LocalDate day);
+}
@@ -1,10 +1,20 @@
 package ru.practicum.shareit.user.storage;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.user.model.User;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByEmail(String email);
 
     void deleteById(Long id);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN ?1")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN ?1")
+    List<String> findExistingEmails(Collection<String> emails);
 }
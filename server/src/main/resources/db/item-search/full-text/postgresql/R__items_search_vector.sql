@@ -0,0 +1,15 @@
+-- Полнотекстовый поиск предметов (shareit.item-search.mode=full-text). Столбец вычисляет сама БД при записи,
+-- поэтому импорт и обычное сохранение предмета его не заполняют. Генерируемые столбцы есть с PostgreSQL 12.
+-- Добавление столбца переписывает всю таблицу items, поэтому каталог миграций подключается только в режиме full-text.
+-- Миграция повторяемая: при переключении в этот режим она выполнится после уже применённых версий.
+-- При переключении обратно её нет среди локальных миграций, и проверку проходит только благодаря
+-- spring.flyway.ignore-migration-patterns=*:missing; столбец остаётся и поиску в других режимах не мешает.
+-- Конфигурация russian приводит к основе и русские, и латинские слова; название весит больше описания.
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian'::regconfig, coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('russian'::regconfig, coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS items_search_vector_idx ON items USING gin (search_vector);
@@ -0,0 +1,55 @@
+-- Статистика владельцев для GET /users/{id}/stats. Счётчики owner_stats и занятые предмето-дни owner_daily_stats
+-- обновляет OwnerStatsRecorder вместе с заказами. Архивация заказов статистику не меняет.
+
+CREATE TABLE IF NOT EXISTS owner_stats (
+    owner_id INT PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE,
+    bookings BIGINT NOT NULL DEFAULT 0,
+    waiting BIGINT NOT NULL DEFAULT 0,
+    approved BIGINT NOT NULL DEFAULT 0,
+    rejected BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS owner_daily_stats (
+    owner_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE,
+    stat_date DATE NOT NULL,
+    booked_items INT NOT NULL,
+    PRIMARY KEY (owner_id, stat_date)
+);
+
+INSERT INTO owner_stats (owner_id, bookings, waiting, approved, rejected)
+SELECT u.id,
+       COUNT(b.id),
+       COUNT(CASE WHEN b.status = 'WAITING' THEN 1 END),
+       COUNT(CASE WHEN b.status = 'APPROVED' THEN 1 END),
+       COUNT(CASE WHEN b.status = 'REJECTED' THEN 1 END)
+FROM users u
+LEFT JOIN items i ON i.owner_id = u.id
+LEFT JOIN (
+    SELECT id, item_id, status FROM bookings
+    UNION ALL
+    SELECT id, item_id, status FROM bookings_archive
+) b ON b.item_id = i.id
+GROUP BY u.id;
+
+-- Дни до начала самого длинного окна статистики (90 дней) никогда не читаются и не переносятся.
+WITH RECURSIVE booked_days (owner_id, stat_date, last_date) AS (
+    SELECT i.owner_id,
+           GREATEST(CAST(b.start_time AS DATE), CAST(CURRENT_DATE - INTERVAL '89' DAY AS DATE)),
+           CAST(b.end_time - INTERVAL '0.000001' SECOND AS DATE)
+    FROM (
+        SELECT item_id, start_time, end_time, status FROM bookings
+        UNION ALL
+        SELECT item_id, start_time, end_time, status FROM bookings_archive
+    ) b
+    JOIN items i ON i.id = b.item_id
+    WHERE b.status = 'APPROVED'
+    UNION ALL
+    SELECT owner_id, CAST(CAST(stat_date AS DATE) + INTERVAL '1' DAY AS DATE), last_date
+    FROM booked_days
+    WHERE CAST(stat_date AS DATE) < CAST(last_date AS DATE)
+)
+INSERT INTO owner_daily_stats (owner_id, stat_date, booked_items)
+SELECT owner_id, stat_date, COUNT(*)
+FROM booked_days
+WHERE stat_date <= last_date
+GROUP BY owner_id, stat_date;
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS items_next_booking_id_idx ON items (next_booking_id);
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS owner_daily_stats_stat_date_idx ON owner_daily_stats (stat_date);
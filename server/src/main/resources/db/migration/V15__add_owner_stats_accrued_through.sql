@@ -0,0 +1,7 @@
+-- Занятые дни записываются только по accrued_through включительно: дальше их по одному дню в сутки
+-- добавляет OwnerDailyStatsAccrual. Раньше подтверждённый заказ сразу записывал все свои будущие дни,
+-- и заказ на несколько лет вставлял тысячи строк. Будущие дни, записанные так, удаляются.
+
+ALTER TABLE owner_stats ADD COLUMN IF NOT EXISTS accrued_through DATE DEFAULT CURRENT_DATE NOT NULL;
+
+DELETE FROM owner_daily_stats WHERE stat_date > CURRENT_DATE;
@@ -0,0 +1,2 @@
+-- Архивация выбирает заказы только по end_time: фаза без планировщика фаз не обновляется.
+CREATE INDEX IF NOT EXISTS bookings_end_time_idx ON bookings (end_time);
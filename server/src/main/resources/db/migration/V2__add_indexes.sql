@@ -0,0 +1,15 @@
+CREATE INDEX IF NOT EXISTS bookings_booker_id_start_time_idx ON bookings (booker_id, start_time);
+
+CREATE INDEX IF NOT EXISTS bookings_booker_id_status_start_time_idx ON bookings (booker_id, status, start_time);
+
+CREATE INDEX IF NOT EXISTS bookings_item_id_start_time_idx ON bookings (item_id, start_time);
+
+CREATE INDEX IF NOT EXISTS bookings_item_id_status_start_time_idx ON bookings (item_id, status, start_time);
+
+CREATE INDEX IF NOT EXISTS items_owner_id_id_idx ON items (owner_id, id);
+
+CREATE INDEX IF NOT EXISTS items_request_id_idx ON items (request_id);
+
+CREATE INDEX IF NOT EXISTS comments_item_id_idx ON comments (item_id);
+
+CREATE INDEX IF NOT EXISTS requests_user_id_created_idx ON requests (user_id, created);
@@ -0,0 +1,33 @@
+ALTER TABLE items ADD COLUMN IF NOT EXISTS last_booking_id INT;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS last_booker_id INT;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS last_booking_start TIMESTAMP;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS next_booking_id INT;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS next_booker_id INT;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS next_booking_start TIMESTAMP;
+
+UPDATE items
+SET last_booking_id = (SELECT b.id
+                       FROM bookings b
+                       WHERE b.item_id = items.id
+                         AND b.status = 'APPROVED'
+                         AND b.start_time < LOCALTIMESTAMP
+                       ORDER BY b.start_time DESC, b.id
+                       LIMIT 1),
+    next_booking_id = (SELECT b.id
+                       FROM bookings b
+                       WHERE b.item_id = items.id
+                         AND b.status = 'APPROVED'
+                         AND b.start_time > LOCALTIMESTAMP
+                       ORDER BY b.start_time, b.id
+                       LIMIT 1);
+
+UPDATE items
+SET last_booker_id = (SELECT b.booker_id FROM bookings b WHERE b.id = items.last_booking_id),
+    last_booking_start = (SELECT b.start_time FROM bookings b WHERE b.id = items.last_booking_id),
+    next_booker_id = (SELECT b.booker_id FROM bookings b WHERE b.id = items.next_booking_id),
+    next_booking_start = (SELECT b.start_time FROM bookings b WHERE b.id = items.next_booking_id);
@@ -0,0 +1,16 @@
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS phase VARCHAR NOT NULL DEFAULT 'FUTURE';
+
+UPDATE bookings
+SET phase = CASE
+                WHEN end_time <= LOCALTIMESTAMP THEN 'PAST'
+                WHEN start_time <= LOCALTIMESTAMP THEN 'CURRENT'
+                ELSE 'FUTURE'
+            END;
+
+CREATE INDEX IF NOT EXISTS bookings_booker_id_phase_start_time_idx ON bookings (booker_id, phase, start_time);
+
+CREATE INDEX IF NOT EXISTS bookings_item_id_phase_start_time_idx ON bookings (item_id, phase, start_time);
+
+CREATE INDEX IF NOT EXISTS bookings_phase_start_time_idx ON bookings (phase, start_time);
+
+CREATE INDEX IF NOT EXISTS bookings_phase_end_time_idx ON bookings (phase, end_time);
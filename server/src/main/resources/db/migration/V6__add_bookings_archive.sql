@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS bookings_archive (
+    id INT PRIMARY KEY,
+    booker_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE,
+    start_time TIMESTAMP NOT NULL,
+    end_time TIMESTAMP NOT NULL,
+    item_id INT NOT NULL REFERENCES items (id) ON DELETE CASCADE ON UPDATE CASCADE,
+    status VARCHAR NOT NULL,
+    archived_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS bookings_archive_booker_id_start_time_idx ON bookings_archive (booker_id, start_time);
+
+CREATE INDEX IF NOT EXISTS bookings_archive_item_id_start_time_idx ON bookings_archive (item_id, start_time);
+
+CREATE INDEX IF NOT EXISTS bookings_archive_item_id_booker_id_status_idx ON bookings_archive (item_id, booker_id, status);
@@ -0,0 +1,13 @@
+-- Ключи Idempotency-Key для POST /bookings и POST /items. Строки старше shareit.idempotency.ttl удаляет IdempotencyKeyCleaner.
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    user_id INT NOT NULL,
+    operation VARCHAR(32) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    response VARCHAR,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, operation, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idempotency_keys_created_at_idx ON idempotency_keys (created_at);
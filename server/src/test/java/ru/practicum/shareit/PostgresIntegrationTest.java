@@ -0,0 +1,79 @@
+package ru.practicum.shareit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Основа для проверок того, что есть только в PostgreSQL: секций bookings, GiST-индекса и полнотекстового поиска.
+ * Контейнер поднимается один раз на все наследники и переживает их, как и общий контекст Spring.
+ * Без Docker тесты пропускаются.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ru.practicum.shareit.QueryPlanTest$SqlRecorder",
+        "shareit.booking-partitions.enabled=true",
+        "shareit.booking-window.range-index=true",
+        "shareit.item-search.mode=full-text"})
+public abstract class PostgresIntegrationTest {
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14-alpine");
+
+    @Autowired
+    protected EntityManager entityManager;
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        registry.add("spring.datasource.driverClassName", POSTGRES::getDriverClassName);
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    /**
+     * SQL, который Hibernate отправил в базу при выполнении query.
+     */
+    protected List<String> recordSql(Runnable query) {
+        entityManager.clear();
+        QueryPlanTest.SqlRecorder.STATEMENTS.clear();
+        query.run();
+        return new ArrayList<>(QueryPlanTest.SqlRecorder.STATEMENTS);
+    }
+
+    /**
+     * План запроса с подставленными параметрами: PostgreSQL строит его под эти значения и отсекает лишние секции.
+     */
+    protected String explain(String sql, Object... parameters) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+
+                StringBuilder plan = new StringBuilder();
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+
+                return plan.toString();
+            }
+        });
+    }
+}
@@ -0,0 +1,288 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingArchiveRepository;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.idempotency.model.IdempotencyKeyId;
+import ru.practicum.shareit.idempotency.model.IdempotentOperation;
+import ru.practicum.shareit.idempotency.storage.IdempotencyKeyRepository;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.CommentRepository;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.storage.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.OwnerDailyStatsRepository;
+import ru.practicum.shareit.user.storage.OwnerStatsRepository;
+import ru.practicum.shareit.user.storage.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Выполняет EXPLAIN для SQL, который Hibernate генерирует для методов репозиториев,
+ * и падает, если план содержит полный просмотр таблицы или индекса.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.shareit.QueryPlanTest$SqlRecorder")
+@Transactional
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class QueryPlanTest {
+    /**
+     * H2 помечает обход таблицы как tableScan, а обход индекса без условия — именем индекса без ":".
+     */
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* PUBLIC\\.[\\w.]+ \\*/");
+    private static final int USERS = 10;
+    private static final int ITEMS_PER_USER = 5;
+    private static final int BOOKINGS_PER_ITEM = 4;
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingArchiveRepository archiveRepository;
+    private final CommentRepository commentRepository;
+    private final ItemRequestRepository itemRequestRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final OwnerStatsRepository ownerStatsRepository;
+    private final OwnerDailyStatsRepository ownerDailyStatsRepository;
+
+    private final Pageable pageable = PageRequest.of(0, 10, Sort.by("start").descending());
+    private final LocalDateTime now = LocalDateTime.now();
+    private User user;
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(new User(null, "user" + i, "user" + i + "@mail.ru")));
+        }
+
+        for (int i = 0; i < USERS; i++) {
+            User owner = users.get(i);
+            User booker = users.get((i + 1) % USERS);
+            ItemRequest request = new ItemRequest(null, "request" + i, now.minusDays(i));
+            request.setUser(booker);
+            request = itemRequestRepository.save(request);
+
+            for (int j = 0; j < ITEMS_PER_USER; j++) {
+                Item saved = new Item(null, "item" + j, "desc" + j, j, true, request);
+                saved.setOwner(owner);
+                saved = itemRepository.save(saved);
+
+                for (int k = 0; k < BOOKINGS_PER_ITEM; k++) {
+                    Booking booking = new Booking(now.plusDays(k * 2L - 3), now.plusDays(k * 2L - 2));
+                    booking.setStatus(k % 2 == 0 ? BookingStatus.APPROVED : BookingStatus.WAITING);
+                    booking.setBooker(booker);
+                    booking.setItem(saved);
+                    bookingRepository.save(booking);
+                }
+
+                Comment comment = new Comment(null, "comment" + j, Instant.now());
+                comment.setUser(booker);
+                comment.setItem(saved);
+                commentRepository.save(comment);
+                item = saved;
+            }
+        }
+
+        user = users.get(0);
+        entityManager.flush();
+    }
+
+    @Test
+    public void bookingRepositoryQueriesShouldUseIndexes() {
+        Long userId = user.getId();
+        Long itemId = item.getId();
+
+        assertIndexed(() -> bookingRepository.findAllByBookerId(userId, pageable));
+        assertIndexed(() -> bookingRepository.findFutureByBookerId(userId, now, pageable));
+        assertIndexed(() -> bookingRepository.findCurrentByBookerId(userId, now, pageable));
+        assertIndexed(() -> bookingRepository.findPastByBookerId(userId, now, pageable));
+        assertIndexed(() -> bookingRepository.findCurrentByBookerIdAfterCursor(userId, now, now, 1L, pageable));
+        assertIndexed(() -> bookingRepository.findAllByBookerIdAndStatusIs(userId, BookingStatus.WAITING, pageable));
+        assertIndexed(() -> bookingRepository.findAllByBookerIdAfterCursor(userId, now, 1L, pageable));
+        assertIndexed(() -> bookingRepository.findAllByItemOwnerId(userId, pageable));
+        assertIndexed(() -> bookingRepository.findFutureByItemOwnerId(userId, now, pageable));
+        assertIndexed(() -> bookingRepository.findCurrentByItemOwnerId(userId, now, pageable));
+        assertIndexed(() -> bookingRepository.findPastByItemOwnerId(userId, now, pageable));
+        assertIndexed(() -> bookingRepository.findCurrentByItemOwnerIdAfterCursor(userId, now, now, 1L, pageable));
+        assertIndexed(() -> bookingRepository.findAllByItemOwnerIdAndStatusIs(
+                userId, BookingStatus.WAITING, pageable));
+        assertIndexed(() -> bookingRepository.findAllByItemOwnerIdAfterCursor(userId, now, 1L, pageable));
+        assertIndexed(() -> bookingRepository.findAllByItemOwnerIdAndPeriodOverlapping(
+                userId, now, now.plusDays(1), PageRequest.of(0, 10)));
+        assertIndexed(() -> bookingRepository.findAllByItemIdAndBookerIdAndStatusIsAndEndBefore(
+                itemId, userId, BookingStatus.APPROVED, now));
+        assertIndexed(() -> bookingRepository.findAllByItemIdAndStatusInAndEndAfter(
+                itemId, List.of(BookingStatus.WAITING, BookingStatus.APPROVED), now));
+        assertIndexed(() -> bookingRepository.findAllByItemIdInAndStatusInAndOverlapping(
+                List.of(itemId), List.of(BookingStatus.WAITING, BookingStatus.APPROVED), now, now.plusDays(1)));
+        assertIndexed(() -> bookingRepository.findCreationContext(userId, itemId));
+        assertIndexed(() -> bookingRepository.findAllByIdInAndItemOwnerId(List.of(1L, 2L), userId));
+        assertIndexed(() -> bookingRepository.updateWaitingStatus(List.of(1L, 2L), BookingStatus.APPROVED));
+        assertIndexed(() -> bookingRepository.countStatesByBookerId(userId, now));
+        assertIndexed(() -> bookingRepository.countStatesByItemOwnerId(userId, now));
+        assertIndexed(() -> bookingRepository.findLastBookingsByItemIds(
+                List.of(itemId), BookingStatus.APPROVED, now));
+        assertIndexed(() -> bookingRepository.findNextBookingsByItemIds(
+                List.of(itemId), BookingStatus.APPROVED, now));
+        assertIndexed(() -> bookingRepository.findAllStartingBefore(now, pageable));
+        assertIndexed(() -> bookingRepository.findAllEndingBefore(now, pageable));
+        assertIndexed(() -> bookingRepository.updatePhase(List.of(1L, 2L), BookingPhase.FUTURE, BookingPhase.CURRENT));
+        assertIndexed(() -> bookingRepository.findAllEndedBefore(now, PageRequest.of(0, 10, Sort.by("id"))));
+        assertIndexed(() -> bookingRepository.deleteAllByIdIn(List.of(1L, 2L)));
+        assertIndexed(() -> bookingRepository.streamAllByBookerId(userId).close());
+        assertIndexed(() -> bookingRepository.streamAllByItemOwnerId(userId).close());
+    }
+
+    @Test
+    public void bookingArchiveRepositoryQueriesShouldUseIndexes() {
+        Long userId = user.getId();
+
+        assertIndexed(() -> archiveRepository.findAllByBookerId(userId, pageable));
+        assertIndexed(() -> archiveRepository.findAllByBookerIdAfterCursor(userId, now, 1L, pageable));
+        assertIndexed(() -> archiveRepository.findAllByItemOwnerId(userId, pageable));
+        assertIndexed(() -> archiveRepository.findAllByItemOwnerIdAfterCursor(userId, now, 1L, pageable));
+        assertIndexed(() -> archiveRepository.countByBookerId(userId));
+        assertIndexed(() -> archiveRepository.countByItemOwnerId(userId));
+        assertIndexed(() -> archiveRepository.findAllByItemIdAndBookerIdAndStatusIs(
+                item.getId(), userId, BookingStatus.APPROVED));
+        assertIndexed(() -> archiveRepository.findAllByItemIdInAndStatusInAndOverlapping(
+                List.of(1L, 2L), List.of(BookingStatus.WAITING, BookingStatus.APPROVED), now, now.plusDays(1)));
+        assertIndexed(() -> archiveRepository.copyFromBookings(List.of(1L, 2L), now));
+        assertIndexed(() -> archiveRepository.streamAllByBookerId(userId).close());
+        assertIndexed(() -> archiveRepository.streamAllByItemOwnerId(userId).close());
+    }
+
+    @Test
+    public void itemRepositoryQueriesShouldUseIndexes() {
+        assertIndexed(() -> itemRepository.findItemIdByOwner(user.getId(), PageRequest.of(0, 10)));
+        assertIndexed(() -> itemRepository.findByOwnerIdOrderById(user.getId(), PageRequest.of(0, 10)));
+        assertIndexed(() -> itemRepository.findAllByNextBookingIdIn(List.of(1L, 2L)));
+        assertIndexed(() -> itemRepository.countByOwnerId(user.getId()));
+        assertIndexed(() -> itemRepository.findSearchEntriesByOwnerId(user.getId()));
+        assertIndexed(() -> itemRepository.countByIdInAndAvailableTrue(List.of(item.getId())));
+        assertIndexed(() -> itemRepository.updateLastBookingIfLater(item.getId(), 1L, user.getId(), now));
+        assertIndexed(() -> itemRepository.updateNextBookingIfEarlier(item.getId(), 1L, user.getId(), now));
+        assertIndexed(() -> itemRepository.replaceBookingsIfNextIs(
+                item.getId(), null, null, null, 1L, user.getId(), now, 2L));
+    }
+
+    @Test
+    public void userRepositoryQueriesShouldUseIndexes() {
+        assertIndexed(() -> userRepository.findByEmail(user.getEmail()));
+        assertIndexed(() -> userRepository.findExistingIds(List.of(user.getId(), 2L)));
+        assertIndexed(() -> userRepository.findExistingEmails(List.of(user.getEmail(), "other@mail.ru")));
+    }
+
+    @Test
+    public void ownerStatsRepositoryQueriesShouldUseIndexes() {
+        assertIndexed(() -> ownerStatsRepository.increment(user.getId(), 1, 1, 0, 0));
+        assertIndexed(() -> ownerDailyStatsRepository.findAllByOwnerIdAndDateBetween(
+                user.getId(), now.toLocalDate().minusDays(89), now.toLocalDate()));
+        assertIndexed(() -> ownerDailyStatsRepository.deleteAllByDateBefore(now.toLocalDate().minusDays(89)));
+    }
+
+    @Test
+    public void idempotencyKeyRepositoryQueriesShouldUseIndexes() {
+        IdempotencyKeyId id = new IdempotencyKeyId(user.getId(), IdempotentOperation.CREATE_BOOKING, "key");
+        assertIndexed(() -> idempotencyKeyRepository.findById(id));
+        assertIndexed(() -> idempotencyKeyRepository.saveResponse(
+                id.getUserId(), id.getOperation(), id.getKey(), "{}"));
+        assertIndexed(() -> idempotencyKeyRepository.deleteAllByCreatedAtBefore(now));
+    }
+
+    @Test
+    public void commentRepositoryQueriesShouldUseIndexes() {
+        assertIndexed(() -> commentRepository.findByItemId(item.getId()));
+        assertIndexed(() -> commentRepository.findAllByItemIdIn(List.of(item.getId())));
+    }
+
+    @Test
+    public void itemRequestRepositoryQueriesShouldUseIndexes() {
+        assertIndexed(() -> itemRequestRepository.findByUserId(user.getId()));
+    }
+
+    private void assertIndexed(Runnable query) {
+        entityManager.clear();
+        SqlRecorder.STATEMENTS.clear();
+        query.run();
+        List<String> statements = new ArrayList<>(SqlRecorder.STATEMENTS);
+
+        assertFalse(statements.isEmpty());
+
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertFalse(FULL_SCAN.matcher(plan).find(), () -> "Полный просмотр таблицы:\n" + plan);
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                ParameterMetaData metaData = statement.getParameterMetaData();
+
+                for (int i = 1; i <= metaData.getParameterCount(); i++) {
+                    statement.setObject(i, sampleValue(metaData.getParameterType(i)));
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+
+    private Object sampleValue(int type) {
+        switch (type) {
+            case Types.TIMESTAMP:
+                return Timestamp.valueOf(now);
+            case Types.VARCHAR:
+                return BookingStatus.APPROVED.name();
+            default:
+                return 1;
+        }
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+        static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -8,23 +8,55 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookingImportDto;
 import ru.practicum.shareit.booking.dto.BookingInputDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
+import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingChangedEvent;
+import ru.practicum.shareit.booking.service.BookingEventBus;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.bulk.ImportGuard;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
+import ru.practicum.shareit.exception.ForbiddenException;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.idempotency.model.IdempotentOperation;
+import ru.practicum.shareit.idempotency.service.IdempotentExecutor;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookingController.class)
@@ -33,6 +65,10 @@ public class BookingControllerTest {
     final ObjectMapper mapper;
     @MockBean
     final BookingService service;
+    @MockBean
+    final IdempotentExecutor idempotentExecutor;
+    @MockBean
+    final ImportGuard importGuard;
     private final MockMvc mvc;
     private final BookingInputDto inputDto = new BookingInputDto(
             1L,
@@ -47,9 +83,13 @@ public class BookingControllerTest {
     @Test
     public void createBooking() throws Exception {
         when(service.create(any(), any())).thenReturn(outputDto);
+        when(idempotentExecutor.execute(eq(1L), eq(IdempotentOperation.CREATE_BOOKING), eq("key-1"),
+                eq(inputDto), eq(BookingOutputDto.class), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(5).get());
 
         mvc.perform(post("/bookings")
                         .header("X-Sharer-User-Id", 1L)
+                        .header(IdempotentExecutor.IDEMPOTENCY_KEY_HEADER, "key-1")
                         .content(mapper.writeValueAsString(inputDto))
                         .characterEncoding(StandardCharsets.UTF_8)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -107,4 +147,165 @@ public class BookingControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(mapper.writeValueAsString(Collections.singletonList(outputDto))));
     }
+
+    @Test
+    public void shouldGetBookingByOwnerAfterCursor() throws Exception {
+        when(service.getBookingsByOwnerAfterCursor(any(), any(), any(), any()))
+                .thenReturn(new BookingPageDto(Collections.singletonList(outputDto), "next"));
+
+        mvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", 1L)
+                        .param("cursor", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BookingController.NEXT_CURSOR_HEADER, "next"))
+                .andExpect(content().json(mapper.writeValueAsString(Collections.singletonList(outputDto))));
+    }
+
+    @Test
+    public void shouldGetBookingSummaryByOwner() throws Exception {
+        Map<BookingState, Long> summary = new EnumMap<>(BookingState.class);
+        summary.put(BookingState.ALL, 2L);
+        summary.put(BookingState.WAITING, 1L);
+        when(service.getBookingSummaryByOwner(1L)).thenReturn(summary);
+
+        mvc.perform(get("/bookings/owner/summary")
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ALL", is(2)))
+                .andExpect(jsonPath("$.WAITING", is(1)));
+    }
+
+    @Test
+    public void shouldGetBookingsByOwnerInWindow() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 4, 1, 0, 0);
+        when(service.getBookingsByOwnerInWindow(1L, start, start.plusDays(7), 20, 10))
+                .thenReturn(Collections.singletonList(outputDto));
+
+        mvc.perform(get("/bookings/owner/window")
+                        .header("X-Sharer-User-Id", 1L)
+                        .param("from", "2024-04-01T00:00:00")
+                        .param("to", "2024-04-08T00:00:00")
+                        .param("offset", "20"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(Collections.singletonList(outputDto))));
+    }
+
+    @Test
+    public void shouldConfirmBookingsInBatch() throws Exception {
+        List<BookingDecisionDto> decisions = List.of(
+                new BookingDecisionDto(1L, true),
+                new BookingDecisionDto(2L, false));
+        List<BookingDecisionResultDto> results = List.of(
+                new BookingDecisionResultDto(1L, BookingStatus.APPROVED, null),
+                new BookingDecisionResultDto(2L, null, "Заказ не найден"));
+        when(service.confirmBookings(1L, decisions)).thenReturn(results);
+
+        mvc.perform(patch("/bookings/owner/batch")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(mapper.writeValueAsString(decisions))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(results)));
+    }
+
+    @Test
+    public void shouldImportBookings() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 4, 1, 18, 18);
+        List<BookingImportDto> bookings = List.of(
+                new BookingImportDto(1L, 2L, start, start.plusDays(1), BookingStatus.APPROVED),
+                new BookingImportDto(999L, 2L, start, start.plusDays(1), null));
+        List<ImportResultDto> results = List.of(
+                new ImportResultDto(0, 10L, null),
+                new ImportResultDto(1, null, "Не найден предмет с id = 999"));
+        when(service.importBookings(bookings)).thenReturn(results);
+
+        mvc.perform(post("/bookings/import")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(mapper.writeValueAsString(bookings))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(results)));
+    }
+
+    @Test
+    public void shouldForbidImportToNonAdmin() throws Exception {
+        doThrow(new ForbiddenException("Импорт доступен только администраторам")).when(importGuard).check(2L);
+
+        mvc.perform(post("/bookings/import")
+                        .header("X-Sharer-User-Id", 2L)
+                        .content("[]")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isForbidden());
+        mvc.perform(post("/bookings/import")
+                        .content("[]")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(service, never()).importBookings(any());
+    }
+
+    @Test
+    public void shouldExportBookingsByOwnerAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<BookingOutputDto> consumer = invocation.getArgument(1);
+            consumer.accept(outputDto);
+            consumer.accept(outputDto);
+            return null;
+        }).when(service).exportBookingsByOwner(eq(1L), any());
+
+        MvcResult result = mvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String line = mapper.writeValueAsString(outputDto) + "\n";
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(line + line));
+    }
+
+    @Test
+    public void shouldAnswerNotFoundBeforeExportForUnknownUser() throws Exception {
+        doThrow(new NotFoundException("Не найден пользователь с id = 99")).when(service).validateUser(99L);
+
+        mvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", 99L))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", 99L))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+
+        verify(service, never()).exportBookingsByUser(anyLong(), any());
+        verify(service, never()).exportBookingsByOwner(anyLong(), any());
+    }
+
+    @Test
+    public void shouldStreamBookingChangesToOwner() throws Exception {
+        ExecutorService executor = mock(ExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any());
+        BookingEventBus eventBus = new BookingEventBus(executor, 10, 5, Duration.ofMinutes(1));
+        when(service.subscribeByOwner(1L)).thenAnswer(invocation -> eventBus.subscribe(1L));
+
+        MvcResult result = mvc.perform(get("/bookings/owner/stream")
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        eventBus.onBookingChanged(new BookingChangedEvent(2L, outputDto));
+        eventBus.onBookingChanged(new BookingChangedEvent(1L, outputDto));
+
+        assertThat(result.getResponse().getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+        assertThat(result.getResponse().getContentAsString(StandardCharsets.UTF_8))
+                .isEqualTo("event:booking\ndata:" + mapper.writeValueAsString(outputDto) + "\n\n");
+    }
 }
@@ -3,6 +3,8 @@ package ru.practicum.shareit.booking.dto;
 import org.junit.jupiter.api.Test;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
@@ -32,6 +34,18 @@ public class BookingMapperTest {
         assertEquals(toDto, outputDto);
     }
 
+    @Test
+    public void shouldReturnBookingOutputDtoFromCreationContext() {
+        booking.setStatus(BookingStatus.WAITING);
+        BookingCreationContext context = new BookingCreationContext(
+                2L, "Test", "test@email.ru", 1L, "item", "desc", 3, true, 5L, 7L);
+        BookingOutputDto toDto = mapper.toBookingOutputDto(booking, context);
+        outputDto.setBooker(new UserDto(2L, "Test", "test@email.ru"));
+        outputDto.setItem(new ItemDto(1L, "item", "desc", 3, true, 7L));
+
+        assertEquals(toDto, outputDto);
+    }
+
     @Test
     public void shouldReturnBooking() {
         Booking toEntity = mapper.toBooking(inputDto);
@@ -0,0 +1,73 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingEventBusTest {
+    @Mock
+    ExecutorService mockExecutor;
+
+    private final BookingOutputDto booking = new BookingOutputDto(
+            1L,
+            LocalDateTime.of(2030, 4, 4, 4, 4),
+            LocalDateTime.of(2030, 4, 5, 4, 4),
+            BookingStatus.WAITING);
+
+    @Test
+    public void shouldDeliverOnlyToSubscribersOfItemOwner() {
+        BookingEventBus eventBus = new BookingEventBus(mockExecutor, 10, 5, Duration.ofMinutes(1));
+        eventBus.subscribe(1L);
+
+        eventBus.onBookingChanged(new BookingChangedEvent(2L, booking));
+        verify(mockExecutor, never()).execute(any());
+
+        eventBus.onBookingChanged(new BookingChangedEvent(1L, booking));
+        // пока отправка не выполнена, следующие события только встают в очередь
+        eventBus.onBookingChanged(new BookingChangedEvent(1L, booking));
+        verify(mockExecutor, times(1)).execute(any());
+    }
+
+    @Test
+    public void shouldDisconnectSubscriberWithFullBuffer() {
+        BookingEventBus eventBus = new BookingEventBus(mockExecutor, 2, 5, Duration.ofMinutes(1));
+        eventBus.subscribe(1L);
+        eventBus.subscribe(1L);
+
+        eventBus.onBookingChanged(new BookingChangedEvent(1L, booking));
+        eventBus.heartbeat();
+        assertEquals(2, eventBus.countSubscribers(1L));
+
+        eventBus.onBookingChanged(new BookingChangedEvent(1L, booking));
+        assertEquals(0, eventBus.countSubscribers(1L));
+    }
+
+    @Test
+    public void shouldCloseOldestSubscriptionBeyondLimitPerOwner() {
+        BookingEventBus eventBus = new BookingEventBus(mockExecutor, 10, 2, Duration.ofMinutes(1));
+        SseEmitter oldest = eventBus.subscribe(1L);
+        eventBus.subscribe(1L);
+        eventBus.subscribe(1L);
+        eventBus.subscribe(2L);
+
+        assertEquals(2, eventBus.countSubscribers(1L));
+        assertEquals(1, eventBus.countSubscribers(2L));
+        assertThrows(IllegalStateException.class, () -> oldest.send(SseEmitter.event().comment("ping")));
+    }
+}
@@ -0,0 +1,182 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.exception.ConflictException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingOverlapIndexTest {
+    @Mock
+    BookingRepository mockBookingRepository;
+
+    private BookingOverlapIndex index;
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        index = new BookingOverlapIndex(mockBookingRepository, 10_000, Duration.ofMinutes(30));
+    }
+
+    @Test
+    public void shouldLoadItemBookingsOnFirstTouch() {
+        Booking stored = new Booking(start, start.plusDays(2));
+        stored.setId(1L);
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(any(), any(), any()))
+                .thenReturn(List.of(stored));
+
+        assertThrows(ConflictException.class,
+                () -> index.reserve(1L, 2L, start.plusDays(1), start.plusDays(3)));
+        assertDoesNotThrow(() -> index.reserve(1L, 3L, start.plusDays(2), start.plusDays(3)));
+        verify(mockBookingRepository, times(1)).findAllByItemIdAndStatusInAndEndAfter(any(), any(), any());
+    }
+
+    @Test
+    public void shouldAllowAdjacentAndOtherItemIntervals() {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(anyLong(), any(), any()))
+                .thenReturn(Collections.emptyList());
+
+        index.reserve(1L, 1L, start, start.plusDays(1));
+        index.reserve(1L, 2L, start.plusDays(1), start.plusDays(2));
+        index.reserve(1L, 3L, start.minusDays(1), start);
+        index.reserve(2L, 4L, start, start.plusDays(2));
+
+        assertThrows(ConflictException.class,
+                () -> index.reserve(1L, 5L, start.plusHours(12), start.plusHours(36)));
+    }
+
+    @Test
+    public void shouldFreeIntervalOnRelease() {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(any(), any(), any()))
+                .thenReturn(Collections.emptyList());
+
+        index.reserve(1L, 1L, start, start.plusDays(1));
+        index.release(1L, 1L);
+
+        assertDoesNotThrow(() -> index.reserve(1L, 2L, start, start.plusDays(1)));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedTreesWithoutPendingReservations() {
+        index = new BookingOverlapIndex(mockBookingRepository, 1, Duration.ofMinutes(30));
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(anyLong(), any(), any()))
+                .thenReturn(Collections.emptyList());
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            index.reserve(1L, 1L, start, start.plusDays(1));
+            index.reserve(2L, 2L, start, start.plusDays(1));
+
+            assertEquals(2, index.countItems());
+            assertThrows(ConflictException.class, () -> index.reserve(1L, 3L, start, start.plusDays(1)));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        index.evictIdle();
+        assertEquals(1, index.countItems());
+        index.reserve(3L, 4L, start, start.plusDays(1));
+        assertEquals(1, index.countItems());
+        verify(mockBookingRepository, times(3)).findAllByItemIdAndStatusInAndEndAfter(anyLong(), any(), any());
+    }
+
+    @Test
+    public void shouldEvictIdleTrees() {
+        index = new BookingOverlapIndex(mockBookingRepository, 10, Duration.ZERO);
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(anyLong(), any(), any()))
+                .thenReturn(Collections.emptyList());
+
+        index.reserve(1L, 1L, start, start.plusDays(1));
+        index.evictIdle();
+
+        assertEquals(0, index.countItems());
+    }
+
+    @Test
+    public void shouldFindOverlapsAfterManyInsertsAndRemovals() {
+        BookingOverlapIndex.IntervalTree tree = new BookingOverlapIndex.IntervalTree();
+
+        for (long i = 0; i < 1000; i++) {
+            tree.insert(i, start.plusHours(i * 2), start.plusHours(i * 2 + 1));
+        }
+
+        for (long i = 0; i < 1000; i += 2) {
+            tree.remove(i);
+        }
+
+        assertEquals(500, tree.size());
+        assertFalse(tree.overlaps(start.plusHours(1), start.plusHours(2)));
+        assertFalse(tree.overlaps(start.plusHours(400), start.plusHours(401)));
+        assertTrue(tree.overlaps(start.plusHours(402), start.plusHours(404)));
+        assertTrue(tree.overlaps(start.plusHours(1997), start.plusHours(3000)));
+    }
+
+    @Test
+    public void shouldLetOnlyOneConcurrentRequestReserveSameSlot() throws Exception {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(any(), any(), any()))
+                .thenReturn(Collections.emptyList());
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (long i = 0; i < threads; i++) {
+            long bookingId = i;
+            futures.add(executor.submit(() -> {
+                ready.await();
+
+                try {
+                    index.reserve(1L, bookingId, start, start.plusDays(1));
+                    reserved.incrementAndGet();
+                } catch (ConflictException ignored) {
+                    // слот уже занят другим потоком
+                }
+
+                return null;
+            }));
+        }
+
+        ready.countDown();
+
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        executor.shutdown();
+        assertEquals(1, reserved.get());
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingPhaseSchedulerTest {
+    @Mock
+    BookingRepository mockBookingRepository;
+    @Mock
+    PlatformTransactionManager mockTransactionManager;
+    @Mock
+    ApplicationEventPublisher mockEventPublisher;
+
+    private BookingPhaseScheduler scheduler;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new BookingPhaseScheduler(mockBookingRepository, mockTransactionManager, mockEventPublisher);
+        now = LocalDateTime.now().plusSeconds(1);
+    }
+
+    @Test
+    public void shouldStartAndEndBookingsWhenTheirTimeComes() {
+        Booking booking = booking(now.plusSeconds(5), now.plusSeconds(20));
+        when(mockBookingRepository.findAllStartingBefore(eq(now.plus(BookingPhaseScheduler.HORIZON)), any()))
+                .thenReturn(List.of(booking));
+        when(mockBookingRepository.findAllEndingBefore(eq(now.plus(BookingPhaseScheduler.HORIZON)), any()))
+                .thenReturn(List.of(booking));
+        when(mockBookingRepository.updatePhase(List.of(1L), BookingPhase.FUTURE, BookingPhase.CURRENT))
+                .thenReturn(1);
+        when(mockBookingRepository.updatePhase(List.of(1L), BookingPhase.CURRENT, BookingPhase.PAST))
+                .thenReturn(1);
+
+        scheduler.tick(now);
+        verify(mockBookingRepository, never()).updatePhase(any(), any(), any());
+
+        scheduler.tick(now.plusSeconds(6));
+        scheduler.tick(now.plusSeconds(21));
+
+        ArgumentCaptor<BookingPhaseChangedEvent> events = ArgumentCaptor.forClass(BookingPhaseChangedEvent.class);
+        verify(mockEventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(BookingPhase.CURRENT, events.getAllValues().get(0).getPhase());
+        assertEquals(BookingPhase.PAST, events.getAllValues().get(1).getPhase());
+        assertEquals(List.of(1L), events.getAllValues().get(1).getBookingIds());
+    }
+
+    @Test
+    public void shouldRefillWheelOnlyOncePerInterval() {
+        when(mockBookingRepository.findAllStartingBefore(any(), any())).thenReturn(Collections.emptyList());
+        when(mockBookingRepository.findAllEndingBefore(any(), any())).thenReturn(Collections.emptyList());
+
+        scheduler.tick(now);
+        scheduler.tick(now.plusSeconds(1));
+        scheduler.tick(now.plus(BookingPhaseScheduler.REFILL_INTERVAL));
+
+        verify(mockBookingRepository, times(2)).findAllStartingBefore(any(), any());
+        verify(mockBookingRepository, times(2)).findAllEndingBefore(any(), any());
+        verify(mockEventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void shouldCatchUpOverdueTransitionsInBoundedPortions() {
+        List<Booking> overdue = new ArrayList<>();
+
+        for (long id = 1; id <= BookingPhaseScheduler.CATCH_UP_LIMIT; id++) {
+            overdue.add(booking(id, now.minusHours(2), now.minusHours(1)));
+        }
+
+        when(mockBookingRepository.findAllStartingBefore(any(), any()))
+                .thenReturn(overdue)
+                .thenReturn(Collections.emptyList());
+        when(mockBookingRepository.findAllEndingBefore(any(), any())).thenReturn(Collections.emptyList());
+
+        scheduler.tick(now);
+        scheduler.tick(now.plusSeconds(1));
+        scheduler.tick(now.plusSeconds(2));
+
+        ArgumentCaptor<Pageable> limits = ArgumentCaptor.forClass(Pageable.class);
+        verify(mockBookingRepository, times(2)).findAllStartingBefore(any(), limits.capture());
+        assertEquals(BookingPhaseScheduler.CATCH_UP_LIMIT, limits.getValue().getPageSize());
+        verify(mockBookingRepository, times(2)).updatePhase(any(), eq(BookingPhase.FUTURE), eq(BookingPhase.CURRENT));
+    }
+
+    private Booking booking(LocalDateTime start, LocalDateTime end) {
+        return booking(1L, start, end);
+    }
+
+    private Booking booking(Long id, LocalDateTime start, LocalDateTime end) {
+        Booking booking = new Booking(start, end);
+        booking.setId(id);
+        return booking;
+    }
+}
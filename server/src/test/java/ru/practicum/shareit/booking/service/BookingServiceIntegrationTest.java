@@ -1,37 +1,65 @@
 package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookingImportDto;
+import ru.practicum.shareit.booking.dto.BookingInputDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingArchiveRepository;
 import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingTracker;
+import ru.practicum.shareit.item.service.ItemCalendarCache;
 import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.dto.OwnerStatsDto;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
 import ru.practicum.shareit.user.storage.UserRepository;
 
+import javax.persistence.EntityManager;
+import javax.validation.ValidationException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Transactional
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class BookingServiceIntegrationTest {
     private final BookingService service;
+    private final UserService userService;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final BookingRepository bookingRepository;
+    private final BookingArchiveRepository archiveRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ItemCalendarCache calendarCache;
+    private final BookingOverlapIndex overlapIndex;
+    private final ItemBookingTracker bookingTracker;
+    private final EntityManager entityManager;
 
     private User owner;
     private User booker;
@@ -61,6 +89,69 @@ public class BookingServiceIntegrationTest {
         userRepository.deleteById(owner.getId());
     }
 
+    @Test
+    public void shouldCreateBookingWithSingleLookupAndDeferredInsert() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        // первый заказ на предмет загружает его интервалы в BookingOverlapIndex
+        service.create(new BookingInputDto(item.getId(), start, start.plusDays(1)), booker.getId());
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        BookingOutputDto created = service.create(
+                new BookingInputDto(item.getId(), start.plusDays(2), start.plusDays(3)), booker.getId());
+
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1L);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(0L);
+        assertThat(statistics.getEntityFetchCount()).isEqualTo(0L);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(0L);
+        assertThat(created.getId()).isNotNull();
+        assertThat(created.getStatus()).isEqualTo(BookingStatus.WAITING);
+        assertThat(created.getBooker().getEmail()).isEqualTo("booker@mail.ru");
+        assertThat(created.getItem().getName()).isEqualTo("test item");
+        assertThat(created.getItem().getAvailable()).isTrue();
+
+        // до flush ушли запрос контекста, UPDATE счётчиков owner_stats и, если кончился пул id, запрос
+        // к последовательности; сам INSERT откладывается до flush и оказывается единственным его запросом
+        long preparedBeforeFlush = statistics.getPrepareStatementCount();
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1L);
+        assertThat(statistics.getPrepareStatementCount() - preparedBeforeFlush).isEqualTo(1L);
+        assertThat(bookingRepository.findById(created.getId())).isPresent();
+    }
+
+    @Test
+    public void shouldUpdateOwnerStatsOnCreateConfirmAndImport() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        BookingOutputDto created = service.create(
+                new BookingInputDto(item.getId(), start, start.plusDays(1)), booker.getId());
+        service.confirmBooking(owner.getId(), created.getId(), false);
+        LocalDateTime today = LocalDate.now().atTime(10, 0);
+        List<ImportResultDto> results = service.importBookings(List.of(
+                new BookingImportDto(item.getId(), booker.getId(),
+                        today.minusDays(10), today.minusDays(8), BookingStatus.APPROVED),
+                new BookingImportDto(item.getId(), booker.getId(),
+                        today.minusDays(60), today.minusDays(59), BookingStatus.APPROVED)));
+
+        OwnerStatsDto stats = userService.getStats(owner.getId());
+
+        assertThat(results.get(0).getError()).isNull();
+        assertThat(results.get(1).getError()).isNull();
+        assertThat(stats.getItems()).isEqualTo(1L);
+        assertThat(stats.getBookings()).isEqualTo(3L);
+        assertThat(stats.getWaiting()).isEqualTo(0L);
+        assertThat(stats.getApproved()).isEqualTo(2L);
+        assertThat(stats.getRejected()).isEqualTo(1L);
+        assertThat(stats.getApprovalRate()).isEqualTo(2.0 / 3);
+        assertThat(stats.getBookingsPerItem()).isEqualTo(3.0);
+        assertThat(stats.getBookedDaysLast30()).isEqualTo(3L);
+        assertThat(stats.getBookedDaysLast90()).isEqualTo(5L);
+    }
+
     @Test
     public void shouldReturnBookingsByOwnerWithStateIsPAST() {
         List<BookingOutputDto> bookings =
@@ -209,9 +300,338 @@ public class BookingServiceIntegrationTest {
         assertThat(bookings.get(0).getStatus()).isEqualTo(BookingStatus.WAITING);
     }
 
+    @Test
+    public void shouldSelectPhasesByTimeAndLetSchedulerCatchUp() {
+        LocalDateTime now = LocalDateTime.now();
+        Booking current = new Booking(now.minusHours(1), now.plusHours(1));
+        current.setStatus(BookingStatus.APPROVED);
+        current.setItem(item);
+        current.setBooker(booker);
+        current = bookingRepository.save(current);
+        // планировщик ещё не перевёл заказ: в таблице он остаётся в фазе FUTURE
+        bookingRepository.updatePhase(List.of(current.getId()), BookingPhase.CURRENT, BookingPhase.FUTURE);
+        long version = bookingRepository.findById(current.getId()).orElseThrow().getVersion();
+        List<Object> events = new ArrayList<>();
+        BookingPhaseScheduler scheduler = new BookingPhaseScheduler(bookingRepository, transactionManager, events::add);
+
+        List<BookingOutputDto> beforeTick = service.getBookingsByUser(booker.getId(), BookingState.CURRENT, 0, 10);
+        assertThrows(NotFoundException.class,
+                () -> service.getBookingsByUser(booker.getId(), BookingState.FUTURE, 0, 10));
+        scheduler.tick(now.plusSeconds(1));
+        scheduler.tick(now.plusSeconds(2));
+        Booking afterTick = bookingRepository.findById(current.getId()).orElseThrow();
+
+        assertThat(beforeTick.size()).isEqualTo(1);
+        assertThat(beforeTick.get(0).getId()).isEqualTo(current.getId());
+        assertThat(afterTick.getPhase()).isEqualTo(BookingPhase.CURRENT);
+        assertThat(afterTick.getVersion()).isEqualTo(version + 1);
+        assertThat(events.size()).isEqualTo(1);
+        assertThat(((BookingPhaseChangedEvent) events.get(0)).getBookingIds()).isEqualTo(List.of(current.getId()));
+        assertThat(service.getBookingsByUser(booker.getId(), BookingState.CURRENT, 0, 10).size()).isEqualTo(1);
+    }
+
     @Test
     public void shouldReturnExceptionForBookingsByOwnerWithoutBookings() {
         assertThrows(NotFoundException.class,
                 () -> service.getBookingsByOwner(owner.getId(), BookingState.REJECTED, 0, 1));
     }
+
+    @Test
+    public void shouldWalkBookingsByUserWithCursor() {
+        Booking sameStart = new Booking(booking.getStart(), booking.getEnd().plusDays(1));
+        sameStart.setStatus(BookingStatus.APPROVED);
+        sameStart.setItem(item);
+        sameStart.setBooker(booker);
+        sameStart = bookingRepository.save(sameStart);
+        Booking earlier = new Booking(booking.getStart().minusDays(1), booking.getEnd());
+        earlier.setStatus(BookingStatus.APPROVED);
+        earlier.setItem(item);
+        earlier.setBooker(booker);
+        earlier = bookingRepository.save(earlier);
+
+        BookingPageDto first = service.getBookingsByUserAfterCursor(booker.getId(), BookingState.ALL, "", 2);
+        BookingPageDto second = service.getBookingsByUserAfterCursor(
+                booker.getId(), BookingState.ALL, first.getNextCursor(), 2);
+
+        assertThat(first.getBookings().size()).isEqualTo(2);
+        assertThat(first.getBookings().get(0).getId()).isEqualTo(sameStart.getId());
+        assertThat(first.getBookings().get(1).getId()).isEqualTo(booking.getId());
+        assertThat(first.getNextCursor()).isNotNull();
+        assertThat(second.getBookings().size()).isEqualTo(1);
+        assertThat(second.getBookings().get(0).getId()).isEqualTo(earlier.getId());
+        assertThat(second.getBookings().get(0).getItem().getName()).isEqualTo("test item");
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void shouldThrowExceptionForInvalidCursor() {
+        assertThrows(ValidationException.class,
+                () -> service.getBookingsByOwnerAfterCursor(owner.getId(), BookingState.ALL, "not a cursor", 2));
+    }
+
+    @Test
+    public void shouldCountBookingsByState() {
+        Booking future = new Booking(LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2));
+        future.setStatus(BookingStatus.REJECTED);
+        future.setItem(item);
+        future.setBooker(booker);
+        bookingRepository.save(future);
+        Booking current = new Booking(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+        current.setStatus(BookingStatus.APPROVED);
+        current.setItem(item);
+        current.setBooker(booker);
+        bookingRepository.save(current);
+
+        Map<BookingState, Long> byBooker = service.getBookingSummaryByUser(booker.getId());
+        Map<BookingState, Long> byOwner = service.getBookingSummaryByOwner(owner.getId());
+
+        assertThat(byBooker).isEqualTo(Map.of(
+                BookingState.ALL, 3L,
+                BookingState.PAST, 1L,
+                BookingState.FUTURE, 1L,
+                BookingState.WAITING, 1L,
+                BookingState.REJECTED, 1L,
+                BookingState.CURRENT, 1L));
+        assertThat(byOwner).isEqualTo(byBooker);
+        assertThat(service.getBookingSummaryByUser(owner.getId()).get(BookingState.ALL)).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldReturnOwnerBookingsOverlappingWindow() {
+        Item secondItem = new Item(null, "second item", "desc", 0, true);
+        secondItem.setOwner(owner);
+        secondItem = itemRepository.save(secondItem);
+        Booking adjacent = new Booking(booking.getEnd(), booking.getEnd().plusDays(1));
+        adjacent.setStatus(BookingStatus.REJECTED);
+        adjacent.setItem(secondItem);
+        adjacent.setBooker(booker);
+        adjacent = bookingRepository.save(adjacent);
+        LocalDateTime day = booking.getEnd().toLocalDate().atStartOfDay();
+
+        List<BookingOutputDto> before = service.getBookingsByOwnerInWindow(
+                owner.getId(), day, booking.getEnd(), 0, 10);
+        List<BookingOutputDto> after = service.getBookingsByOwnerInWindow(
+                owner.getId(), booking.getEnd(), day.plusDays(3), 0, 10);
+        List<BookingOutputDto> all = service.getBookingsByOwnerInWindow(
+                owner.getId(), booking.getStart().minusYears(1), adjacent.getEnd().plusYears(1), 0, 10);
+        List<BookingOutputDto> second = service.getBookingsByOwnerInWindow(
+                owner.getId(), booking.getStart().minusYears(1), adjacent.getEnd().plusYears(1), 1, 1);
+
+        assertThat(before.size()).isEqualTo(1);
+        assertThat(before.get(0).getId()).isEqualTo(booking.getId());
+        assertThat(before.get(0).getBooker().getId()).isEqualTo(booker.getId());
+        assertThat(after.size()).isEqualTo(1);
+        assertThat(after.get(0).getId()).isEqualTo(adjacent.getId());
+        assertThat(after.get(0).getItem().getName()).isEqualTo("second item");
+        assertThat(all.size()).isEqualTo(2);
+        assertThat(all.get(0).getId()).isEqualTo(booking.getId());
+        assertThat(second.size()).isEqualTo(1);
+        assertThat(second.get(0).getId()).isEqualTo(adjacent.getId());
+        assertThat(service.getBookingsByOwnerInWindow(booker.getId(), day, day.plusDays(1), 0, 10).isEmpty())
+                .isTrue();
+        assertThrows(ValidationException.class,
+                () -> service.getBookingsByOwnerInWindow(owner.getId(), day, day, 0, 10));
+    }
+
+    @Test
+    public void shouldConfirmBookingsInBatch() {
+        Booking rejected = new Booking(LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2));
+        rejected.setStatus(BookingStatus.WAITING);
+        rejected.setItem(item);
+        rejected.setBooker(booker);
+        rejected = bookingRepository.save(rejected);
+        Booking approved = new Booking(LocalDateTime.now().plusDays(3), LocalDateTime.now().plusDays(4));
+        approved.setStatus(BookingStatus.APPROVED);
+        approved.setItem(item);
+        approved.setBooker(booker);
+        approved = bookingRepository.save(approved);
+        Item otherItem = new Item(null, "other item", "desc", 0, true);
+        otherItem.setOwner(booker);
+        otherItem = itemRepository.save(otherItem);
+        Booking foreign = new Booking(LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2));
+        foreign.setStatus(BookingStatus.WAITING);
+        foreign.setItem(otherItem);
+        foreign.setBooker(owner);
+        foreign = bookingRepository.save(foreign);
+
+        List<BookingDecisionResultDto> results = service.confirmBookings(owner.getId(), List.of(
+                new BookingDecisionDto(booking.getId(), true),
+                new BookingDecisionDto(rejected.getId(), false),
+                new BookingDecisionDto(approved.getId(), false),
+                new BookingDecisionDto(foreign.getId(), true),
+                new BookingDecisionDto(booking.getId(), false)));
+
+        assertThat(results.size()).isEqualTo(5);
+        assertThat(results.get(0)).isEqualTo(
+                new BookingDecisionResultDto(booking.getId(), BookingStatus.APPROVED, null));
+        assertThat(results.get(1)).isEqualTo(
+                new BookingDecisionResultDto(rejected.getId(), BookingStatus.REJECTED, null));
+        assertThat(results.get(2).getStatus()).isEqualTo(BookingStatus.APPROVED);
+        assertThat(results.get(2).getError()).isNotNull();
+        assertThat(results.get(3).getStatus()).isNull();
+        assertThat(results.get(3).getError()).isNotNull();
+        assertThat(results.get(4).getError()).isNotNull();
+        assertThat(bookingRepository.findById(booking.getId()).orElseThrow().getStatus())
+                .isEqualTo(BookingStatus.APPROVED);
+        assertThat(bookingRepository.findById(rejected.getId()).orElseThrow().getStatus())
+                .isEqualTo(BookingStatus.REJECTED);
+        assertThat(bookingRepository.findById(foreign.getId()).orElseThrow().getStatus())
+                .isEqualTo(BookingStatus.WAITING);
+    }
+
+    @Test
+    public void shouldConfirmBookingOnce() {
+        BookingOutputDto confirmed = service.confirmBooking(owner.getId(), booking.getId(), true);
+
+        assertThat(confirmed.getStatus()).isEqualTo(BookingStatus.APPROVED);
+        assertThat(confirmed.getBooker().getId()).isEqualTo(booker.getId());
+        Booking stored = bookingRepository.findById(booking.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(BookingStatus.APPROVED);
+        assertThat(stored.getVersion()).isEqualTo(booking.getVersion() + 1);
+        assertThrows(ValidationException.class,
+                () -> service.confirmBooking(owner.getId(), booking.getId(), false));
+    }
+
+    @Test
+    public void shouldMergeArchivedBookingsBySortKeyAndRollItemOver() {
+        Booking old = new Booking(booking.getStart().minusYears(1), booking.getStart().minusYears(1).plusDays(1));
+        old.setStatus(BookingStatus.APPROVED);
+        old.setItem(item);
+        old.setBooker(booker);
+        old = bookingRepository.save(old);
+        // начался раньше архивного заказа, но закончился позже горизонта и остался в bookings
+        Booking longBooking = new Booking(booking.getStart().minusYears(2), booking.getEnd());
+        longBooking.setStatus(BookingStatus.APPROVED);
+        longBooking.setItem(item);
+        longBooking.setBooker(booker);
+        longBooking = bookingRepository.save(longBooking);
+        itemRepository.updateNextBookingIfEarlier(item.getId(), old.getId(), booker.getId(), old.getStart());
+        BookingArchiver archiver = new BookingArchiver(bookingRepository, archiveRepository, calendarCache,
+                overlapIndex, bookingTracker, transactionManager, Duration.ofDays(1), 1);
+
+        assertThat(archiver.archive(booking.getStart().plusDays(1))).isEqualTo(1);
+        assertThat(bookingRepository.findById(old.getId())).isEmpty();
+        entityManager.clear();
+        assertThat(itemRepository.findById(item.getId()).orElseThrow().getNextBookingId()).isNull();
+
+        List<Long> pastIds = new ArrayList<>();
+        List<Long> cursorIds = new ArrayList<>();
+        String cursor = "";
+
+        for (int from = 0; from < 3; from++) {
+            BookingOutputDto page = service.getBookingsByUser(booker.getId(), BookingState.PAST, from, 1).get(0);
+            pastIds.add(page.getId());
+            BookingPageDto cursorPage = service.getBookingsByOwnerAfterCursor(
+                    owner.getId(), BookingState.ALL, cursor, 1);
+            cursorIds.add(cursorPage.getBookings().get(0).getId());
+            cursor = cursorPage.getNextCursor();
+        }
+
+        assertThat(pastIds).isEqualTo(List.of(booking.getId(), old.getId(), longBooking.getId()));
+        assertThat(cursorIds).isEqualTo(List.of(booking.getId(), old.getId(), longBooking.getId()));
+        assertThat(cursor).isNull();
+        assertThat(service.getBookingsByUser(booker.getId(), BookingState.ALL, 1, 2).get(0).getItem().getName())
+                .isEqualTo("test item");
+        assertThrows(NotFoundException.class,
+                () -> service.getBookingsByUser(booker.getId(), BookingState.PAST, 3, 1));
+        assertThat(service.getBookingById(booker.getId(), old.getId()).getStatus()).isEqualTo(BookingStatus.APPROVED);
+        assertThat(service.getBookingSummaryByUser(booker.getId()).get(BookingState.PAST)).isEqualTo(3L);
+    }
+
+    @Test
+    public void shouldExportBookingsByUser() {
+        Booking later = new Booking(booking.getStart().plusDays(1), booking.getEnd().plusDays(1));
+        later.setStatus(BookingStatus.APPROVED);
+        later.setItem(item);
+        later.setBooker(booker);
+        later = bookingRepository.save(later);
+        List<BookingOutputDto> exported = new ArrayList<>();
+
+        service.exportBookingsByUser(booker.getId(), exported::add);
+
+        assertThat(exported.size()).isEqualTo(2);
+        assertThat(exported.get(0).getId()).isEqualTo(later.getId());
+        assertThat(exported.get(1).getId()).isEqualTo(booking.getId());
+        assertThat(exported.get(1).getItem().getName()).isEqualTo("test item");
+        assertThrows(NotFoundException.class, () -> service.exportBookingsByOwner(999L, exported::add));
+    }
+
+    @Test
+    public void shouldImportBookingsAndReportRejectedRows() {
+        LocalDateTime day = booking.getStart().plusDays(2);
+        List<BookingImportDto> rows = List.of(
+                new BookingImportDto(item.getId(), booker.getId(), day, day.plusDays(1), BookingStatus.APPROVED),
+                new BookingImportDto(item.getId(), booker.getId(),
+                        booking.getStart().plusHours(2), booking.getEnd().minusHours(2), null),
+                new BookingImportDto(item.getId(), booker.getId(),
+                        day.plusHours(12), day.plusDays(2), BookingStatus.APPROVED),
+                new BookingImportDto(item.getId(), booker.getId(),
+                        booking.getStart().plusHours(2), booking.getEnd().minusHours(2), BookingStatus.REJECTED),
+                new BookingImportDto(999L, booker.getId(), day, day.plusDays(1), BookingStatus.APPROVED),
+                new BookingImportDto(item.getId(), owner.getId(), day.plusDays(5), day.plusDays(6), null),
+                new BookingImportDto(item.getId(), booker.getId(), day.plusDays(1), day, null));
+
+        List<ImportResultDto> results = service.importBookings(rows);
+
+        assertThat(results.size()).isEqualTo(7);
+        assertThat(results.get(0).getError()).isNull();
+        assertThat(results.get(1).getError()).isEqualTo("Предмет уже забронирован на это время");
+        assertThat(results.get(2).getError()).isEqualTo("Предмет уже забронирован на это время");
+        assertThat(results.get(3).getError()).isNull();
+        assertThat(results.get(4).getError()).isEqualTo("Не найден предмет с id = 999");
+        assertThat(results.get(5).getError()).isEqualTo("Владелец не может бронировать свой предмет");
+        assertThat(results.get(6).getError()).isEqualTo("Start позже или равен end");
+        assertThat(results.get(6).getRow()).isEqualTo(6);
+        assertThat(results.get(1).getId()).isNull();
+
+        Booking imported = bookingRepository.findById(results.get(0).getId()).orElseThrow();
+
+        assertThat(imported.getStatus()).isEqualTo(BookingStatus.APPROVED);
+        assertThat(imported.getBooker().getId()).isEqualTo(booker.getId());
+        assertThat(bookingRepository.findById(results.get(3).getId()).orElseThrow().getStatus())
+                .isEqualTo(BookingStatus.REJECTED);
+        assertThat(itemRepository.findById(item.getId()).orElseThrow().getLastBookingId())
+                .isEqualTo(imported.getId());
+    }
+
+    @Test
+    public void shouldArchiveEndedBookingWhosePhaseWasNeverAdvanced() {
+        Booking future = new Booking(LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2));
+        future.setStatus(BookingStatus.APPROVED);
+        future.setItem(item);
+        future.setBooker(booker);
+        future = bookingRepository.save(future);
+        BookingArchiver archiver = new BookingArchiver(bookingRepository, archiveRepository, calendarCache,
+                overlapIndex, bookingTracker, transactionManager, Duration.ofDays(1), 10);
+
+        assertThat(future.getPhase()).isEqualTo(BookingPhase.FUTURE);
+        assertThat(archiver.archive(future.getEnd().plusDays(2))).isEqualTo(2);
+        assertThat(bookingRepository.findById(future.getId())).isEmpty();
+        assertThat(archiveRepository.findById(future.getId())).isPresent();
+    }
+
+    @Test
+    public void shouldRejectImportOfUnavailableItemOrOverlappingArchivedBooking() {
+        Booking old = new Booking(booking.getStart().minusYears(1), booking.getStart().minusYears(1).plusDays(1));
+        old.setStatus(BookingStatus.APPROVED);
+        old.setItem(item);
+        old.setBooker(booker);
+        old = bookingRepository.save(old);
+        new BookingArchiver(bookingRepository, archiveRepository, calendarCache, overlapIndex, bookingTracker,
+                transactionManager, Duration.ofDays(1), 10).archive(booking.getStart());
+        Item unavailable = new Item(null, "unavailable item", "desc", 0, false);
+        unavailable.setOwner(owner);
+        unavailable = itemRepository.save(unavailable);
+        LocalDateTime day = booking.getStart().plusDays(2);
+        List<BookingImportDto> rows = List.of(
+                new BookingImportDto(item.getId(), booker.getId(),
+                        old.getStart().plusHours(2), old.getEnd().minusHours(2), BookingStatus.APPROVED),
+                new BookingImportDto(unavailable.getId(), booker.getId(), day, day.plusDays(1), null));
+
+        List<ImportResultDto> results = service.importBookings(rows);
+
+        assertThat(archiveRepository.findById(old.getId())).isPresent();
+        assertThat(results.get(0).getError()).isEqualTo("Предмет уже забронирован на это время");
+        assertThat(results.get(1).getError()).isEqualTo("Этот предмет уже арендован");
+    }
 }
@@ -8,22 +8,32 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingCreationContext;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingInputDto;
 import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingArchiveRepository;
 import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.booking.storage.BookingWindowFinder;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingTracker;
+import ru.practicum.shareit.item.service.ItemCalendarCache;
 import ru.practicum.shareit.item.storage.ItemRepository;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.OwnerStatsRecorder;
 import ru.practicum.shareit.user.storage.UserRepository;
 
 import javax.validation.ValidationException;
@@ -35,6 +45,10 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @Transactional
@@ -48,11 +62,27 @@ public class BookingServiceTest {
     @Mock
     BookingRepository mockBookingRepository;
     @Mock
+    BookingArchiveRepository mockArchiveRepository;
+    @Mock
     UserMapper mockUserMapper;
     @Mock
     BookingMapper mockBookingMapper;
     @Mock
     ItemMapper mockItemMapper;
+    @Mock
+    BookingOverlapIndex mockOverlapIndex;
+    @Mock
+    ItemCalendarCache mockCalendarCache;
+    @Mock
+    ItemBookingTracker mockBookingTracker;
+    @Mock
+    ApplicationEventPublisher mockEventPublisher;
+    @Mock
+    BookingEventBus mockEventBus;
+    @Mock
+    OwnerStatsRecorder mockOwnerStatsRecorder;
+    @Mock
+    BookingWindowFinder mockWindowFinder;
     @InjectMocks
     BookingServiceImpl service;
 
@@ -89,19 +119,42 @@ public class BookingServiceTest {
                 LocalDateTime.of(2024, 7, 1, 5, 17, 42),
                 BookingStatus.WAITING);
 
-        when(mockUserRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        BookingCreationContext context = creationContext(owner.getId(), true);
+        outputBooking.setBooker(userDto);
+        outputBooking.setItem(itemDto);
+
+        when(mockBookingRepository.findCreationContext(user.getId(), item.getId())).thenReturn(Optional.of(context));
         when(mockBookingMapper.toBooking(inputBooking)).thenReturn(booking);
-        when(mockItemRepository.findById(any())).thenReturn(Optional.of(item));
-        when(mockBookingRepository.saveAndFlush(any())).thenReturn(booking);
-        when(mockBookingMapper.toBookingOutputDto(any())).thenReturn(outputBooking);
-        when(mockUserMapper.toUserDto(any())).thenReturn(userDto);
-        when(mockItemMapper.toItemDto(any())).thenReturn(itemDto);
+        when(mockBookingRepository.save(any())).thenReturn(booking);
+        when(mockBookingMapper.toBookingOutputDto(booking, context)).thenReturn(outputBooking);
 
         BookingOutputDto createdBooking = service.create(inputBooking, user.getId());
-        outputBooking.setBooker(userDto);
-        outputBooking.setItem(itemDto);
 
         assertEquals(createdBooking, outputBooking);
+        assertEquals(BookingStatus.WAITING, booking.getStatus());
+        verify(mockBookingRepository, never()).saveAndFlush(any());
+        verify(mockEventPublisher).publishEvent(any(BookingChangedEvent.class));
+        verify(mockOwnerStatsRecorder).onCreated(owner.getId());
+        verify(mockUserRepository, never()).findById(any());
+        verify(mockItemRepository, never()).findById(any());
+    }
+
+    @Test
+    public void shouldReturnConflictExceptionForCreateBookingWithOverlap() {
+        BookingInputDto inputBooking = new BookingInputDto(
+                1L,
+                LocalDateTime.of(2023, 7, 1, 5, 17, 42),
+                LocalDateTime.of(2024, 7, 1, 5, 17, 42));
+
+        when(mockBookingRepository.findCreationContext(user.getId(), item.getId()))
+                .thenReturn(Optional.of(creationContext(owner.getId(), true)));
+        when(mockBookingMapper.toBooking(inputBooking)).thenReturn(booking);
+        when(mockBookingRepository.save(any())).thenReturn(booking);
+        doThrow(new ConflictException("Предмет уже забронирован на это время"))
+                .when(mockOverlapIndex).reserve(item.getId(), booking.getId(), booking.getStart(), booking.getEnd());
+
+        assertThrows(ConflictException.class,
+                () -> service.create(inputBooking, user.getId()));
     }
 
     @Test
@@ -111,7 +164,7 @@ public class BookingServiceTest {
                 LocalDateTime.of(2025, 7, 1, 5, 17, 42),
                 LocalDateTime.of(2026, 7, 1, 5, 17, 42));
 
-        when(mockUserRepository.findById(user.getId())).thenReturn(Optional.empty());
+        when(mockBookingRepository.findCreationContext(user.getId(), item.getId())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
                 () -> service.create(inputBooking, user.getId()));
@@ -124,9 +177,9 @@ public class BookingServiceTest {
                 LocalDateTime.of(2025, 7, 1, 5, 17, 42),
                 LocalDateTime.of(2026, 7, 1, 5, 17, 42));
 
-        when(mockUserRepository.findById(user.getId())).thenReturn(Optional.of(user));
-        when(mockBookingMapper.toBooking(inputBooking)).thenReturn(booking);
-        when(mockItemRepository.findById(any())).thenReturn(Optional.empty());
+        when(mockBookingRepository.findCreationContext(user.getId(), item.getId())).thenReturn(Optional.of(
+                new BookingCreationContext(user.getId(), user.getName(), user.getEmail(),
+                        null, null, null, null, null, null, null)));
 
         assertThrows(NotFoundException.class,
                 () -> service.create(inputBooking, user.getId()));
@@ -134,16 +187,13 @@ public class BookingServiceTest {
 
     @Test
     public void shouldReturnValidationExceptionForCreateBookingWithItemNotAvailable() {
-        item.setAvailable(false);
         BookingInputDto inputBooking = new BookingInputDto(
                 1L,
-
                 LocalDateTime.of(2025, 7, 1, 5, 17, 42),
                 LocalDateTime.of(2026, 7, 1, 5, 17, 42));
 
-        when(mockUserRepository.findById(user.getId())).thenReturn(Optional.of(user));
-        when(mockBookingMapper.toBooking(inputBooking)).thenReturn(booking);
-        when(mockItemRepository.findById(any())).thenReturn(Optional.of(item));
+        when(mockBookingRepository.findCreationContext(user.getId(), item.getId()))
+                .thenReturn(Optional.of(creationContext(owner.getId(), false)));
 
         assertThrows(ValidationException.class,
                 () -> service.create(inputBooking, user.getId()));
@@ -151,15 +201,13 @@ public class BookingServiceTest {
 
     @Test
     public void shouldReturnNotFoundExceptionForCreateBookingWithUserEqualsOwner() {
-        item.setOwner(user);
         BookingInputDto inputBooking = new BookingInputDto(
                 1L,
                 LocalDateTime.of(2025, 7, 1, 5, 17, 42),
                 LocalDateTime.of(2026, 7, 1, 5, 17, 42));
 
-        when(mockUserRepository.findById(user.getId())).thenReturn(Optional.of(user));
-        when(mockBookingMapper.toBooking(inputBooking)).thenReturn(booking);
-        when(mockItemRepository.findById(any())).thenReturn(Optional.of(item));
+        when(mockBookingRepository.findCreationContext(user.getId(), item.getId()))
+                .thenReturn(Optional.of(creationContext(user.getId(), true)));
 
         assertThrows(NotFoundException.class,
                 () -> service.create(inputBooking, user.getId()));
@@ -177,13 +225,16 @@ public class BookingServiceTest {
         when(mockBookingMapper.toBookingOutputDto(any())).thenReturn(outputBooking);
         when(mockUserMapper.toUserDto(any())).thenReturn(userDto);
         when(mockItemMapper.toItemDto(any())).thenReturn(itemDto);
-
+        when(mockBookingRepository.updateWaitingStatus(List.of(1L), BookingStatus.APPROVED)).thenReturn(1);
 
         BookingOutputDto approvedBooking = service.confirmBooking(1L, 1L, true);
         outputBooking.setBooker(userDto);
         outputBooking.setItem(itemDto);
 
         assertEquals(approvedBooking, outputBooking);
+        verify(mockBookingTracker).onApproved(booking);
+        verify(mockEventPublisher).publishEvent(any(BookingChangedEvent.class));
+        verify(mockOwnerStatsRecorder).onDecided(1L, List.of(booking), List.of());
     }
 
     @Test
@@ -200,10 +251,22 @@ public class BookingServiceTest {
         when(mockBookingMapper.toBookingOutputDto(any())).thenReturn(outputBooking);
         when(mockUserMapper.toUserDto(any())).thenReturn(userDto);
         when(mockItemMapper.toItemDto(any())).thenReturn(itemDto);
+        when(mockBookingRepository.updateWaitingStatus(List.of(1L), BookingStatus.REJECTED)).thenReturn(1);
 
         BookingOutputDto approvedBooking = service.confirmBooking(1L, 1L, false);
 
         assertEquals(approvedBooking, outputBooking);
+        verify(mockBookingTracker, never()).onApproved(any());
+        verify(mockOwnerStatsRecorder).onDecided(1L, List.of(), List.of(booking));
+    }
+
+    @Test
+    public void shouldReturnValidationExceptionForEmptyWindow() {
+        LocalDateTime start = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+        assertThrows(ValidationException.class,
+                () -> service.getBookingsByOwnerInWindow(owner.getId(), start, start, 0, 10));
+        verify(mockWindowFinder, never()).findAllByItemOwnerId(any(), any(), any(), any());
     }
 
     @Test
@@ -326,7 +389,7 @@ public class BookingServiceTest {
         outputBooking.setItem(itemDto);
 
         when(mockUserRepository.findById(any())).thenReturn(Optional.of(user));
-        when(mockBookingRepository.findAllByBookerIdAndEndBefore(any(), any(), any())).thenReturn(List.of(booking));
+        when(mockBookingRepository.findPastByBookerId(any(), any(), any())).thenReturn(List.of(booking));
         when(mockBookingMapper.toBookingOutputDto(any())).thenReturn(outputBooking);
         when(mockUserMapper.toUserDto(any())).thenReturn(userDto);
         when(mockItemMapper.toItemDto(any())).thenReturn(itemDto);
@@ -346,7 +409,7 @@ public class BookingServiceTest {
         outputBooking.setItem(itemDto);
 
         when(mockUserRepository.findById(any())).thenReturn(Optional.of(user));
-        when(mockBookingRepository.findAllByBookerIdAndStartAfter(any(), any(), any())).thenReturn(List.of(booking));
+        when(mockBookingRepository.findFutureByBookerId(any(), any(), any())).thenReturn(List.of(booking));
         when(mockBookingMapper.toBookingOutputDto(any())).thenReturn(outputBooking);
         when(mockUserMapper.toUserDto(any())).thenReturn(userDto);
         when(mockItemMapper.toItemDto(any())).thenReturn(itemDto);
@@ -404,7 +467,7 @@ public class BookingServiceTest {
         outputBooking.setItem(itemDto);
 
         when(mockUserRepository.findById(any())).thenReturn(Optional.of(user));
-        when(mockBookingRepository.findAllByBookerIdCurrentBooking(any(), any(), any())).thenReturn(List.of(booking));
+        when(mockBookingRepository.findCurrentByBookerId(any(), any(), any())).thenReturn(List.of(booking));
         when(mockBookingMapper.toBookingOutputDto(any())).thenReturn(outputBooking);
         when(mockUserMapper.toUserDto(any())).thenReturn(userDto);
         when(mockItemMapper.toItemDto(any())).thenReturn(itemDto);
@@ -423,4 +486,61 @@ public class BookingServiceTest {
         assertThrows(NotFoundException.class,
                 () -> service.getBookingsByUser(user.getId(), BookingState.ALL, 0, 20));
     }
+
+    @Test
+    public void shouldReportOnlyBookingsChangedConcurrentlyInBatch() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        Booking changed = new Booking(booking.getStart(), booking.getEnd());
+        changed.setId(2L);
+        changed.setItem(item);
+        changed.setStatus(BookingStatus.WAITING);
+
+        when(mockUserRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
+        when(mockBookingRepository.findAllByIdInAndItemOwnerId(any(), eq(owner.getId())))
+                .thenReturn(List.of(booking, changed));
+        when(mockBookingRepository.lockWaitingIds(any())).thenReturn(List.of(booking.getId()));
+        when(mockBookingMapper.toBookingOutputDto(booking)).thenReturn(new BookingOutputDto(
+                booking.getId(), booking.getStart(), booking.getEnd(), BookingStatus.WAITING));
+        when(mockBookingRepository.updateWaitingStatus(List.of(booking.getId()), BookingStatus.APPROVED))
+                .thenReturn(1);
+
+        List<BookingDecisionResultDto> results = service.confirmBookings(owner.getId(), List.of(
+                new BookingDecisionDto(booking.getId(), true),
+                new BookingDecisionDto(changed.getId(), true)));
+
+        assertEquals(List.of(
+                new BookingDecisionResultDto(booking.getId(), BookingStatus.APPROVED, null),
+                new BookingDecisionResultDto(changed.getId(), null, "Бронирование не ожидает подтверждения")),
+                results);
+        verify(mockBookingTracker).onApproved(booking);
+        verify(mockBookingTracker, never()).onApproved(changed);
+        verify(mockOwnerStatsRecorder).onDecided(owner.getId(), List.of(booking), List.of());
+        verify(mockEventPublisher).publishEvent(any(BookingChangedEvent.class));
+    }
+
+    @Test
+    public void shouldReturnConflictExceptionForConfirmBookingChangedConcurrently() {
+        BookingOutputDto outputBooking = new BookingOutputDto(
+                1L, booking.getStart(), booking.getEnd(), BookingStatus.WAITING);
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+
+        when(mockBookingRepository.findById(any())).thenReturn(Optional.of(booking));
+        when(mockUserRepository.findById(any())).thenReturn(Optional.of(owner));
+        when(mockBookingMapper.toBookingOutputDto(any())).thenReturn(outputBooking);
+        when(mockUserMapper.toUserDto(any())).thenReturn(userDto);
+        when(mockItemMapper.toItemDto(any())).thenReturn(itemDto);
+        when(mockBookingRepository.updateWaitingStatus(List.of(1L), BookingStatus.APPROVED)).thenReturn(0);
+
+        assertThrows(ConflictException.class,
+                () -> service.confirmBooking(1L, 1L, true));
+        verify(mockCalendarCache, never()).invalidate(any());
+        verify(mockBookingTracker, never()).onApproved(any());
+    }
+
+    private BookingCreationContext creationContext(Long ownerId, boolean available) {
+        return new BookingCreationContext(user.getId(), user.getName(), user.getEmail(),
+                item.getId(), item.getName(), item.getDescription(), 0, available, ownerId, null);
+    }
 }
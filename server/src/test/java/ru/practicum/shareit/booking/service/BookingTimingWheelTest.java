@@ -0,0 +1,48 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.model.BookingPhase;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookingTimingWheelTest {
+    private final BookingTimingWheel wheel = new BookingTimingWheel(8, 1000, 10_000);
+
+    @Test
+    public void shouldFireTransitionNotBeforeDeadline() {
+        wheel.schedule(1L, BookingPhase.CURRENT, 12_500);
+
+        assertTrue(wheel.advance(12_999).isEmpty());
+        assertEquals(Map.of(BookingPhase.CURRENT, List.of(1L)), wheel.advance(13_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void shouldFireTransitionBeyondOneRevolution() {
+        wheel.schedule(1L, BookingPhase.PAST, 30_000);
+
+        assertTrue(wheel.advance(22_000).isEmpty());
+        assertEquals(Map.of(BookingPhase.PAST, List.of(1L)), wheel.advance(30_000));
+    }
+
+    @Test
+    public void shouldFireOverdueTransitionOnNextTick() {
+        wheel.schedule(1L, BookingPhase.CURRENT, 5_000);
+
+        assertEquals(Map.of(BookingPhase.CURRENT, List.of(1L)), wheel.advance(11_000));
+    }
+
+    @Test
+    public void shouldIgnoreDuplicateTransition() {
+        assertTrue(wheel.schedule(1L, BookingPhase.CURRENT, 11_000));
+        assertFalse(wheel.schedule(1L, BookingPhase.CURRENT, 11_000));
+        assertTrue(wheel.schedule(1L, BookingPhase.PAST, 12_000));
+
+        assertEquals(Map.of(BookingPhase.CURRENT, List.of(1L), BookingPhase.PAST, List.of(1L)), wheel.advance(15_000));
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingPartitionManagerTest {
+    private static final String EXISTS = "SELECT to_regclass(?) IS NOT NULL";
+
+    @Mock
+    JdbcTemplate mockJdbcTemplate;
+    @Mock
+    PlatformTransactionManager mockTransactionManager;
+
+    private final LocalDate today = LocalDate.of(2026, 10, 18);
+
+    @Test
+    public void shouldCreateMissingPartitionsAheadAndMoveRowsFromDefault() {
+        BookingPartitionManager manager = manager(1);
+        when(mockJdbcTemplate.queryForObject(EXISTS, Boolean.class, "bookings_2026_10")).thenReturn(true);
+        when(mockJdbcTemplate.queryForObject(EXISTS, Boolean.class, "bookings_2026_11")).thenReturn(false);
+        when(mockJdbcTemplate.update(anyString(), startsWith("2026-11-01"), startsWith("2026-12-01"))).thenReturn(2);
+        when(mockJdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("bookings_default"));
+
+        manager.maintain(today);
+
+        verify(mockJdbcTemplate, never()).execute(startsWith("CREATE TABLE bookings_2026_10 "));
+        verify(mockJdbcTemplate).execute("CREATE TABLE bookings_2026_11 (LIKE bookings INCLUDING DEFAULTS)");
+        verify(mockJdbcTemplate).execute("ALTER TABLE bookings ATTACH PARTITION bookings_2026_11 "
+                + "FOR VALUES FROM ('2026-11-01T00:00') TO ('2026-12-01T00:00')");
+    }
+
+    @Test
+    public void shouldDropOnlyEmptyPartitionsBeyondRetention() {
+        BookingPartitionManager manager = manager(0);
+        when(mockJdbcTemplate.queryForObject(EXISTS, Boolean.class, "bookings_2026_10")).thenReturn(true);
+        when(mockJdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(
+                "bookings_default", "bookings_2024_01", "bookings_2024_02", "bookings_2026_10"));
+        when(mockJdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM bookings_2024_01)", Boolean.class))
+                .thenReturn(false);
+        when(mockJdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM bookings_2024_02)", Boolean.class))
+                .thenReturn(true);
+
+        manager.maintain(today);
+
+        verify(mockJdbcTemplate).execute("DROP TABLE bookings_2024_01");
+        verify(mockJdbcTemplate, never()).execute("DROP TABLE bookings_2024_02");
+        verify(mockJdbcTemplate, never()).execute("DROP TABLE bookings_2026_10");
+    }
+
+    @Test
+    public void shouldParsePartitionMonth() {
+        assertEquals("bookings_2026_01", BookingPartitionManager.partitionName(YearMonth.of(2026, 1)));
+        assertEquals(YearMonth.of(2026, 1), BookingPartitionManager.monthOf("bookings_2026_01"));
+        assertNull(BookingPartitionManager.monthOf(BookingPartitionManager.DEFAULT_PARTITION));
+    }
+
+    private BookingPartitionManager manager(int monthsAhead) {
+        return new BookingPartitionManager(
+                mockJdbcTemplate, mockTransactionManager, monthsAhead, Duration.ofDays(365));
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.PostgresIntegrationTest;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Transactional
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class BookingPartitionPruningTest extends PostgresIntegrationTest {
+    private static final int PAGE_SIZE = 10;
+
+    private final BookingPartitionManager partitionManager;
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final Pageable pageable = PageRequest.of(0, PAGE_SIZE, Sort.by("start").descending());
+    private final YearMonth oldMonth = YearMonth.from(now).minusMonths(2);
+    private User booker;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(new User(null, "owner", "owner@mail.ru"));
+        booker = userRepository.save(new User(null, "booker", "booker@mail.ru"));
+        Item item = new Item(null, "item", "desc", 0, true);
+        item.setOwner(owner);
+        item = itemRepository.save(item);
+        Booking booking = new Booking(oldMonth.atDay(10).atStartOfDay(), oldMonth.atDay(11).atStartOfDay());
+        booking.setStatus(BookingStatus.APPROVED);
+        booking.setItem(item);
+        booking.setBooker(booker);
+        bookingRepository.save(booking);
+        entityManager.flush();
+    }
+
+    @Test
+    public void shouldCreatePartitionsAndMoveRowsFromDefault() {
+        assertThat(count(BookingPartitionManager.DEFAULT_PARTITION)).isEqualTo(1L);
+
+        partitionManager.maintain(LocalDate.from(oldMonth.atDay(1)));
+
+        assertThat(count(BookingPartitionManager.DEFAULT_PARTITION)).isEqualTo(0L);
+        assertThat(count(BookingPartitionManager.partitionName(oldMonth))).isEqualTo(1L);
+        assertThat(count(BookingPartitionManager.partitionName(oldMonth.plusMonths(1)))).isEqualTo(0L);
+    }
+
+    @Test
+    public void phaseQueriesShouldSkipPartitionsOutsideTheirTime() {
+        partitionManager.maintain(LocalDate.from(oldMonth.atDay(1)));
+        Long bookerId = booker.getId();
+        Timestamp time = Timestamp.valueOf(now);
+        String current = BookingPartitionManager.partitionName(YearMonth.from(now));
+        String past = BookingPartitionManager.partitionName(oldMonth);
+        String ahead = BookingPartitionManager.partitionName(YearMonth.from(now).plusMonths(1));
+
+        String futurePlan = explain(single(() -> bookingRepository.findFutureByBookerId(bookerId, now, pageable)),
+                bookerId, time, PAGE_SIZE);
+        String currentPlan = explain(single(() -> bookingRepository.findCurrentByBookerId(bookerId, now, pageable)),
+                bookerId, time, time, PAGE_SIZE);
+        String pastPlan = explain(single(() -> bookingRepository.findPastByBookerId(bookerId, now, pageable)),
+                bookerId, time, time, PAGE_SIZE);
+
+        assertThat(futurePlan).contains(current).contains(ahead).doesNotContain(past);
+        assertThat(currentPlan).contains(current).contains(past).doesNotContain(ahead);
+        assertThat(pastPlan).contains(current).contains(past).doesNotContain(ahead);
+    }
+
+    private String single(Runnable query) {
+        List<String> statements = recordSql(query);
+        assertThat(statements).hasSize(1);
+        return statements.get(0);
+    }
+
+    private Long count(String partition) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Long.class);
+    }
+}
@@ -1,16 +1,23 @@
 package ru.practicum.shareit.booking.storage;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.storage.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.storage.UserRepository;
 
@@ -21,13 +28,15 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 @DataJpaTest(properties = {
-        "spring.jpa.hibernate.ddl-auto=create-drop",
-        "spring.datasource.url=jdbc:h2:mem:test"})
+        "spring.datasource.url=jdbc:h2:mem:test",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class BookingRepositoryTest {
     private final BookingRepository repository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final ItemRequestRepository itemRequestRepository;
+    private final TestEntityManager entityManager;
 
     private User testOwner;
     private User testBooker;
@@ -44,8 +53,8 @@ public class BookingRepositoryTest {
         testItem.setOwner(testOwner);
         testItem = itemRepository.save(testItem);
         booking = new Booking(
-                LocalDateTime.of(2024, 7, 4, 4, 4),
-                LocalDateTime.of(2024, 8, 4, 4, 4));
+                LocalDateTime.now().minusDays(1),
+                LocalDateTime.now().plusDays(30));
         booking.setStatus(BookingStatus.WAITING);
         booking.setBooker(testBooker);
         booking.setItem(testItem);
@@ -62,7 +71,7 @@ public class BookingRepositoryTest {
 
     @Test
     public void shouldFindAllByBookerIdCurrentBooking() {
-        List<Booking> bookings = repository.findAllByBookerIdCurrentBooking(
+        List<Booking> bookings = repository.findCurrentByBookerId(
                 testBooker.getId(),
                 LocalDateTime.now(),
                 PageRequest.of(0, 2));
@@ -73,7 +82,7 @@ public class BookingRepositoryTest {
 
     @Test
     public void shouldFindAllByItemOwnerIdCurrentBooking() {
-        List<Booking> bookings = repository.findAllByItemOwnerIdCurrentBooking(
+        List<Booking> bookings = repository.findCurrentByItemOwnerId(
                 testOwner.getId(),
                 LocalDateTime.now(),
                 PageRequest.of(0, 2));
@@ -81,4 +90,49 @@ public class BookingRepositoryTest {
         assertFalse(bookings.isEmpty());
         assertEquals(bookings.get(0), booking);
     }
+
+    @Test
+    public void shouldFindPastBookingsByPhaseAndEndedBookingsWithLaggingPhase() {
+        Booking ended = new Booking(LocalDateTime.now().minusDays(10), LocalDateTime.now().minusDays(9));
+        ended.setStatus(BookingStatus.APPROVED);
+        ended.setBooker(testBooker);
+        ended.setItem(testItem);
+        ended = repository.save(ended);
+        LocalDateTime later = booking.getEnd().plusDays(1);
+        Sort newestFirst = Sort.by("start").descending();
+
+        assertEquals(BookingPhase.PAST, ended.getPhase());
+        assertEquals(BookingPhase.CURRENT, booking.getPhase());
+        assertEquals(List.of(ended), repository.findPastByBookerId(
+                testBooker.getId(), LocalDateTime.now(), PageRequest.of(0, 10, newestFirst)));
+        assertEquals(List.of(booking, ended), repository.findPastByItemOwnerId(
+                testOwner.getId(), later, PageRequest.of(0, 10, newestFirst)));
+        repository.deleteById(ended.getId());
+    }
+
+    @Test
+    public void shouldLoadBookingPageWithBookerAndItemInSingleQuery() {
+        ItemRequest request = new ItemRequest(null, "request", LocalDateTime.now());
+        request.setUser(testBooker);
+        request = itemRequestRepository.save(request);
+        testItem.setRequest(request);
+        itemRepository.save(testItem);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager()
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        List<Booking> bookings = repository.findAllByItemOwnerId(
+                testOwner.getId(),
+                PageRequest.of(0, 10, Sort.by("start").descending()));
+
+        assertEquals(1, bookings.size());
+        assertEquals("booker", bookings.get(0).getBooker().getName());
+        assertEquals("item", bookings.get(0).getItem().getName());
+        assertEquals(request.getId(), bookings.get(0).getItem().getRequest().getId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
 }
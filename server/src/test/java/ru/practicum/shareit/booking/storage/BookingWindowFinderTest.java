@@ -0,0 +1,112 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.PostgresIntegrationTest;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.bulk.BulkInserter;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Окно владельца на истории в несколько тысяч заказов: поиск по GiST-индексу из V11 должен отдавать
+ * те же страницы, что и обход индекса (item_id, start_time).
+ */
+@Transactional
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class BookingWindowFinderTest extends PostgresIntegrationTest {
+    private static final int ITEMS = 20;
+    private static final int BOOKINGS_PER_ITEM = 200;
+    private static final int PAGE_SIZE = 10;
+
+    private final BookingWindowFinder windowFinder;
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final BulkInserter bulkInserter;
+
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new User(null, "owner", "owner@mail.ru"));
+        User booker = userRepository.save(new User(null, "booker", "booker@mail.ru"));
+        List<Booking> history = new ArrayList<>();
+
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = new Item(null, "item " + i, "desc", 0, true);
+            item.setOwner(owner);
+            item = itemRepository.save(item);
+
+            // заказы на сутки через сутки, у каждого предмета со своим сдвигом в часах
+            for (int j = 0; j < BOOKINGS_PER_ITEM; j++) {
+                LocalDateTime start = now.minusDays(2L * j).plusHours(i);
+                Booking booking = new Booking(start, start.plusDays(1));
+                booking.setStatus(BookingStatus.APPROVED);
+                booking.setItem(item);
+                booking.setBooker(booker);
+                history.add(booking);
+            }
+        }
+
+        bulkInserter.persistAll(history);
+        jdbcTemplate.execute("ANALYZE bookings");
+    }
+
+    @Test
+    public void rangeIndexShouldReturnSamePagesAsStartTimeIndex() {
+        BookingWindowFinder startTimeFinder = new BookingWindowFinder(bookingRepository, false);
+
+        for (int days : new int[]{1, 7, 30}) {
+            LocalDateTime start = now.minusDays(100);
+            LocalDateTime end = start.plusDays(days);
+
+            for (int from = 0; from < days * ITEMS; from += PAGE_SIZE) {
+                Pageable pageable = new OffsetPageRequest(from, PAGE_SIZE, Sort.unsorted());
+                List<Long> expected = ids(startTimeFinder.findAllByItemOwnerId(owner.getId(), start, end, pageable));
+
+                assertThat(ids(windowFinder.findAllByItemOwnerId(owner.getId(), start, end, pageable)))
+                        .isEqualTo(expected);
+                assertThat(expected.size()).isLessThanOrEqualTo(PAGE_SIZE);
+            }
+        }
+    }
+
+    @Test
+    public void rangeIndexQueryShouldUseGistIndexAndLimit() {
+        LocalDateTime start = now.minusDays(100);
+        LocalDateTime end = start.plusDays(3);
+        Long ownerId = owner.getId();
+        Pageable pageable = new OffsetPageRequest(0, PAGE_SIZE, Sort.unsorted());
+
+        List<String> statements = recordSql(() ->
+                bookingRepository.findIdsByItemOwnerIdAndPeriodOverlapping(ownerId, start, end, pageable));
+
+        assertThat(statements).hasSize(1);
+        assertThat(statements.get(0)).containsIgnoringCase("limit");
+        assertThat(explain(statements.get(0), ownerId, Timestamp.valueOf(end), Timestamp.valueOf(start),
+                Timestamp.valueOf(end), PAGE_SIZE))
+                .containsPattern("Index Scan (using|on) \\S*_(period|tsrange)_idx");
+    }
+
+    private static List<Long> ids(List<Booking> bookings) {
+        return bookings.stream().map(Booking::getId).collect(Collectors.toList());
+    }
+}
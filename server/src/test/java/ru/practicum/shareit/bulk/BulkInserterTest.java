@@ -0,0 +1,65 @@
+package ru.practicum.shareit.bulk;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkInserterTest {
+    @Mock
+    EntityManager mockEntityManager;
+    @Mock
+    Session mockSession;
+
+    @Test
+    public void shouldFlushAndClearAfterEveryBatch() {
+        BulkInserter inserter = new BulkInserter(mockEntityManager, 2);
+        List<User> users = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            users.add(new User(null, "user" + i, "user" + i + "@mail.ru"));
+        }
+
+        when(mockEntityManager.unwrap(Session.class)).thenReturn(mockSession);
+        when(mockSession.getJdbcBatchSize()).thenReturn(50);
+
+        inserter.persistAll(users);
+
+        InOrder inOrder = inOrder(mockSession, mockEntityManager);
+        inOrder.verify(mockSession).setJdbcBatchSize(2);
+        inOrder.verify(mockEntityManager).persist(users.get(0));
+        inOrder.verify(mockEntityManager).persist(users.get(1));
+        inOrder.verify(mockEntityManager).flush();
+        inOrder.verify(mockEntityManager).clear();
+        inOrder.verify(mockEntityManager).persist(users.get(4));
+        inOrder.verify(mockEntityManager).flush();
+        inOrder.verify(mockEntityManager).clear();
+        inOrder.verify(mockSession).setJdbcBatchSize(50);
+        verify(mockEntityManager, times(3)).clear();
+    }
+
+    @Test
+    public void shouldSkipEmptyList() {
+        BulkInserter inserter = new BulkInserter(mockEntityManager, 2);
+
+        inserter.persistAll(List.of());
+
+        verify(mockEntityManager, never()).unwrap(any());
+        verify(mockEntityManager, never()).flush();
+    }
+}
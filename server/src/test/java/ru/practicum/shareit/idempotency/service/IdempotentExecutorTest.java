@@ -0,0 +1,118 @@
+package ru.practicum.shareit.idempotency.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.idempotency.model.IdempotencyKeyId;
+import ru.practicum.shareit.idempotency.model.IdempotentOperation;
+import ru.practicum.shareit.idempotency.storage.IdempotencyKeyRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import javax.validation.ValidationException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class IdempotentExecutorTest {
+    private final IdempotencyKeyRepository repository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    private final ItemDto request = new ItemDto(null, "item", "desc", 0, true);
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotentExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = executor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void shouldReplayStoredResponseWithoutExecutingAgain() {
+        ItemDto first = executor.execute(1L, IdempotentOperation.CREATE_ITEM, "key-1", request,
+                ItemDto.class, this::create);
+        ItemDto replayed = executor.execute(1L, IdempotentOperation.CREATE_ITEM, "key-1", request,
+                ItemDto.class, this::create);
+        // новый экземпляр с пустым LRU читает ответ из idempotency_keys
+        ItemDto fromTable = executor().execute(1L, IdempotentOperation.CREATE_ITEM, "key-1", request,
+                ItemDto.class, this::create);
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(replayed).isEqualTo(first);
+        assertThat(fromTable).isEqualTo(first);
+        assertThat(repository.findById(new IdempotencyKeyId(1L, IdempotentOperation.CREATE_ITEM, "key-1"))
+                .orElseThrow().getResponse()).contains("\"id\":1");
+    }
+
+    @Test
+    public void shouldScopeKeyByUserAndOperation() {
+        executor.execute(1L, IdempotentOperation.CREATE_ITEM, "key-1", request, ItemDto.class, this::create);
+        executor.execute(2L, IdempotentOperation.CREATE_ITEM, "key-1", request, ItemDto.class, this::create);
+        executor.execute(1L, IdempotentOperation.CREATE_BOOKING, "key-1", request, ItemDto.class, this::create);
+
+        assertThat(executions.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldRejectKeyReusedForAnotherRequest() {
+        executor.execute(1L, IdempotentOperation.CREATE_ITEM, "key-1", request, ItemDto.class, this::create);
+        ItemDto other = new ItemDto(null, "other", "desc", 0, true);
+
+        assertThrows(ConflictException.class, () -> executor.execute(
+                1L, IdempotentOperation.CREATE_ITEM, "key-1", other, ItemDto.class, this::create));
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldExecuteAgainAfterFailure() {
+        assertThrows(NotFoundException.class, () -> executor.execute(
+                1L, IdempotentOperation.CREATE_ITEM, "key-1", request, ItemDto.class, () -> {
+                    throw new NotFoundException("Не найден пользователь с id = 1");
+                }));
+
+        executor.execute(1L, IdempotentOperation.CREATE_ITEM, "key-1", request, ItemDto.class, this::create);
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(repository.count()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldExecuteEveryTimeWithoutKey() {
+        executor.execute(1L, IdempotentOperation.CREATE_ITEM, null, request, ItemDto.class, this::create);
+        executor.execute(1L, IdempotentOperation.CREATE_ITEM, null, request, ItemDto.class, this::create);
+
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(repository.count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldRejectBlankKey() {
+        assertThrows(ValidationException.class, () -> executor.execute(
+                1L, IdempotentOperation.CREATE_ITEM, " ", request, ItemDto.class, this::create));
+    }
+
+    private IdempotentExecutor executor() {
+        return new IdempotentExecutor(repository, transactionManager, objectMapper, Duration.ofDays(1), 10);
+    }
+
+    private ItemDto create() {
+        return new ItemDto((long) executions.incrementAndGet(), request.getName(), request.getDescription(),
+                0, request.getAvailable());
+    }
+}
@@ -7,22 +7,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.booking.dto.BookingWithBookerIdDto;
+import ru.practicum.shareit.bulk.ImportGuard;
+import ru.practicum.shareit.idempotency.model.IdempotentOperation;
+import ru.practicum.shareit.idempotency.service.IdempotentExecutor;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemCommentAndBookingDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
@@ -37,6 +46,10 @@ public class ItemControllerTest {
     final ObjectMapper mapper;
     @MockBean
     final ItemService service;
+    @MockBean
+    final IdempotentExecutor idempotentExecutor;
+    @MockBean
+    final ImportGuard importGuard;
     private final MockMvc mvc;
 
     private ItemDto itemDto = new ItemDto(
@@ -50,6 +63,9 @@ public class ItemControllerTest {
     @Test
     public void createItem() throws Exception {
         when(service.create(itemDto, 1L)).thenReturn(itemDto);
+        when(idempotentExecutor.execute(eq(1L), eq(IdempotentOperation.CREATE_ITEM), isNull(),
+                eq(itemDto), eq(ItemDto.class), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(5).get());
 
         mvc.perform(post("/items")
                         .content(mapper.writeValueAsString(itemDto))
@@ -64,6 +80,19 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.available", is(itemDto.getAvailable()), Boolean.class));
     }
 
+    @Test
+    public void shouldReturnConflictForConcurrentUpdate() throws Exception {
+        when(service.update(itemDto, 1L, 1L))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Item.class, 1L));
+
+        mvc.perform(patch("/items/{itemId}", itemDto.getId())
+                        .content(mapper.writeValueAsString(itemDto))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     public void updateItem() throws Exception {
         when(service.update(itemDto, 1L, 1L)).thenReturn(itemDto);
@@ -152,6 +181,18 @@ public class ItemControllerTest {
                 .andExpect(content().json(mapper.writeValueAsString(Collections.singletonList(itemDto))));
     }
 
+    @Test
+    public void suggest() throws Exception {
+        when(service.suggest("дре", 5)).thenReturn(List.of("Дрель", "Дрезина"));
+
+        mvc.perform(get("/items/search/suggest")
+                        .param("prefix", "дре")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]", is("Дрель")))
+                .andExpect(jsonPath("$[1]", is("Дрезина")));
+    }
+
     @Test
     public void createComment() throws Exception {
         CommentDto commentDto = new CommentDto(1L, "test comment", "Gena", Instant.now());
@@ -169,4 +210,18 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.authorName", is(commentDto.getAuthorName())))
                 .andExpect(jsonPath("$.created", is(String.valueOf(commentDto.getCreated()))));
     }
+
+    @Test
+    public void getAvailability() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 1, 8, 10, 0);
+        List<FreeIntervalDto> free = List.of(new FreeIntervalDto(from, to));
+        when(service.getAvailability(1L, from, to)).thenReturn(free);
+
+        mvc.perform(get("/items/{itemId}/availability", 1L)
+                        .param("from", "2030-01-01T10:00:00")
+                        .param("to", "2030-01-08T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(free)));
+    }
 }
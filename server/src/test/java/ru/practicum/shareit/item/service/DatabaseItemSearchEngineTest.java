@@ -0,0 +1,66 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "shareit.item-search.mode=database")
+@Transactional
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class DatabaseItemSearchEngineTest {
+    private final ItemService service;
+    private final ItemSearchEngine searchEngine;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    private Item drill;
+    private Item notebook;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(new User(null, "Owner", "owner@mail.ru"));
+        drill = save(owner, "Дрель ударная", "Мощная", true);
+        notebook = save(owner, "Notebook", "Ноутбук для работы, 100% заряд", true);
+        save(owner, "Дрель", "Сломана", false);
+    }
+
+    @Test
+    public void shouldFindSubstringsWithLike() {
+        assertThat(searchEngine).isInstanceOf(DatabaseItemSearchEngine.class);
+        assertThat(ids(service.search("ДРЕЛ", 0, 10))).containsExactly(drill.getId());
+        assertThat(ids(service.search("ote", 0, 10))).containsExactly(notebook.getId());
+        assertThat(ids(service.search("100%", 0, 10))).containsExactly(notebook.getId());
+        assertThat(searchEngine.cacheKey("100%")).isEqualTo("100%");
+        assertThat(ids(service.search("_", 0, 10))).isEmpty();
+        assertThat(ids(service.search("о", 1, 1))).containsExactly(notebook.getId());
+    }
+
+    @Test
+    public void shouldBuildPrefixTsQueryFromWords() {
+        assertThat(FullTextItemSearchEngine.toTsQuery("Дрель-шуруп's | !")).isEqualTo("дрель:* & шуруп:* & s:*");
+        assertThat(FullTextItemSearchEngine.toTsQuery("&:*")).isEmpty();
+    }
+
+    private Item save(User owner, String name, String description, boolean available) {
+        Item item = new Item(null, name, description, 0, available);
+        item.setOwner(owner);
+        return itemRepository.save(item);
+    }
+
+    private static List<Long> ids(List<ItemDto> items) {
+        return items.stream().map(ItemDto::getId).collect(Collectors.toList());
+    }
+}
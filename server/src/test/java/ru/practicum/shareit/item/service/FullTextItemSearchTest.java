@@ -0,0 +1,72 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.PostgresIntegrationTest;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Transactional
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class FullTextItemSearchTest extends PostgresIntegrationTest {
+    private final ItemSearchEngine searchEngine;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    private Item drill;
+    private Item perforator;
+    private Item notebook;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(new User(null, "Owner", "owner@mail.ru"));
+        perforator = save(owner, "Перфоратор", "Заменит любую дрель", true);
+        drill = save(owner, "Дрель ударная", "Мощная", true);
+        notebook = save(owner, "Notebook", "Ноутбук для работы", true);
+        save(owner, "Дрель", "Сломана", false);
+        entityManager.flush();
+    }
+
+    @Test
+    public void shouldFindWordFormsByPrefixRankingNameAboveDescription() {
+        assertThat(searchEngine).isInstanceOf(FullTextItemSearchEngine.class);
+        assertThat(ids(searchEngine.search("дрели", 0, 10))).isEqualTo(List.of(drill.getId(), perforator.getId()));
+        assertThat(ids(searchEngine.search("ДРЕЛ", 1, 1))).isEqualTo(List.of(perforator.getId()));
+        assertThat(ids(searchEngine.search("ударн дрель", 0, 10))).isEqualTo(List.of(drill.getId()));
+        assertThat(ids(searchEngine.search("ноутбуки", 0, 10))).isEqualTo(List.of(notebook.getId()));
+        assertThat(ids(searchEngine.search("note", 0, 10))).isEqualTo(List.of(notebook.getId()));
+        assertThat(searchEngine.search("&:* | !", 0, 10)).isEmpty();
+    }
+
+    @Test
+    public void fullTextQueryShouldUseGinIndex() {
+        String query = FullTextItemSearchEngine.toTsQuery("дрель");
+        List<String> statements = recordSql(() -> itemRepository.findAvailableByFullText(query, PageRequest.of(0, 10)));
+        // на нескольких строках последовательное чтение дешевле, проверяется только, что индекс применим
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+        assertThat(statements).hasSize(1);
+        assertThat(explain(statements.get(0), query, query, 10)).contains("items_search_vector_idx");
+    }
+
+    private Item save(User owner, String name, String description, boolean available) {
+        Item item = new Item(null, name, description, 0, available);
+        item.setOwner(owner);
+        return itemRepository.save(item);
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingPhaseChangedEvent;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemBookingTrackerTest {
+    @Mock
+    ItemRepository mockItemRepository;
+    @Mock
+    BookingRepository mockBookingRepository;
+    @InjectMocks
+    ItemBookingTracker tracker;
+
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        booker = new User(2L, "Test", "test@mail.ru");
+        item = new Item(1L, "Notebook", "testDesc", 0, true);
+    }
+
+    @Test
+    public void shouldMoveNextBookingOnFutureApprove() {
+        Booking booking = booking(3L, LocalDateTime.now().plusDays(1));
+
+        tracker.onApproved(booking);
+
+        verify(mockItemRepository).updateNextBookingIfEarlier(1L, 3L, 2L, booking.getStart());
+        verify(mockItemRepository, never()).updateLastBookingIfLater(any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldMoveLastBookingOnStartedApprove() {
+        Booking booking = booking(3L, LocalDateTime.now().minusHours(1));
+
+        tracker.onApproved(booking);
+
+        verify(mockItemRepository).updateLastBookingIfLater(1L, 3L, 2L, booking.getStart());
+        verify(mockItemRepository, never()).updateNextBookingIfEarlier(any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldNotRefreshItemWithFutureNextBooking() {
+        item.setNextBookingId(3L);
+        item.setNextBookingStart(LocalDateTime.now().plusDays(1));
+        when(mockItemRepository.findAllByNextBookingIdIn(List.of(3L))).thenReturn(List.of(item));
+
+        tracker.onPhaseChanged(new BookingPhaseChangedEvent(BookingPhase.CURRENT, List.of(3L)));
+        tracker.onPhaseChanged(new BookingPhaseChangedEvent(BookingPhase.PAST, List.of(3L)));
+
+        verifyNoInteractions(mockBookingRepository);
+        verify(mockItemRepository, never()).replaceBookingsIfNextIs(
+                any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldPromoteStartedNextBooking() {
+        Booking started = booking(3L, LocalDateTime.now().minusHours(1));
+        item.setNextBookingId(3L);
+        item.setNextBookerId(2L);
+        item.setNextBookingStart(started.getStart());
+
+        when(mockBookingRepository.findLastBookingsByItemIds(eq(List.of(1L)), eq(BookingStatus.APPROVED), any()))
+                .thenReturn(List.of(started));
+        when(mockBookingRepository.findNextBookingsByItemIds(eq(List.of(1L)), eq(BookingStatus.APPROVED), any()))
+                .thenReturn(Collections.emptyList());
+
+        when(mockItemRepository.findAllByNextBookingIdIn(List.of(3L))).thenReturn(List.of(item));
+
+        tracker.onPhaseChanged(new BookingPhaseChangedEvent(BookingPhase.CURRENT, List.of(3L)));
+
+        verify(mockItemRepository).replaceBookingsIfNextIs(
+                1L, 3L, 2L, started.getStart(), null, null, null, 3L);
+    }
+
+    private Booking booking(Long id, LocalDateTime start) {
+        Booking booking = new Booking(start, start.plusDays(1));
+        booking.setId(id);
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStatus(BookingStatus.APPROVED);
+        return booking;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemCalendarCacheTest {
+    @Mock
+    BookingRepository mockBookingRepository;
+
+    private ItemCalendarCache cache;
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+
+    @BeforeEach
+    void setUp() {
+        cache = new ItemCalendarCache(mockBookingRepository, 2);
+    }
+
+    @Test
+    public void shouldReturnGapsBetweenMergedBookings() {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any()))
+                .thenReturn(List.of(
+                        booking(start.plusDays(5), start.plusDays(6)),
+                        booking(start.plusDays(1), start.plusDays(2)),
+                        booking(start.plusDays(2), start.plusDays(3)),
+                        booking(start.plusHours(60), start.plusHours(62))));
+
+        List<FreeIntervalDto> free = cache.getFreeIntervals(1L, start, start.plusDays(10));
+
+        assertEquals(List.of(
+                new FreeIntervalDto(start, start.plusDays(1)),
+                new FreeIntervalDto(start.plusDays(3), start.plusDays(5)),
+                new FreeIntervalDto(start.plusDays(6), start.plusDays(10))), free);
+    }
+
+    @Test
+    public void shouldClipIntervalsToWindow() {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any()))
+                .thenReturn(List.of(booking(start, start.plusDays(2)), booking(start.plusDays(3), start.plusDays(4))));
+
+        assertEquals(List.of(new FreeIntervalDto(start.plusDays(2), start.plusDays(3))),
+                cache.getFreeIntervals(1L, start.plusDays(1), start.plusHours(84)));
+        assertEquals(Collections.emptyList(),
+                cache.getFreeIntervals(1L, start.plusHours(1), start.plusHours(2)));
+    }
+
+    @Test
+    public void shouldKeepCalendarUntilInvalidated() {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any()))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(List.of(booking(start, start.plusDays(1))));
+
+        cache.getFreeIntervals(1L, start, start.plusDays(2));
+        assertEquals(List.of(new FreeIntervalDto(start, start.plusDays(2))),
+                cache.getFreeIntervals(1L, start, start.plusDays(2)));
+
+        cache.invalidate(1L);
+
+        assertEquals(List.of(new FreeIntervalDto(start.plusDays(1), start.plusDays(2))),
+                cache.getFreeIntervals(1L, start, start.plusDays(2)));
+        verify(mockBookingRepository, times(2)).findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any());
+    }
+
+    @Test
+    public void shouldCacheLoadedCalendarWhenOtherItemIsInvalidatedMeanwhile() {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any()))
+                .thenAnswer(invocation -> {
+                    cache.invalidate(2L);
+                    return Collections.emptyList();
+                });
+
+        cache.getFreeIntervals(1L, start, start.plusDays(1));
+        cache.getFreeIntervals(1L, start, start.plusDays(1));
+
+        verify(mockBookingRepository, times(1)).findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any());
+    }
+
+    @Test
+    public void shouldNotCacheCalendarInvalidatedWhileLoading() {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any()))
+                .thenAnswer(invocation -> {
+                    cache.invalidate(1L);
+                    return Collections.emptyList();
+                });
+
+        cache.getFreeIntervals(1L, start, start.plusDays(1));
+        cache.getFreeIntervals(1L, start, start.plusDays(1));
+
+        verify(mockBookingRepository, times(2)).findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedCalendarOverMaxItems() {
+        when(mockBookingRepository.findAllByItemIdAndStatusInAndEndAfter(any(), any(), any()))
+                .thenReturn(Collections.emptyList());
+
+        cache.getFreeIntervals(1L, start, start.plusDays(1));
+        cache.getFreeIntervals(2L, start, start.plusDays(1));
+        cache.getFreeIntervals(1L, start, start.plusDays(1));
+        cache.getFreeIntervals(3L, start, start.plusDays(1));
+        cache.getFreeIntervals(1L, start, start.plusDays(1));
+        cache.getFreeIntervals(2L, start, start.plusDays(1));
+
+        verify(mockBookingRepository, times(1)).findAllByItemIdAndStatusInAndEndAfter(eq(1L), any(), any());
+        verify(mockBookingRepository, times(2)).findAllByItemIdAndStatusInAndEndAfter(eq(2L), any(), any());
+    }
+
+    private Booking booking(LocalDateTime start, LocalDateTime end) {
+        return new Booking(start, end);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemChangePublisherTest {
+    @Mock
+    ItemRepository mockItemRepository;
+    @Mock
+    PlatformTransactionManager mockTransactionManager;
+    @Mock
+    ItemChangeListener mockSearchIndex;
+    @Mock
+    ItemChangeListener mockSuggestIndex;
+    @Mock
+    ItemSearchCache mockSearchCache;
+
+    private final ItemSearchEntry drill = new ItemSearchEntry(1L, "Дрель", "Ударная", 3, true, 0L);
+    private final ItemSearchEntry tent = new ItemSearchEntry(2L, "Палатка", "Двухместная", 0, true, 0L);
+    private ItemChangePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new ItemChangePublisher(mockItemRepository, List.of(mockSearchIndex, mockSuggestIndex),
+                mockSearchCache, mockTransactionManager);
+    }
+
+    @Test
+    public void shouldFeedAllListenersFromSingleScanAtStartup() {
+        when(mockItemRepository.streamSearchEntries()).thenReturn(Stream.of(drill, tent));
+
+        publisher.load();
+
+        verify(mockItemRepository, times(1)).streamSearchEntries();
+        verify(mockSearchIndex).onSaved(drill);
+        verify(mockSearchIndex).onSaved(tent);
+        verify(mockSuggestIndex).onSaved(drill);
+        verify(mockSuggestIndex).onSaved(tent);
+        verifyNoInteractions(mockSearchCache);
+    }
+
+    @Test
+    public void shouldApplySavedItemsAfterCommitAndInvalidateCacheLast() {
+        Item item = new Item(1L, "Дрель", "Ударная", 3, true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            publisher.onSaved(List.of(item), List.of("Перфоратор", "Старый"));
+            item.setVersion(1);
+
+            verifyNoInteractions(mockSearchIndex, mockSuggestIndex, mockSearchCache);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(1, synchronizations.size());
+            synchronizations.get(0).afterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        ItemSearchEntry saved = new ItemSearchEntry(1L, "Дрель", "Ударная", 3, true, 1L);
+        InOrder order = inOrder(mockSearchIndex, mockSuggestIndex, mockSearchCache);
+        order.verify(mockSearchIndex).onSaved(saved);
+        order.verify(mockSuggestIndex).onSaved(saved);
+        order.verify(mockSearchCache).invalidate(List.of(1L), List.of("Перфоратор", "Старый", "Дрель", "Ударная"));
+    }
+
+    @Test
+    public void shouldRemoveDeletedItemsFromListenersAndCache() {
+        publisher.onDeleted(List.of(drill, tent));
+        publisher.onDeleted(List.of());
+
+        verify(mockSearchIndex).onDeleted(drill);
+        verify(mockSuggestIndex).onDeleted(tent);
+        verify(mockSearchIndex, never()).onSaved(drill);
+        verify(mockSearchCache, times(1)).invalidate(List.of(drill.getId(), tent.getId()), List.of("Дрель", "Ударная", "Палатка", "Двухместная"));
+    }
+}
@@ -0,0 +1,139 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ItemSearchCacheTest {
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final ItemDto drill = new ItemDto(1L, "Дрель", "Ударная", 0, true);
+    private final ItemDto tent = new ItemDto(2L, "Палатка", "Двухместная", 0, true);
+    private final List<String> loads = new ArrayList<>();
+
+    @Test
+    public void shouldServeQueriesWithSameWordsFromCache() {
+        ItemSearchCache cache = new ItemSearchCache(DataSize.ofKilobytes(64), TTL);
+        ItemSearchEngine engine = (text, offset, size) -> List.of();
+
+        assertEquals("дрель шуруповерт", engine.cacheKey("Дрель,  ШУРУПОВЁРТ!"));
+        assertEquals(List.of(drill), cache.get(engine.cacheKey("Дрель!"), 0, 10, loader("Дрель!", drill)));
+        assertEquals(List.of(drill), cache.get(engine.cacheKey(" дрель "), 0, 10, loader(" дрель ", drill)));
+        assertEquals(List.of(), cache.get(engine.cacheKey("дрель"), 10, 10, loader("дрель 10")));
+
+        assertEquals(List.of("Дрель!", "дрель 10"), loads);
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void shouldInvalidateOnlyQueriesOverlappingChangedText() {
+        ItemSearchCache cache = new ItemSearchCache(DataSize.ofKilobytes(64), TTL);
+        cache.get("дрел", 0, 10, loader("дрел", drill));
+        cache.get("палатка", 0, 10, loader("палатка", tent));
+
+        cache.invalidate(List.of(), List.of("Дрели аккумуляторные", "Без ударного режима"));
+        cache.get("дрел", 0, 10, loader("дрел", drill));
+        cache.get("палатка", 0, 10, loader("палатка", tent));
+
+        assertEquals(List.of("дрел", "палатка", "дрел"), loads);
+        assertEquals(1, cache.invalidations());
+    }
+
+    @Test
+    public void shouldInvalidatePagesContainingChangedItemWhateverTheirQuery() {
+        ItemSearchCache cache = new ItemSearchCache(DataSize.ofKilobytes(64), TTL);
+        // страница нечёткого поиска: с запросом у предмета нет общих слов
+        cache.get("дрлеь", 0, 10, loader("дрлеь", drill));
+        cache.get("палатка", 0, 10, loader("палатка", tent));
+
+        cache.invalidate(List.of(drill.getId()), List.of("Перфоратор", "Без ударного режима"));
+        cache.get("дрлеь", 0, 10, loader("дрлеь", drill));
+        cache.get("палатка", 0, 10, loader("палатка", tent));
+
+        assertEquals(List.of("дрлеь", "палатка", "дрлеь"), loads);
+        assertEquals(1, cache.invalidations());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyReadPagesBeyondMaxSize() {
+        long pageBytes = ItemSearchCache.ENTRY_OVERHEAD_BYTES + 2 * "дрель".length()
+                + ItemSearchCache.ITEM_OVERHEAD_BYTES + 2 * ("Дрель".length() + "Ударная".length());
+        ItemSearchCache cache = new ItemSearchCache(DataSize.ofBytes(2 * pageBytes + 10), TTL);
+        cache.get("дрель", 0, 10, loader("first", drill));
+        cache.get("дрель", 10, 10, loader("second", drill));
+        cache.get("дрель", 0, 10, loader("first", drill));
+        cache.get("дрель", 20, 10, loader("third", drill));
+        cache.get("дрель", 0, 10, loader("first", drill));
+        cache.get("дрель", 10, 10, loader("second", drill));
+
+        assertEquals(List.of("first", "second", "third", "second"), loads);
+        assertEquals(2, cache.evictions());
+        assertEquals(2 * pageBytes, cache.bytes());
+    }
+
+    @Test
+    public void shouldNotCachePageLoadedConcurrentlyWithWriteOrQueryWithoutWords() {
+        ItemSearchCache cache = new ItemSearchCache(DataSize.ofKilobytes(64), TTL);
+        cache.get("дрель", 0, 10, () -> {
+            cache.invalidate(List.of(), List.of("Палатка"));
+            return loader("stale", drill).get();
+        });
+        cache.get("дрель", 0, 10, loader("fresh", drill));
+        cache.get("--", 0, 10, loader("--"));
+        cache.get("--", 0, 10, loader("--"));
+
+        assertEquals(List.of("stale", "fresh", "--", "--"), loads);
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    public void shouldMatchTermsContainingQueryWordOrSharingItsBeginning() {
+        ItemSearchCache cache = new ItemSearchCache(DataSize.ofKilobytes(64), TTL);
+        List<String> queries = List.of("ote", "дрелями", "шурупаверт", "д", "палатка");
+        queries.forEach(query -> cache.get(query, 0, 10, loader(query)));
+
+        cache.invalidate(List.of(), List.of("Notebook", "Дрель-шуруповерт"));
+        queries.forEach(query -> cache.get(query, 0, 10, loader(query)));
+
+        assertEquals(List.of("ote", "дрелями", "шурупаверт", "д"), loads.subList(queries.size(), loads.size()));
+        assertEquals(4, cache.invalidations());
+    }
+
+    @Test
+    public void shouldClearWholeCacheForLargeChangeAndReloadExpiredPages() {
+        ItemSearchCache cache = new ItemSearchCache(DataSize.ofKilobytes(64), TTL);
+        cache.get("дрель", 0, 10, loader("дрель", drill));
+        cache.get("палатка", 0, 10, loader("палатка", tent));
+        List<String> texts = new ArrayList<>();
+
+        for (int i = 0; i <= ItemSearchCache.MAX_INVALIDATION_TERMS; i++) {
+            texts.add("слово" + i);
+        }
+
+        cache.invalidate(List.of(), texts);
+        cache.get("палатка", 0, 10, loader("палатка", tent));
+
+        ItemSearchCache expiring = new ItemSearchCache(DataSize.ofKilobytes(64), Duration.ZERO);
+        expiring.get("дрель", 0, 10, loader("expired", drill));
+        expiring.get("дрель", 0, 10, loader("expired", drill));
+
+        assertEquals(List.of("дрель", "палатка", "палатка", "expired", "expired"), loads);
+        assertEquals(2, cache.invalidations());
+        assertEquals(0, expiring.hits());
+    }
+
+    private Supplier<List<ItemDto>> loader(String name, ItemDto... items) {
+        return () -> {
+            loads.add(name);
+            return List.of(items);
+        };
+    }
+}
@@ -0,0 +1,190 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemSearchIndexTest {
+    @Mock
+    ItemRepository mockItemRepository;
+
+    private final Map<Long, Item> storage = new HashMap<>();
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        save(new Item(1L, "Дрель ударная", "Мощная, с набором свёрл", 0, true));
+        save(new Item(2L, "Notebook", "Ноутбук для работы", 0, true));
+        save(new Item(3L, "Шуруповёрт", "Аккумуляторная дрель-шуруповёрт", 0, true));
+        save(new Item(4L, "Дрель", "Сломана", 0, false));
+        save(new Item(5L, "Отвёртка", "Крестовая", 0, true));
+        lenient().when(mockItemRepository.findAllById(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(storage::get).filter(item -> item != null).collect(Collectors.toList());
+        });
+        lenient().when(mockItemRepository.countByIdInAndAvailableTrue(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(storage::get).filter(item -> item != null && item.getAvailable()).count();
+        });
+        index = index(true);
+    }
+
+    @Test
+    public void shouldFindAvailableItemsBySubstringOfWord() {
+        assertEquals(List.of(1L, 3L), ids(index.search("ДРЕЛ", 0, 10)));
+        assertEquals(List.of(2L), ids(index.search("ote", 0, 10)));
+        assertEquals(List.of(), ids(index.search("сломана", 0, 10)));
+        assertEquals(5, index.countDocuments());
+    }
+
+    @Test
+    public void shouldCheckQueriesSpanningSeveralWordsAgainstText() {
+        assertEquals(List.of(3L), ids(index.search("дрель-шуруп", 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("ль удар", 0, 10)));
+        assertEquals(List.of(1L, 3L), ids(index.search("ударная дрель", 0, 10)));
+        assertEquals(List.of(), ids(index(false).search("ударная дрель", 0, 10)));
+    }
+
+    @Test
+    public void shouldPageByOffsetWithoutLoadingSkippedItems() {
+        assertEquals(List.of(3L), ids(index.search("дрел", 1, 10)));
+        assertEquals(List.of(1L), ids(index.search("дрел", 0, 1)));
+        verify(mockItemRepository, never()).findAllById(List.of(1L, 3L));
+    }
+
+    @Test
+    public void shouldNotCountItemsMissingFromDatabaseWhenSkippingOffset() {
+        storage.remove(1L);
+
+        assertEquals(List.of(3L), ids(index.search("дрел", 0, 10)));
+        assertEquals(List.of(), ids(index.search("дрел", 1, 10)));
+    }
+
+    @Test
+    public void shouldReplaceTermsOfUpdatedItemAndIgnoreStaleVersions() {
+        Item updated = new Item(1L, "Перфоратор", "Без дрели", 0, true);
+        updated.setVersion(2);
+        save(updated);
+        index.onSaved(ItemSearchEntry.of(updated));
+        Item stale = new Item(1L, "Дрель ударная", "Старое описание", 0, true);
+        stale.setVersion(1);
+        index.onSaved(ItemSearchEntry.of(stale));
+        Item unavailable = new Item(3L, "Шуруповёрт", "Аккумуляторная дрель-шуруповёрт", 0, false);
+        unavailable.setVersion(1);
+        save(unavailable);
+        index.onSaved(ItemSearchEntry.of(unavailable));
+
+        assertEquals(List.of(1L), ids(index.search("перфоратор", 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("дрел", 0, 10)));
+        assertEquals(List.of(), ids(index.search("ударная", 0, 10)));
+    }
+
+    @Test
+    public void shouldForgetDeletedItems() {
+        index.onDeleted(ItemSearchEntry.of(storage.get(1L)));
+        index.onDeleted(ItemSearchEntry.of(new Item(9L, "Пила", "Не индексировалась", 0, true)));
+
+        assertEquals(List.of(3L), ids(index.search("дрел", 0, 10)));
+        assertEquals(List.of(), ids(index.search("свёрл", 0, 10)));
+        assertEquals(4, index.countDocuments());
+    }
+
+    @Test
+    public void shouldTreatYoAsYe() {
+        assertEquals(List.of(5L), ids(index.search("отвертка", 0, 10)));
+        assertEquals(List.of(5L), ids(index.search("ОТВЁРТКА", 0, 10)));
+        assertEquals(List.of(3L), ids(index.search("шуруповерт", 0, 10)));
+    }
+
+    @Test
+    public void shouldRankSimilarWordsWhenNothingMatchesExactly() {
+        assertEquals(List.of(1L, 3L), ids(index.search("дрелъ", 0, 10)));
+        assertEquals(List.of(1L, 3L), ids(index.search("ударнай дрелъ", 0, 10)));
+        assertEquals(List.of(3L), ids(index.search("ударнай дрелъ", 1, 10)));
+        assertEquals(List.of(1L), ids(index.search("ударнай дрелъ", 0, 1)));
+        assertEquals(List.of(3L), ids(index.search("шурупаверт", 0, 10)));
+        assertEquals(List.of(), ids(index.search("пылесос", 0, 10)));
+        assertEquals(List.of(), ids(index(false).search("дрелъ", 0, 10)));
+    }
+
+    @Test
+    public void shouldMeasureTrigramSimilarity() {
+        TrigramIndex trigrams = new TrigramIndex();
+        trigrams.add("дрель");
+        trigrams.add("дрели");
+        trigrams.add("пила");
+        trigrams.remove("дрели");
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+
+        assertEquals(List.of("  д", " др", "дре", "рел", "ель", "ль "), List.copyOf(TrigramIndex.trigrams("дрель")));
+        assertEquals(0.5, trigrams.findSimilar("дрелъ", 0.3, deadline).get("дрель"), 1e-9);
+        assertTrue(trigrams.findSimilar("дрели", 0.3, deadline).containsKey("дрель"));
+        assertEquals(Set.of("дрель"), trigrams.findContaining("рел"));
+        assertEquals(Set.of("пила"), trigrams.findContaining("пила"));
+        assertEquals(Set.of(), trigrams.findContaining("лип"));
+        assertEquals(2, trigrams.size());
+    }
+
+    @Test
+    public void shouldReturnEmptyPageForQueryWithoutWords() {
+        assertEquals(List.of(), index.search("--", 0, 10));
+        verify(mockItemRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void shouldKeepPostingsSortedAndUnique() {
+        ItemSearchIndex.Postings postings = new ItemSearchIndex.Postings("дрель");
+        Stream.of(5, 1, 9, 3, 5, 7).forEach(postings::add);
+        postings.remove(9);
+        BitSet ids = new BitSet();
+        postings.addTo(ids);
+
+        assertEquals("{1, 3, 5, 7}", ids.toString());
+        assertTrue(postings.remove(1));
+        assertEquals(List.of("дрель", "шуруповёрт"), ItemSearchIndex.tokenize("Дрель-шуруповёрт, дрель!"));
+    }
+
+    private ItemSearchIndex index(boolean fuzzy) {
+        ItemSearchIndex index = new ItemSearchIndex(mockItemRepository, fuzzy, 0.3, Duration.ofSeconds(1));
+        storage.values().forEach(item -> index.onSaved(ItemSearchEntry.of(item)));
+        return index;
+    }
+
+    private void save(Item item) {
+        storage.put(item.getId(), item);
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        List<Long> ids = new ArrayList<>();
+
+        for (Item item : items) {
+            ids.add(item.getId());
+        }
+
+        return ids;
+    }
+}
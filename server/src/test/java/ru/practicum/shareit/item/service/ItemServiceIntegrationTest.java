@@ -5,13 +5,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingPhaseChangedEvent;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
 import ru.practicum.shareit.item.dto.ItemCommentAndBookingDto;
+import ru.practicum.shareit.item.dto.ItemImportDto;
+import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.CommentRepository;
 import ru.practicum.shareit.item.storage.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.storage.UserRepository;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 
@@ -24,6 +36,10 @@ public class ItemServiceIntegrationTest {
     private final ItemServiceImpl service;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final BookingRepository bookingRepository;
+    private final CommentRepository commentRepository;
+    private final ItemBookingTracker bookingTracker;
+    private final ApplicationEventPublisher eventPublisher;
 
     private User user;
     private Item item;
@@ -51,4 +67,97 @@ public class ItemServiceIntegrationTest {
 
         assertThat(items.get(0).getComments()).isEqualTo(Collections.emptyList());
     }
+
+    @Test
+    public void shouldReturnItemsByOwnerWithBookingsAndComments() {
+        User booker = userRepository.save(new User(null, "Test booker", "booker@mail.ru"));
+        Item otherItem = new Item(null, "Other", "otherdesc", 0, true);
+        otherItem.setOwner(user);
+        otherItem = itemRepository.save(otherItem);
+        Booking lastBooking = saveBooking(booker, item,
+                LocalDateTime.now().minusDays(3), LocalDateTime.now().minusDays(2), BookingStatus.APPROVED);
+        saveBooking(booker, item,
+                LocalDateTime.now().minusDays(5), LocalDateTime.now().minusDays(4), BookingStatus.APPROVED);
+        saveBooking(booker, item,
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), BookingStatus.REJECTED);
+        Booking nextBooking = saveBooking(booker, otherItem,
+                LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2), BookingStatus.APPROVED);
+        saveBooking(booker, otherItem,
+                LocalDateTime.now().plusDays(3), LocalDateTime.now().plusDays(4), BookingStatus.APPROVED);
+        Comment comment = new Comment(null, "Good", Instant.now());
+        comment.setUser(booker);
+        comment.setItem(item);
+        commentRepository.save(comment);
+
+        List<ItemCommentAndBookingDto> items = service.getItemsByOwner(user.getId(), 0, 20);
+
+        assertThat(items.size()).isEqualTo(2);
+        assertThat(items.get(0).getId()).isEqualTo(item.getId());
+        assertThat(items.get(0).getLastBooking().getId()).isEqualTo(lastBooking.getId());
+        assertThat(items.get(0).getLastBooking().getBookerId()).isEqualTo(booker.getId());
+        assertThat(items.get(0).getNextBooking()).isNull();
+        assertThat(items.get(0).getComments().size()).isEqualTo(1);
+        assertThat(items.get(0).getComments().get(0).getAuthorName()).isEqualTo("Test booker");
+        assertThat(items.get(1).getId()).isEqualTo(otherItem.getId());
+        assertThat(items.get(1).getLastBooking()).isNull();
+        assertThat(items.get(1).getNextBooking().getId()).isEqualTo(nextBooking.getId());
+        assertThat(items.get(1).getComments()).isEqualTo(Collections.emptyList());
+    }
+
+    @Test
+    public void shouldMoveStartedNextBookingToLast() {
+        User booker = userRepository.save(new User(null, "Test booker", "booker@mail.ru"));
+        Booking started = saveBooking(booker, item,
+                LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1), BookingStatus.WAITING);
+        Booking future = saveBooking(booker, item,
+                LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2), BookingStatus.WAITING);
+        future.setStatus(BookingStatus.APPROVED);
+        started.setStatus(BookingStatus.APPROVED);
+        bookingRepository.saveAll(List.of(started, future));
+        // ближайшим бронирование стало, пока ещё не началось
+        itemRepository.updateNextBookingIfEarlier(item.getId(), started.getId(), booker.getId(), started.getStart());
+        eventPublisher.publishEvent(new BookingPhaseChangedEvent(BookingPhase.CURRENT, List.of(started.getId())));
+
+        ItemCommentAndBookingDto itemDto = service.getItemById(user.getId(), item.getId());
+
+        assertThat(itemDto.getLastBooking().getId()).isEqualTo(started.getId());
+        assertThat(itemDto.getNextBooking().getId()).isEqualTo(future.getId());
+        Item stored = itemRepository.findById(item.getId()).orElseThrow();
+        assertThat(stored.getLastBookingId()).isEqualTo(started.getId());
+        assertThat(stored.getNextBookingId()).isEqualTo(future.getId());
+    }
+
+    @Test
+    public void shouldImportItemsAndReportRejectedRows() {
+        List<ImportResultDto> results = service.importItems(List.of(
+                new ItemImportDto(user.getId(), "Drill", "Cordless drill", true, null),
+                new ItemImportDto(999L, "Saw", "Hand saw", true, null),
+                new ItemImportDto(user.getId(), "Ladder", "Ladder", true, 999L),
+                new ItemImportDto(user.getId(), "", "No name", true, null)));
+
+        assertThat(results.get(0).getError()).isNull();
+        assertThat(results.get(1).getError()).isEqualTo("Не найден владелец с id = 999");
+        assertThat(results.get(2).getError()).isEqualTo("Не найден запрос с id = 999");
+        assertThat(results.get(3).getError()).isEqualTo("Не заполнены обязательные поля");
+
+        Item imported = itemRepository.findById(results.get(0).getId()).orElseThrow();
+
+        assertThat(imported.getName()).isEqualTo("Drill");
+        assertThat(imported.getOwner().getId()).isEqualTo(user.getId());
+        assertThat(imported.getRentals()).isEqualTo(0);
+    }
+
+    private Booking saveBooking(User booker, Item item, LocalDateTime start, LocalDateTime end, BookingStatus status) {
+        Booking booking = new Booking(start, end);
+        booking.setBooker(booker);
+        booking.setItem(item);
+        booking.setStatus(status);
+        booking = bookingRepository.save(booking);
+
+        if (status == BookingStatus.APPROVED) {
+            bookingTracker.onApproved(booking);
+        }
+
+        return booking;
+    }
 }
\ No newline at end of file
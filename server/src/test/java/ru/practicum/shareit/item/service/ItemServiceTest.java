@@ -14,11 +14,13 @@ import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.dto.BookingWithBookerIdDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingArchiveRepository;
 import ru.practicum.shareit.booking.storage.BookingRepository;
 import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CommentMapper;
+import ru.practicum.shareit.item.dto.FreeIntervalDto;
 import ru.practicum.shareit.item.dto.ItemCommentAndBookingDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemMapper;
@@ -37,11 +39,14 @@ import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @Transactional
@@ -59,11 +64,23 @@ public class ItemServiceTest {
     @Mock
     BookingRepository mockBookingRepository;
     @Mock
+    BookingArchiveRepository mockArchiveRepository;
+    @Mock
+    BookingMapper mockBookingMapper;
+    @Mock
     ItemMapper mockItemMapper;
     @Mock
     CommentMapper mockCommentMapper;
     @Mock
-    BookingMapper mockBookingMapper;
+    ItemCalendarCache mockCalendarCache;
+    @Mock
+    ItemSearchEngine mockSearchEngine;
+    @Mock
+    ItemSearchCache mockSearchCache;
+    @Mock
+    ItemSuggestIndex mockSuggestIndex;
+    @Mock
+    ItemChangePublisher mockItemChanges;
     @InjectMocks
     ItemServiceImpl service;
 
@@ -99,6 +116,7 @@ public class ItemServiceTest {
         ItemDto newItemDto = service.create(itemDto, owner.getId());
 
         assertEquals(newItemDto, createdItemDto);
+        verify(mockItemChanges).onSaved(List.of(createdItem), List.of());
     }
 
     @Test
@@ -275,14 +293,6 @@ public class ItemServiceTest {
 
         when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
         when(mockItemMapper.toItemWithCommentDto(item)).thenReturn(itemCommentDto);
-        when(mockBookingRepository.findByItemIdAndStatusIsAndStartBeforeOrderByStartDesc(
-                eq(1L),
-                eq(BookingStatus.APPROVED),
-                any())).thenReturn(Collections.emptyList());
-        when(mockBookingRepository.findByItemIdAndStatusIsAndStartAfterOrderByStartAsc(
-                eq(1L),
-                eq(BookingStatus.APPROVED),
-                any())).thenReturn(Collections.emptyList());
         when(mockCommentRepository.findByItemId(itemDto.getId())).thenReturn(Collections.emptyList());
         when(mockCommentMapper.listCommentDto(any())).thenReturn(Collections.emptyList());
 
@@ -301,41 +311,41 @@ public class ItemServiceTest {
 
     @Test
     public void shouldReturnItemByIdWithBookings() {
-        User otherUser = new User(2L, "Test", "test@yandex.ru");
-        Booking lastBooking = new Booking(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(2));
-        lastBooking.setId(1L);
-        Booking nextBooking = new Booking(LocalDateTime.now().plusDays(3), LocalDateTime.now().plusDays(4));
-        nextBooking.setId(2L);
-        lastBooking.setStatus(BookingStatus.APPROVED);
-        lastBooking.setItem(item);
-        lastBooking.setBooker(otherUser);
-        nextBooking.setStatus(BookingStatus.APPROVED);
-        nextBooking.setItem(item);
-        nextBooking.setBooker(otherUser);
-        BookingWithBookerIdDto lastBookingWithBooker = new BookingWithBookerIdDto(1L, 2L);
-        BookingWithBookerIdDto nextBookingWithBooker = new BookingWithBookerIdDto(1L, 2L);
+        item.setLastBookingId(1L);
+        item.setLastBookerId(2L);
+        item.setNextBookingId(2L);
+        item.setNextBookerId(2L);
         ItemCommentAndBookingDto itemCommentDto =
                 new ItemCommentAndBookingDto(1L, "Notebook", "testDesc", 0, true);
         item.setOwner(owner);
 
         when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
         when(mockItemMapper.toItemWithCommentDto(item)).thenReturn(itemCommentDto);
-        when(mockBookingRepository.findByItemIdAndStatusIsAndStartBeforeOrderByStartDesc(
-                eq(1L),
-                eq(BookingStatus.APPROVED),
-                any())).thenReturn(List.of(lastBooking));
-        when(mockBookingRepository.findByItemIdAndStatusIsAndStartAfterOrderByStartAsc(
-                eq(1L),
-                eq(BookingStatus.APPROVED),
-                any())).thenReturn(List.of(nextBooking));
-        when(mockBookingMapper.toBookingWithBookerIdDto(lastBooking)).thenReturn(lastBookingWithBooker);
-        when(mockBookingMapper.toBookingWithBookerIdDto(nextBooking)).thenReturn(nextBookingWithBooker);
         when(mockCommentRepository.findByItemId(itemDto.getId())).thenReturn(Collections.emptyList());
         when(mockCommentMapper.listCommentDto(any())).thenReturn(Collections.emptyList());
 
         ItemCommentAndBookingDto itemById = service.getItemById(owner.getId(), item.getId());
 
-        assertEquals(itemById, itemCommentDto);
+        assertEquals(new BookingWithBookerIdDto(1L, 2L), itemById.getLastBooking());
+        assertEquals(new BookingWithBookerIdDto(2L, 2L), itemById.getNextBooking());
+    }
+
+    @Test
+    public void shouldNotReturnBookingsForItemByIdToNotOwner() {
+        item.setLastBookingId(1L);
+        item.setLastBookerId(2L);
+        ItemCommentAndBookingDto itemCommentDto =
+                new ItemCommentAndBookingDto(1L, "Notebook", "testDesc", 0, true);
+        item.setOwner(owner);
+
+        when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(mockItemMapper.toItemWithCommentDto(item)).thenReturn(itemCommentDto);
+        when(mockCommentRepository.findByItemId(itemDto.getId())).thenReturn(Collections.emptyList());
+        when(mockCommentMapper.listCommentDto(any())).thenReturn(Collections.emptyList());
+
+        ItemCommentAndBookingDto itemById = service.getItemById(2L, item.getId());
+
+        assertNull(itemById.getLastBooking());
     }
 
     @Test
@@ -348,14 +358,6 @@ public class ItemServiceTest {
 
         when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
         when(mockItemMapper.toItemWithCommentDto(item)).thenReturn(itemCommentDto);
-        when(mockBookingRepository.findByItemIdAndStatusIsAndStartBeforeOrderByStartDesc(
-                eq(1L),
-                eq(BookingStatus.APPROVED),
-                any())).thenReturn(Collections.emptyList());
-        when(mockBookingRepository.findByItemIdAndStatusIsAndStartAfterOrderByStartAsc(
-                eq(1L),
-                eq(BookingStatus.APPROVED),
-                any())).thenReturn(Collections.emptyList());
         when(mockCommentRepository.findByItemId(itemDto.getId())).thenReturn(List.of(comment));
         when(mockCommentMapper.listCommentDto(any())).thenReturn(List.of(commentDto));
 
@@ -364,19 +366,73 @@ public class ItemServiceTest {
         assertEquals(itemById, itemCommentDto);
     }
 
+    @Test
+    public void shouldReturnItemsByOwner() {
+        Item otherItem = new Item(2L, "Lamp", "desc", 0, true);
+        item.setLastBookingId(1L);
+        item.setLastBookerId(2L);
+        otherItem.setNextBookingId(2L);
+        otherItem.setNextBookerId(2L);
+        Comment comment = new Comment(1L, "text", Instant.now());
+        comment.setItem(item);
+        CommentDto commentDto = new CommentDto(1L, "text", "Test", comment.getCreated());
+        BookingWithBookerIdDto lastBookingWithBooker = new BookingWithBookerIdDto(1L, 2L);
+        BookingWithBookerIdDto nextBookingWithBooker = new BookingWithBookerIdDto(2L, 2L);
+        ItemCommentAndBookingDto itemCommentDto =
+                new ItemCommentAndBookingDto(1L, "Notebook", "testDesc", 0, true);
+        ItemCommentAndBookingDto otherItemCommentDto =
+                new ItemCommentAndBookingDto(2L, "Lamp", "desc", 0, true);
+
+        when(mockItemRepository.findByOwnerIdOrderById(owner.getId(), PageRequest.of(0, 20)))
+                .thenReturn(List.of(item, otherItem));
+        when(mockCommentRepository.findAllByItemIdIn(List.of(1L, 2L))).thenReturn(List.of(comment));
+        when(mockItemMapper.toItemWithCommentDto(item)).thenReturn(itemCommentDto);
+        when(mockItemMapper.toItemWithCommentDto(otherItem)).thenReturn(otherItemCommentDto);
+        when(mockCommentMapper.listCommentDto(List.of(comment))).thenReturn(List.of(commentDto));
+        when(mockCommentMapper.listCommentDto(Collections.emptyList())).thenReturn(Collections.emptyList());
+
+        List<ItemCommentAndBookingDto> items = service.getItemsByOwner(owner.getId(), 0, 20);
+
+        assertEquals(2, items.size());
+        assertEquals(lastBookingWithBooker, items.get(0).getLastBooking());
+        assertNull(items.get(0).getNextBooking());
+        assertEquals(List.of(commentDto), items.get(0).getComments());
+        assertNull(items.get(1).getLastBooking());
+        assertEquals(nextBookingWithBooker, items.get(1).getNextBooking());
+        assertEquals(Collections.emptyList(), items.get(1).getComments());
+    }
+
+    @Test
+    public void shouldReturnEmptyListForItemsByOwnerWithoutItems() {
+        when(mockItemRepository.findByOwnerIdOrderById(owner.getId(), PageRequest.of(0, 20)))
+                .thenReturn(Collections.emptyList());
+
+        List<ItemCommentAndBookingDto> items = service.getItemsByOwner(owner.getId(), 0, 20);
+
+        assertEquals(Collections.emptyList(), items);
+    }
+
     @Test
     public void shouldReturnItemForSearch() {
-        when(mockItemRepository
-                .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableTrue(
-                        "ote", "ote", PageRequest.of(0, 20)))
-                .thenReturn(List.of(item));
-        when(mockItemMapper.listItemDto(any())).thenReturn(List.of(itemDto));
+        when(mockSearchEngine.cacheKey("OTE")).thenReturn("ote");
+        when(mockSearchCache.get(eq("ote"), eq(20L), eq(20), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<List<ItemDto>>>getArgument(3).get());
+        when(mockSearchEngine.search("OTE", 20, 20)).thenReturn(List.of(item));
+        when(mockItemMapper.listItemDto(List.of(item))).thenReturn(List.of(itemDto));
 
-        List<ItemDto> items = service.search("ote", 0, 20);
+        List<ItemDto> items = service.search("OTE", 25, 20);
 
         assertEquals(items, List.of(itemDto));
     }
 
+    @Test
+    public void shouldSuggestNamesByPrefix() {
+        when(mockSuggestIndex.suggest("дре", 5)).thenReturn(List.of("Дрель"));
+
+        assertEquals(List.of("Дрель"), service.suggest("дре", 5));
+        assertEquals(List.of(), service.suggest(" ", 5));
+    }
+
     @Test
     public void shouldReturnEmptyListForSearchWithEmptyText() {
         List<ItemDto> items = service.search(" ", 0, 20);
@@ -432,4 +488,36 @@ public class ItemServiceTest {
 
         assertEquals(comments, List.of(commentDto));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnAvailabilityFromCalendar() {
+        LocalDateTime from = LocalDateTime.now().plusDays(1);
+        LocalDateTime to = from.plusDays(7);
+        List<FreeIntervalDto> free = List.of(new FreeIntervalDto(from, to));
+
+        when(mockItemRepository.existsById(item.getId())).thenReturn(true);
+        when(mockCalendarCache.getFreeIntervals(item.getId(), from, to)).thenReturn(free);
+
+        assertEquals(free, service.getAvailability(item.getId(), from, to));
+    }
+
+    @Test
+    public void shouldReturnValidationExceptionForAvailabilityWithInvertedPeriod() {
+        LocalDateTime from = LocalDateTime.now().plusDays(1);
+
+        when(mockItemRepository.existsById(item.getId())).thenReturn(true);
+
+        assertThrows(ValidationException.class,
+                () -> service.getAvailability(item.getId(), from, from.minusHours(1)));
+    }
+
+    @Test
+    public void shouldReturnNotFoundExceptionForAvailabilityWithoutItem() {
+        LocalDateTime from = LocalDateTime.now().plusDays(1);
+
+        when(mockItemRepository.existsById(item.getId())).thenReturn(false);
+
+        assertThrows(NotFoundException.class,
+                () -> service.getAvailability(item.getId(), from, from.plusDays(1)));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ItemSuggestIndexTest {
+    private final List<Item> items = new ArrayList<>();
+    private final ItemSuggestIndex index = new ItemSuggestIndex();
+
+    @BeforeEach
+    void setUp() {
+        items.add(new Item(1L, "Дрель", "Ударная", 3, true));
+        items.add(new Item(2L, "Дрель ударная", "Мощная", 5, true));
+        items.add(new Item(3L, "Дрезина", "Ручная", 1, true));
+        items.add(new Item(4L, "дрель", "Вторая", 4, true));
+        items.add(new Item(5L, "Дрова", "Берёзовые", 9, false));
+        items.add(new Item(6L, "Ёлка", "Искусственная", 0, true));
+        items.forEach(item -> index.onSaved(ItemSearchEntry.of(item)));
+    }
+
+    @Test
+    public void shouldSuggestAvailableNamesByPopularity() {
+        assertEquals(List.of("Дрель", "Дрель ударная", "Дрезина"), index.suggest("ДР", 10));
+        assertEquals(List.of("Дрель"), index.suggest("дре", 1));
+        assertEquals(List.of("Дрель ударная"), index.suggest("дрель у", 10));
+        assertEquals(List.of("Ёлка"), index.suggest("ел", 10));
+        assertEquals(List.of(), index.suggest("дрова", 10));
+        assertEquals(List.of(), index.suggest("дрели", 10));
+    }
+
+    @Test
+    public void shouldApplyChangesOfItemsIncrementally() {
+        index.onSaved(version(new Item(1L, "Дрезина", "Переименована", 3, true), 1));
+        index.onSaved(version(new Item(5L, "Дрова", "Снова в наличии", 9, true), 1));
+        index.onSaved(version(new Item(7L, "Дрель", "Новая", 1, true), 0));
+
+        assertEquals(List.of("Дрова", "Дрель", "Дрель ударная", "Дрезина"), index.suggest("др", 10));
+
+        index.onSaved(version(new Item(5L, "Дрова", "Старая версия", 9, false), 0));
+        index.onSaved(version(new Item(2L, "Перфоратор", "Переименован", 5, true), 1));
+        index.onSaved(version(new Item(3L, "Дрезина", "Сломана", 1, false), 1));
+        index.onSaved(version(new Item(1L, "Дрезина", "Сломана", 3, false), 2));
+
+        assertEquals(List.of("Дрова", "Дрель"), index.suggest("др", 10));
+        assertEquals(List.of("Перфоратор"), index.suggest("п", 10));
+        assertEquals(List.of(), index.suggest("дрез", 10));
+    }
+
+    @Test
+    public void shouldForgetDeletedItems() {
+        index.onDeleted(ItemSearchEntry.of(items.get(0)));
+        index.onDeleted(ItemSearchEntry.of(items.get(4)));
+
+        assertEquals(List.of("Дрель ударная", "Дрель", "Дрезина"), index.suggest("др", 10));
+
+        index.onDeleted(ItemSearchEntry.of(items.get(3)));
+
+        assertEquals(List.of("Дрель ударная", "Дрезина"), index.suggest("др", 10));
+    }
+
+    @Test
+    public void shouldLimitSuggestionsToMaxLimit() {
+        for (long id = 10; id < 30; id++) {
+            index.onSaved(version(new Item(id, "Палатка " + id, "Туристическая", (int) id, true), 0));
+        }
+
+        List<String> suggestions = index.suggest("палатка", 100);
+
+        assertEquals(ItemSuggestIndex.MAX_LIMIT, suggestions.size());
+        assertEquals("Палатка 29", suggestions.get(0));
+        assertEquals(List.of("Палатка 15", "Палатка 14"), index.suggest("палатка 1", 100).subList(4, 6));
+    }
+
+    private static ItemSearchEntry version(Item item, long version) {
+        item.setVersion(version);
+        return ItemSearchEntry.of(item);
+    }
+}
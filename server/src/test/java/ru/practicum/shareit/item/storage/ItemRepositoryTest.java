@@ -18,7 +18,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @DataJpaTest(properties = {
-        "spring.jpa.hibernate.ddl-auto=create-drop",
         "spring.datasource.url=jdbc:h2:mem:test;DB_CLOSE_DELAY=-1"})
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class ItemRepositoryTest {
@@ -0,0 +1,43 @@
+package ru.practicum.shareit.item.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.Location;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.shareit.PostgresIntegrationTest;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * База уже прошла миграции в режиме full-text; здесь режим поиска переключается в index и обратно
+ * на той же истории flyway_schema_history, как при перезапуске сервера с другим shareit.item-search.mode.
+ */
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ItemSearchMigrationTest extends PostgresIntegrationTest {
+    private final Flyway flyway;
+
+    @Test
+    public void shouldStartAfterSwitchingFromFullTextToIndexAndBack() {
+        Location[] indexLocations = Arrays.stream(flyway.getConfiguration().getLocations())
+                .filter(location -> !location.getDescriptor().contains("item-search"))
+                .toArray(Location[]::new);
+        Flyway index = Flyway.configure().configuration(flyway.getConfiguration())
+                .locations(indexLocations)
+                .load();
+
+        assertThat(index.validateWithResult().validationSuccessful).isTrue();
+        assertThat(index.migrate().migrationsExecuted).isZero();
+        assertThat(Flyway.configure().configuration(index.getConfiguration())
+                .ignoreMigrationPatterns("*:future")
+                .load()
+                .validateWithResult().validationSuccessful).isFalse();
+
+        assertThat(flyway.validateWithResult().validationSuccessful).isTrue();
+        assertThat(flyway.migrate().migrationsExecuted).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM information_schema.columns " +
+                "WHERE table_name = 'items' AND column_name = 'search_vector'", Integer.class)).isEqualTo(1);
+    }
+}
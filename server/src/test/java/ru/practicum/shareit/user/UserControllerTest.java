@@ -8,6 +8,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.bulk.ImportGuard;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
@@ -33,6 +34,8 @@ public class UserControllerTest {
     final ObjectMapper mapper;
     @MockBean
     final UserService service;
+    @MockBean
+    final ImportGuard importGuard;
     private final MockMvc mvc;
     private final UserDto userDto = new UserDto(1L, "Danila", "email@mail.ru");
 
@@ -5,11 +5,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.bulk.dto.ImportResultDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.dto.UserMapper;
+import ru.practicum.shareit.user.model.OwnerDailyStats;
+import ru.practicum.shareit.user.model.OwnerDailyStatsId;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.OwnerDailyStatsRepository;
+import ru.practicum.shareit.user.storage.OwnerStatsRepository;
 import ru.practicum.shareit.user.storage.UserRepository;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 @SpringBootTest
@@ -19,6 +37,12 @@ public class UserServiceIntegrationTest {
     private final UserServiceImpl service;
     private final UserRepository repository;
     private final UserMapper mapper;
+    private final OwnerDailyStatsRepository dailyStatsRepository;
+    private final OwnerStatsRepository statsRepository;
+    private final OwnerStatsRecorder statsRecorder;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final PlatformTransactionManager transactionManager;
     private User user;
 
     @BeforeEach
@@ -44,4 +68,77 @@ public class UserServiceIntegrationTest {
         assertThat(userInStorage.getEmail()).isEqualTo("new@mail.ru");
     }
 
+    @Test
+    public void shouldImportUsersAndRejectTakenEmails() {
+        List<UserDto> users = new ArrayList<>();
+
+        for (int i = 0; i < 120; i++) {
+            users.add(new UserDto(null, "user" + i, "user" + i + "@mail.ru"));
+        }
+
+        users.add(new UserDto(null, "duplicate", "user0@mail.ru"));
+        users.add(new UserDto(null, "taken", "test@mail.ru"));
+        users.add(new UserDto(null, " ", "blank@mail.ru"));
+
+        List<ImportResultDto> results = service.importUsers(users);
+        Set<Long> ids = new HashSet<>();
+
+        for (int i = 0; i < 120; i++) {
+            assertThat(results.get(i).getError()).isNull();
+            ids.add(results.get(i).getId());
+        }
+
+        assertThat(ids.size()).isEqualTo(120);
+        assertThat(ids.contains(user.getId())).isFalse();
+        assertThat(results.get(120).getError()).isEqualTo("Пользователь уже существует");
+        assertThat(results.get(121).getError()).isEqualTo("Пользователь уже существует");
+        assertThat(results.get(122).getError()).isEqualTo("Не заполнены обязательные поля");
+        assertThat(repository.findById(results.get(119).getId()).orElseThrow().getEmail())
+                .isEqualTo("user119@mail.ru");
+    }
+
+    @Test
+    public void shouldPruneDailyStatsOlderThanLongestWindow() {
+        LocalDate today = LocalDate.of(2030, 4, 1);
+        LocalDate horizon = today.minusDays(OwnerStatsRecorder.MAX_WINDOW_DAYS - 1);
+        dailyStatsRepository.saveAll(List.of(
+                new OwnerDailyStats(new OwnerDailyStatsId(user.getId(), horizon.minusDays(1)), 1),
+                new OwnerDailyStats(new OwnerDailyStatsId(user.getId(), horizon), 2),
+                new OwnerDailyStats(new OwnerDailyStatsId(user.getId(), today), 3)));
+        dailyStatsRepository.flush();
+
+        int deleted = new OwnerDailyStatsCleaner(dailyStatsRepository, transactionManager).cleanup(today);
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(dailyStatsRepository.findAllByOwnerIdAndDateBetween(user.getId(), horizon.minusDays(10), today)
+                .size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRecordBookedDaysThroughTodayAndAccrueTheRestAsTheyCome() {
+        User booker = repository.save(new User(null, "booker", "booker@mail.ru"));
+        Item item = new Item(null, "item", "desc", 0, true);
+        item.setOwner(user);
+        item = itemRepository.save(item);
+        LocalDate today = LocalDate.now();
+        Booking booking = new Booking(today.minusDays(1).atTime(10, 0), today.plusYears(5).atTime(10, 0));
+        booking.setStatus(BookingStatus.APPROVED);
+        booking.setItem(item);
+        booking.setBooker(booker);
+        statsRecorder.onImported(user.getId(), List.of(bookingRepository.saveAndFlush(booking)));
+
+        assertThat(dailyStatsRepository.findAllByOwnerIdAndDateBetween(user.getId(), today.minusDays(1),
+                today.plusYears(5)).size()).isEqualTo(2);
+
+        OwnerDailyStatsAccrual accrual = new OwnerDailyStatsAccrual(
+                statsRepository, dailyStatsRepository, transactionManager);
+
+        assertThat(accrual.accrue(today.plusDays(3))).isEqualTo(3);
+        assertThat(accrual.accrue(today.plusDays(3))).isEqualTo(0);
+        assertThat(statsRepository.findAccruedThrough(user.getId())).isEqualTo(today.plusDays(3));
+        assertThat(dailyStatsRepository.findById(new OwnerDailyStatsId(user.getId(), today.plusDays(3)))
+                .orElseThrow().getBookedItems()).isEqualTo(1);
+        assertThat(dailyStatsRepository.findAllByOwnerIdAndDateBetween(user.getId(), today.minusDays(1),
+                today.plusYears(5)).size()).isEqualTo(5);
+    }
 }
@@ -11,6 +11,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.dto.ItemSearchEntry;
+import ru.practicum.shareit.item.service.ItemChangePublisher;
+import ru.practicum.shareit.item.storage.ItemRepository;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
@@ -34,6 +37,12 @@ public class UserServiceTest {
     UserRepository mockRepository;
     @Mock
     UserMapper mockMapper;
+    @Mock
+    OwnerStatsRecorder mockOwnerStatsRecorder;
+    @Mock
+    ItemRepository mockItemRepository;
+    @Mock
+    ItemChangePublisher mockItemChanges;
     @InjectMocks
     UserServiceImpl userService;
 
@@ -138,8 +147,12 @@ public class UserServiceTest {
 
     @Test
     public void shouldDeleteUser() {
+        List<ItemSearchEntry> items = List.of(new ItemSearchEntry(2L, "Дрель", "Ударная", 0, true, 0L));
+        when(mockItemRepository.findSearchEntriesByOwnerId(1L)).thenReturn(items);
+
         userService.delete(1L);
         verify(mockRepository, times(1)).deleteById(1L);
+        verify(mockItemChanges).onDeleted(items);
     }
 
     @Test